@@ -8,7 +8,7 @@ import java.awt.EventQueue;
 public class Hotel {
 
     public static void main(String[] args) {
-        EventQueue.invokeLater(HotelSystemDao::create);
+        HotelSystemDao.create();
         EventQueue.invokeLater(HotelSystemUI::create);
     }
 }
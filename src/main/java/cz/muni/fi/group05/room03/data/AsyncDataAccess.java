@@ -0,0 +1,60 @@
+package cz.muni.fi.group05.room03.data;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs data access operations one at a time on a dedicated thread. Returned futures complete on the
+ * callback executor, so dependent stages registered by the caller run there as well.
+ */
+public class AsyncDataAccess implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+
+    public AsyncDataAccess(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hotel-data-access");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(operation, executor).whenComplete((value, ex) ->
+                callbackExecutor.execute(() -> {
+                    if (ex != null) {
+                        result.completeExceptionally(ex);
+                    } else {
+                        result.complete(value);
+                    }
+                }));
+        return result;
+    }
+
+    public CompletableFuture<Void> run(Runnable operation) {
+        return supply(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package cz.muni.fi.group05.room03.data;
+
+import java.time.LocalDate;
+
+public class CapacityCheck {
+
+    private final int capacity;
+    private final int peakBooked;
+    private final LocalDate firstOverfullNight;
+
+    public CapacityCheck(int capacity, int peakBooked, LocalDate firstOverfullNight) {
+        this.capacity = capacity;
+        this.peakBooked = peakBooked;
+        this.firstOverfullNight = firstOverfullNight;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getPeakBooked() {
+        return peakBooked;
+    }
+
+    public LocalDate getFirstOverfullNight() {
+        return firstOverfullNight;
+    }
+
+    public boolean fits() {
+        return firstOverfullNight == null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("capacity=%d, peakBooked=%d, firstOverfullNight=%s",
+                capacity, peakBooked, firstOverfullNight);
+    }
+}
@@ -0,0 +1,100 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Reservation;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class CapacityService {
+
+    // the date bounds cannot seek past the reservation history, the state index probes only the active stays
+    private static final String OVERLAPPING = "SELECT DATE_FROM, DATE_TO, PERSONS FROM RESERVATION " +
+            "--DERBY-PROPERTIES index = RESERVATION_STATE_IDX\n" +
+            "WHERE STATE IN ('UPCOMING', 'DOING') AND DATE_FROM < ? AND DATE_TO > ?";
+
+    private final DataSource dataSource;
+    private final ReservationDao reservationDao;
+
+    public CapacityService(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    // with a reservation DAO the overlapping stays come from its active index instead of the overlap query
+    public CapacityService(DataSource dataSource, ReservationDao reservationDao) {
+        this.dataSource = dataSource;
+        this.reservationDao = reservationDao;
+    }
+
+    public CapacityCheck check(LocalDate from, LocalDate to, int people, Long excludedId) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("Date to " + to + " is not after date from " + from);
+        }
+        try (var connection = dataSource.getConnection()) {
+            int capacity = findCapacity(connection);
+            TreeMap<LocalDate, Integer> changes = reservationDao == null
+                    ? findChanges(connection, from, to, excludedId)
+                    : findChanges(from, to, excludedId);
+            int booked = 0;
+            int peak = 0;
+            LocalDate firstOverfull = people > capacity ? from : null;
+            for (Map.Entry<LocalDate, Integer> change : changes.entrySet()) {
+                booked += change.getValue();
+                peak = Math.max(peak, booked);
+                if (firstOverfull == null && booked + people > capacity) {
+                    firstOverfull = change.getKey();
+                }
+            }
+            return new CapacityCheck(capacity, peak, firstOverfull);
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to check capacity from " + from + " to " + to, ex);
+        }
+    }
+
+    private int findCapacity(Connection connection) throws SQLException {
+        try (var st = connection.prepareStatement("SELECT COALESCE(SUM(NUMBER_OF_BEDS), 0) AS beds FROM ROOM");
+             var rs = st.executeQuery()) {
+            return rs.next() ? rs.getInt("beds") : 0;
+        }
+    }
+
+    private TreeMap<LocalDate, Integer> findChanges(Connection connection, LocalDate from, LocalDate to,
+                                                    Long excludedId) throws SQLException {
+        String sql = excludedId == null ? OVERLAPPING : OVERLAPPING + " AND ID <> ?";
+        TreeMap<LocalDate, Integer> changes = new TreeMap<>();
+        try (var st = connection.prepareStatement(sql)) {
+            st.setDate(1, Date.valueOf(to));
+            st.setDate(2, Date.valueOf(from));
+            if (excludedId != null) {
+                st.setLong(3, excludedId);
+            }
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    addStay(changes, from, to, rs.getDate("DATE_FROM").toLocalDate(),
+                            rs.getDate("DATE_TO").toLocalDate(), rs.getInt("PERSONS"));
+                }
+            }
+        }
+        return changes;
+    }
+
+    private TreeMap<LocalDate, Integer> findChanges(LocalDate from, LocalDate to, Long excludedId) {
+        TreeMap<LocalDate, Integer> changes = new TreeMap<>();
+        for (Reservation reservation : reservationDao.getActiveIndex().findOverlapping(from, to)) {
+            if (!reservation.getId().equals(excludedId)) {
+                addStay(changes, from, to, reservation.getDateFrom(), reservation.getDateTo(), reservation.getPeople());
+            }
+        }
+        return changes;
+    }
+
+    private static void addStay(TreeMap<LocalDate, Integer> changes, LocalDate from, LocalDate to,
+                                LocalDate start, LocalDate end, int persons) {
+        changes.merge(start.isBefore(from) ? from : start, persons, Integer::sum);
+        changes.merge(end.isAfter(to) ? to : end, -persons, Integer::sum);
+    }
+}
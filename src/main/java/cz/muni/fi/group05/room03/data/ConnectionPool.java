@@ -0,0 +1,493 @@
+package cz.muni.fi.group05.room03.data;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of physical connections taken from the wrapped data source.
+ * Connections handed out by {@link #getConnection()} return to the pool when closed.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private final DataSource dataSource;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+    private final long maxWaitNanos;
+    private final int statementCacheSize;
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private int total = 0;
+    private int active = 0;
+    private long waitCount = 0;
+    private long totalWaitNanos = 0;
+    private long maxWaitNanosSeen = 0;
+    private boolean closed = false;
+
+    private ConnectionPool(Builder builder) {
+        if (builder.minSize < 0 || builder.maxSize < 1 || builder.minSize > builder.maxSize)
+            throw new IllegalArgumentException("Pool size must satisfy 0 <= min <= max and max >= 1");
+        this.dataSource = builder.dataSource;
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.idleTimeoutNanos = builder.idleTimeout.toNanos();
+        this.maxWaitNanos = builder.maxWait.toNanos();
+        this.statementCacheSize = builder.statementCacheSize;
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, builder.idleTimeout.toMillis() / 2);
+        evictor.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        PooledConnection pooled = null;
+        synchronized (this) {
+            long deadline = start + maxWaitNanos;
+            boolean waited = false;
+            while (true) {
+                if (closed)
+                    throw new SQLException("Connection pool is closed");
+                if (!idle.isEmpty()) {
+                    pooled = idle.pollFirst();
+                    break;
+                }
+                if (total < maxSize) {
+                    total++;
+                    break;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    recordWait(System.nanoTime() - start);
+                    throw new SQLTimeoutException("Timed out waiting for a free connection, pool size " + maxSize);
+                }
+                waited = true;
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a free connection", ex);
+                }
+            }
+            active++;
+            if (waited) {
+                recordWait(System.nanoTime() - start);
+            }
+        }
+        if (pooled == null) {
+            try {
+                pooled = new PooledConnection(dataSource.getConnection());
+            } catch (SQLException | RuntimeException ex) {
+                synchronized (this) {
+                    total--;
+                    active--;
+                    notifyAll();
+                }
+                throw ex;
+            }
+        }
+        return pooled.borrow();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connection pool does not support per-call credentials");
+    }
+
+    public synchronized PoolStatistics getStatistics() {
+        return new PoolStatistics(active, idle.size(), maxSize, waitCount,
+                TimeUnit.NANOSECONDS.toMillis(totalWaitNanos), TimeUnit.NANOSECONDS.toMillis(maxWaitNanosSeen),
+                statementCacheHits.get(), statementCacheMisses.get());
+    }
+
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            notifyAll();
+        }
+        evictor.shutdownNow();
+        toClose.forEach(PooledConnection::closePhysical);
+    }
+
+    private void recordWait(long nanos) {
+        waitCount++;
+        totalWaitNanos += nanos;
+        maxWaitNanosSeen = Math.max(maxWaitNanosSeen, nanos);
+    }
+
+    private void release(PooledConnection pooled) {
+        boolean reusable = pooled.reset();
+        synchronized (this) {
+            active--;
+            if (reusable && !closed) {
+                pooled.lastUsed = System.nanoTime();
+                idle.addFirst(pooled);
+            } else {
+                total--;
+            }
+            notifyAll();
+        }
+        if (!reusable || closed) {
+            pooled.closePhysical();
+        }
+    }
+
+    private void maintain() {
+        List<PooledConnection> expired = new ArrayList<>();
+        int missing;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            long now = System.nanoTime();
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && total > minSize) {
+                PooledConnection pooled = oldestFirst.next();
+                if (now - pooled.lastUsed < idleTimeoutNanos) {
+                    break;
+                }
+                oldestFirst.remove();
+                total--;
+                expired.add(pooled);
+            }
+            missing = Math.max(0, minSize - total);
+            total += missing;
+        }
+        expired.forEach(PooledConnection::closePhysical);
+        for (int i = 0; i < missing; i++) {
+            try {
+                PooledConnection pooled = new PooledConnection(dataSource.getConnection());
+                synchronized (this) {
+                    active++;
+                }
+                release(pooled);
+            } catch (SQLException | RuntimeException ex) {
+                synchronized (this) {
+                    total -= missing - i;
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+
+    private class PooledConnection {
+
+        private final Connection physical;
+        private final Map<String, CachedStatement> statements;
+        private long lastUsed;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= statementCacheSize) {
+                        return false;
+                    }
+                    if (!eldest.getValue().inUse) {
+                        eldest.getValue().closePhysical();
+                    } else {
+                        eldest.getValue().evicted = true;
+                    }
+                    return true;
+                }
+            };
+        }
+
+        private PreparedStatement prepare(Connection handle, String sql, Integer autoGeneratedKeys) throws SQLException {
+            if (statementCacheSize <= 0) {
+                statementCacheMisses.incrementAndGet();
+                return autoGeneratedKeys == null
+                        ? physical.prepareStatement(sql) : physical.prepareStatement(sql, autoGeneratedKeys);
+            }
+            String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + ":" + sql;
+            CachedStatement cached = statements.get(key);
+            if (cached != null && !cached.inUse) {
+                statementCacheHits.incrementAndGet();
+                return cached.borrow(handle);
+            }
+            statementCacheMisses.incrementAndGet();
+            PreparedStatement statement = autoGeneratedKeys == null
+                    ? physical.prepareStatement(sql) : physical.prepareStatement(sql, autoGeneratedKeys);
+            if (cached != null) {
+                // the cached statement is still open further up the call stack, this one is not kept
+                return statement;
+            }
+            cached = new CachedStatement(statement);
+            statements.put(key, cached);
+            return cached.borrow(handle);
+        }
+
+        private Connection borrow() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this));
+        }
+
+        private boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+
+        private void closePhysical() {
+            statements.values().forEach(CachedStatement::closePhysical);
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // connection is being discarded anyway
+            }
+        }
+    }
+
+    private static class CachedStatement {
+
+        private final PreparedStatement physical;
+        private boolean inUse = false;
+        private boolean evicted = false;
+
+        private CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        private PreparedStatement borrow(Connection handle) {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new StatementHandle(this, handle));
+        }
+
+        private void giveBack() throws SQLException {
+            inUse = false;
+            if (evicted) {
+                closePhysical();
+                return;
+            }
+            physical.clearParameters();
+            physical.clearBatch();
+        }
+
+        private void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // statement is being discarded anyway
+            }
+        }
+    }
+
+    private static class StatementHandle implements InvocationHandler {
+
+        private final Connection connection;
+        private CachedStatement cached;
+
+        private StatementHandle(CachedStatement cached, Connection connection) {
+            this.cached = cached;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (cached != null) {
+                        CachedStatement returned = cached;
+                        cached = null;
+                        returned.giveBack();
+                    }
+                    return null;
+                case "isClosed":
+                    return cached == null || cached.physical.isClosed();
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + (cached == null ? "closed" : cached.physical) + "]";
+                default:
+                    if (cached == null)
+                        throw new SQLException("Statement is closed");
+                    try {
+                        return method.invoke(cached.physical, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+            }
+        }
+    }
+
+    private class Handle implements InvocationHandler {
+
+        private PooledConnection pooled;
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (pooled != null) {
+                        PooledConnection returned = pooled;
+                        pooled = null;
+                        release(returned);
+                    }
+                    return null;
+                case "isClosed":
+                    return pooled == null || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (pooled == null ? "closed" : pooled.physical) + "]";
+                default:
+                    if (pooled == null)
+                        throw new SQLException("Connection is closed");
+                    if (method.getName().equals("prepareStatement") && isCacheable(method)) {
+                        return pooled.prepare((Connection) proxy, (String) args[0],
+                                args.length == 2 ? (Integer) args[1] : null);
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+            }
+        }
+    }
+
+    private static boolean isCacheable(Method method) {
+        Class<?>[] parameters = method.getParameterTypes();
+        return parameters.length == 1 || (parameters.length == 2 && parameters[1] == int.class);
+    }
+
+    public static class Builder {
+
+        private final DataSource dataSource;
+        private int minSize = 1;
+        private int maxSize = 10;
+        private Duration idleTimeout = Duration.ofMinutes(5);
+        private Duration maxWait = Duration.ofSeconds(30);
+        private int statementCacheSize = 32;
+
+        public Builder(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        public Builder minSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public Builder maxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        public Builder statementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        public ConnectionPool build() {
+            return new ConnectionPool(this);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Room;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class DashboardService {
+
+    private static final String SNAPSHOT = "SELECT NUMBER, STATUS, CAST(NULL AS BIGINT) AS GUEST_ID FROM ROOM " +
+            "UNION ALL SELECT ROOM AS NUMBER, CAST(NULL AS VARCHAR(20)) AS STATUS, ID AS GUEST_ID " +
+            "FROM GUEST WHERE ROOM <> ''";
+
+    private final DataSource dataSource;
+    private final Map<String, Room.RoomStatus> roomStatuses = new HashMap<>();
+    private final Set<Long> guestsWithRoom = new HashSet<>();
+    private boolean loaded;
+    private boolean caching = true;
+    private int occupiedRooms;
+
+    public DashboardService(DataSource dataSource, RoomDao roomDao, GuestDao guestDao) {
+        this.dataSource = dataSource;
+        roomDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Room room) {
+                putRoom(room);
+            }
+
+            @Override
+            public void updated(Room room) {
+                putRoom(room);
+            }
+        });
+        guestDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Guest guest) {
+                putGuest(guest);
+            }
+
+            @Override
+            public void updated(Guest guest) {
+                putGuest(guest);
+            }
+
+            @Override
+            public void deleted(Guest guest) {
+                removeGuest(guest.getId());
+            }
+        });
+    }
+
+    // a shared database changes under the counters, without caching they are counted on every call
+    public synchronized void setCaching(boolean caching) {
+        this.caching = caching;
+    }
+
+    public synchronized DashboardStats getStats() {
+        if (!caching) {
+            invalidate();
+        }
+        if (!loaded) {
+            load();
+        }
+        return new DashboardStats(guestsWithRoom.size(), occupiedRooms, roomStatuses.size());
+    }
+
+    public synchronized void invalidate() {
+        loaded = false;
+        roomStatuses.clear();
+        guestsWithRoom.clear();
+        occupiedRooms = 0;
+    }
+
+    private void load() {
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement(SNAPSHOT);
+             var rs = st.executeQuery()) {
+            while (rs.next()) {
+                long guestId = rs.getLong("GUEST_ID");
+                if (rs.wasNull()) {
+                    setRoomStatus(rs.getString("NUMBER"), Room.RoomStatus.valueOf(rs.getString("STATUS")));
+                } else {
+                    guestsWithRoom.add(guestId);
+                }
+            }
+        } catch (SQLException ex) {
+            invalidate();
+            throw new DataAccessException("Failed to load dashboard stats", ex);
+        }
+        loaded = true;
+    }
+
+    private synchronized void putRoom(Room room) {
+        if (loaded) {
+            setRoomStatus(room.getKey(), room.getStatus());
+        }
+    }
+
+    private void setRoomStatus(String key, Room.RoomStatus status) {
+        if (roomStatuses.put(key, status) == Room.RoomStatus.OCCUPIED) {
+            occupiedRooms--;
+        }
+        if (status == Room.RoomStatus.OCCUPIED) {
+            occupiedRooms++;
+        }
+    }
+
+    private synchronized void putGuest(Guest guest) {
+        if (!loaded) {
+            return;
+        }
+        if (guest.getRoom() == null || guest.getRoom().isEmpty()) {
+            guestsWithRoom.remove(guest.getId());
+        } else {
+            guestsWithRoom.add(guest.getId());
+        }
+    }
+
+    private synchronized void removeGuest(Long id) {
+        if (loaded) {
+            guestsWithRoom.remove(id);
+        }
+    }
+}
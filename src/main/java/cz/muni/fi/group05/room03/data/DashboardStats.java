@@ -0,0 +1,31 @@
+package cz.muni.fi.group05.room03.data;
+
+public class DashboardStats {
+
+    private final int guestsWithRoom;
+    private final int occupiedRooms;
+    private final int rooms;
+
+    public DashboardStats(int guestsWithRoom, int occupiedRooms, int rooms) {
+        this.guestsWithRoom = guestsWithRoom;
+        this.occupiedRooms = occupiedRooms;
+        this.rooms = rooms;
+    }
+
+    public int getGuestsWithRoom() {
+        return guestsWithRoom;
+    }
+
+    public int getOccupiedRooms() {
+        return occupiedRooms;
+    }
+
+    public int getRooms() {
+        return rooms;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("guestsWithRoom=%d, occupiedRooms=%d, rooms=%d", guestsWithRoom, occupiedRooms, rooms);
+    }
+}
@@ -0,0 +1,20 @@
+package cz.muni.fi.group05.room03.data;
+
+import java.util.Locale;
+
+public enum DatabaseMode {
+    /** Database files opened directly by this JVM, only one workstation can use them. */
+    EMBEDDED,
+    /** Starts a network server in this JVM, or joins one already running, and connects to it as a client. */
+    SERVER,
+    /** Connects to a network server started by another workstation. */
+    CLIENT;
+
+    public static DatabaseMode of(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown database mode: " + value, ex);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package cz.muni.fi.group05.room03.data;
+
+import org.apache.derby.drda.NetworkServerControl;
+
+import java.net.InetAddress;
+import java.time.Duration;
+
+/**
+ * Derby network server shared by several front-desk workstations.
+ * A server that is already answering on the address is reused and left running on {@link #close()}.
+ */
+public class DatabaseServer implements AutoCloseable {
+
+    private static final long PING_INTERVAL_MILLIS = 100;
+
+    private final String address;
+    private final NetworkServerControl control;
+    private boolean owned;
+
+    public DatabaseServer(String host, int port) {
+        address = host + ":" + port;
+        try {
+            control = new NetworkServerControl(InetAddress.getByName(host), port);
+        } catch (Exception ex) {
+            throw new DataAccessException("Failed to configure database server " + address, ex);
+        }
+    }
+
+    /**
+     * Starts the server unless one is already running.
+     *
+     * @return whether this instance started the server
+     */
+    public synchronized boolean start(Duration timeout) {
+        if (owned || isRunning()) {
+            return false;
+        }
+        try {
+            control.start(null);
+        } catch (Exception ex) {
+            throw new DataAccessException("Failed to start database server " + address, ex);
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!isRunning()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new DataAccessException("Database server " + address + " did not start within " + timeout);
+            }
+            try {
+                Thread.sleep(PING_INTERVAL_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DataAccessException("Interrupted while starting database server " + address, ex);
+            }
+        }
+        owned = true;
+        return true;
+    }
+
+    public boolean isRunning() {
+        try {
+            control.ping();
+            return true;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!owned) {
+            return;
+        }
+        owned = false;
+        try {
+            control.shutdown();
+        } catch (Exception ex) {
+            throw new DataAccessException("Failed to stop database server " + address, ex);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package cz.muni.fi.group05.room03.data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Delivers committed entity changes to subscribers of the entity type on the delivery executor.
+ * Published entities are snapshots, so subscribers may keep them.
+ */
+public class DomainEventBus {
+
+    private final Executor deliveryExecutor;
+    private final Map<Class<?>, List<Consumer<?>>> subscribers = new ConcurrentHashMap<>();
+
+    public DomainEventBus(Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    public <T> void subscribe(Class<T> type, Consumer<EntityEvent<T>> subscriber) {
+        subscribers.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> void publish(EntityEvent<T> event) {
+        List<Consumer<?>> forType = subscribers.get(event.getType());
+        if (forType == null || forType.isEmpty()) {
+            return;
+        }
+        deliveryExecutor.execute(() -> forType.forEach(subscriber -> ((Consumer<EntityEvent<T>>) subscriber).accept(event)));
+    }
+
+    /**
+     * Returns a DAO listener publishing a snapshot of every change it is notified about.
+     */
+    public <T> EntityChangeListener<T> publisher(Class<T> type, UnaryOperator<T> snapshot) {
+        return new EntityChangeListener<>() {
+            @Override
+            public void created(T entity) {
+                publish(new EntityEvent<>(type, EntityEvent.Kind.CREATED, snapshot.apply(entity)));
+            }
+
+            @Override
+            public void updated(T entity) {
+                publish(new EntityEvent<>(type, EntityEvent.Kind.UPDATED, snapshot.apply(entity)));
+            }
+
+            @Override
+            public void deleted(T entity) {
+                publish(new EntityEvent<>(type, EntityEvent.Kind.DELETED, snapshot.apply(entity)));
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.Room;
+
+final class Entities {
+
+    private Entities() {
+    }
+
+    static Room copyOf(Room room) {
+        Room copy = new Room(room.getKey(), room.getType(), room.getBeds(), room.getStatus(), room.getPrice());
+        copy.setVersion(room.getVersion());
+        return copy;
+    }
+
+    static Guest copyOf(Guest guest) {
+        Guest copy = new Guest(guest.getName(), guest.getRoom(), guest.getIdCard(), guest.getGeneration(),
+                guest.getInfo(), guest.getReservationId(), guest.getId());
+        copy.setVersion(guest.getVersion());
+        return copy;
+    }
+
+    static Reservation copyOf(Reservation reservation) {
+        Reservation copy = new Reservation(reservation.getName(), reservation.getDateFrom(), reservation.getDateTo(),
+                reservation.getTelephone(), reservation.getEmail(), reservation.getPeople(), reservation.getInfo(),
+                reservation.getState(), reservation.getId());
+        copy.setVersion(reservation.getVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,13 @@
+package cz.muni.fi.group05.room03.data;
+
+public interface EntityChangeListener<T> {
+
+    default void created(T entity) {
+    }
+
+    default void updated(T entity) {
+    }
+
+    default void deleted(T entity) {
+    }
+}
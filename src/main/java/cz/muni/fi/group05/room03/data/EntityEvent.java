@@ -0,0 +1,35 @@
+package cz.muni.fi.group05.room03.data;
+
+public final class EntityEvent<T> {
+
+    public enum Kind {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Class<T> type;
+    private final Kind kind;
+    private final T entity;
+
+    public EntityEvent(Class<T> type, Kind kind, T entity) {
+        this.type = type;
+        this.kind = kind;
+        this.entity = entity;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public T getEntity() {
+        return entity;
+    }
+
+    @Override
+    public String toString() {
+        return type.getSimpleName() + " " + kind + ": " + entity;
+    }
+}
@@ -3,20 +3,46 @@ package cz.muni.fi.group05.room03.data;
 import cz.muni.fi.group05.room03.model.Guest;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 
 public class GuestDao {
 
+    private static final String INSERT =
+            "INSERT INTO GUEST (FULLNAME, ROOM, ID_CARD, AGE, INFO, RES_ID) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE =
+            "UPDATE GUEST SET FULLNAME = ?, ROOM = ?, ID_CARD = ?, AGE = ?, INFO = ?, RES_ID = ?, " +
+            "VERSION = VERSION + 1 WHERE ID = ? AND VERSION = ?";
+
     private final DataSource dataSource;
+    private final List<EntityChangeListener<Guest>> listeners = new CopyOnWriteArrayList<>();
+    private int fetchSize = 100;
 
     public GuestDao(DataSource dataSource) {
         this.dataSource = dataSource;
-        initTable();
+    }
+
+    public void addListener(EntityChangeListener<Guest> listener) {
+        listeners.add(listener);
+    }
+
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size must not be negative: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
     }
 
     public void create(Guest guest) {
@@ -25,25 +51,102 @@ public class GuestDao {
             return;
         }
         try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement(
-                     "INSERT INTO GUEST (FULLNAME, ROOM, ID_CARD, AGE, INFO, RES_ID) VALUES (?, ?, ?, ?, ?, ?)",
-                     RETURN_GENERATED_KEYS)) {
-            st.setString(1, guest.getName());
-            st.setString(2, guest.getRoom());
-            st.setString(3, guest.getIdCard());
-            st.setString(4, guest.getGeneration().name());
-            st.setString(5, guest.getInfo());
-            st.setLong(6, guest.getReservationId());
-            st.executeUpdate();
-            try (var rs = st.getGeneratedKeys()) {
-                if (rs.next()) {
-                    guest.setId(rs.getLong(1));
+             var st = connection.prepareStatement(INSERT, RETURN_GENERATED_KEYS)) {
+            guest.setId(insert(st, guest));
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to store guest " + guest, ex);
+        }
+        TransactionManager.afterRollback(() -> guest.setId(null));
+        TransactionManager.afterCommit(() -> listeners.forEach(listener -> listener.created(guest)));
+    }
+
+    public List<Long> createAll(List<Guest> guests) {
+        List<Long> ids = new ArrayList<>(guests.size());
+        List<Guest> updated = new ArrayList<>();
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (var insertSt = connection.prepareStatement(INSERT, RETURN_GENERATED_KEYS);
+                 var updateSt = connection.prepareStatement(UPDATE)) {
+                for (Guest guest : guests) {
+                    if (guest.getId() == null) {
+                        ids.add(insert(insertSt, guest));
+                    } else {
+                        setParameters(updateSt, guest);
+                        updateSt.setLong(7, guest.getId());
+                        updateSt.setInt(8, guest.getVersion());
+                        updateSt.addBatch();
+                        updated.add(guest);
+                        ids.add(guest.getId());
+                    }
+                }
+                int[] rowsChange = updateSt.executeBatch();
+                for (int i = 0; i < rowsChange.length; i++) {
+                    if (rowsChange[i] == 0) {
+                        throw updateFailure(connection, updated.get(i));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to store guests " + guests, ex);
+        }
+        List<Guest> inserted = new ArrayList<>();
+        for (int i = 0; i < guests.size(); i++) {
+            Guest guest = guests.get(i);
+            if (guest.getId() == null) {
+                guest.setId(ids.get(i));
+                inserted.add(guest);
+            }
+        }
+        updated.forEach(GuestDao::incrementVersion);
+        TransactionManager.afterRollback(() -> inserted.forEach(guest -> guest.setId(null)));
+        TransactionManager.afterCommit(() -> {
+            int nextUpdated = 0;
+            for (Guest guest : guests) {
+                if (nextUpdated < updated.size() && updated.get(nextUpdated) == guest) {
+                    nextUpdated++;
+                    listeners.forEach(listener -> listener.updated(guest));
                 } else {
-                    throw new DataAccessException("Failed to fetch generated key: no key returned for guest: " + guest);
+                    listeners.forEach(listener -> listener.created(guest));
                 }
             }
+        });
+        return ids;
+    }
+
+    private Long insert(PreparedStatement st, Guest guest) throws SQLException {
+        setParameters(st, guest);
+        st.executeUpdate();
+        try (var rs = st.getGeneratedKeys()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            throw new DataAccessException("Failed to fetch generated key: no key returned for guest: " + guest);
+        }
+    }
+
+    private void setParameters(PreparedStatement st, Guest guest) throws SQLException {
+        st.setString(1, guest.getName());
+        st.setString(2, guest.getRoom());
+        st.setString(3, guest.getIdCard());
+        st.setString(4, guest.getGeneration().name());
+        st.setString(5, guest.getInfo());
+        st.setLong(6, guest.getReservationId());
+    }
+
+    /**
+     * Locks the guest table until the current transaction ends, so a room availability check and the assignment
+     * based on it are not interleaved with assignments of other workstations.
+     */
+    public void lockTable() {
+        try (var connection = dataSource.getConnection();
+             var st = connection.createStatement()) {
+            st.execute("LOCK TABLE GUEST IN EXCLUSIVE MODE");
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to store guest " + guest, ex);
+            throw new DataAccessException("Failed to lock guest table", ex);
         }
     }
 
@@ -51,9 +154,9 @@ public class GuestDao {
         if (guest.getId() == null) {
             throw new IllegalArgumentException("Guest has null ID" + guest);
         }
-        try {
-            var connection = dataSource.getConnection();
-            var st = connection.prepareStatement("DELETE FROM GUEST WHERE ID =" + guest.getId());
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement("DELETE FROM GUEST WHERE ID = ?")) {
+            st.setLong(1, guest.getId());
             int rowsChange = st.executeUpdate();
             if (rowsChange == 0) {
                 throw new DataAccessException("Failed to delete non-existing guest: " + guest);
@@ -61,37 +164,33 @@ public class GuestDao {
         } catch (SQLException e) {
             throw new DataAccessException("Failed to delete guest: " + guest, e);
         }
+        TransactionManager.afterCommit(() -> listeners.forEach(listener -> listener.deleted(guest)));
     }
 
     public void update(Guest guest) {
         if (guest.getId() == null) {
             throw new IllegalArgumentException("Guest has null ID: " + guest);
         }
-        try {
-            var connection = dataSource.getConnection();
-            String name = guest.getName();
-            String room = guest.getRoom();
-            String idCard = guest.getIdCard();
-            String generation = guest.getGeneration().name();
-            String info = guest.getInfo();
-            Long resId = guest.getReservationId();
-            Long guestId = guest.getId();
-            var st = connection.prepareStatement("UPDATE GUEST SET " +
-                    "FULLNAME = " + "'" + name + "'" +
-                    ", ROOM = " + "'" + room + "'" +
-                    ", ID_CARD = " + "'" + idCard + "'" +
-                    ", AGE = " + "'" + generation + "'" +
-                    ", INFO = " + "'" + info +  "'" +
-                    ", RES_ID = " + resId +
-                    " WHERE ID = " + guestId
-            );
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement(UPDATE)) {
+            setParameters(st, guest);
+            st.setLong(7, guest.getId());
+            st.setInt(8, guest.getVersion());
             int rowsChange = st.executeUpdate();
             if (rowsChange == 0) {
-                throw new DataAccessException("Failed to update non-existing guest: " + guest);
+                throw updateFailure(connection, guest);
             }
         } catch (SQLException e) {
             throw new DataAccessException("Failed to update guest: " + guest, e);
         }
+        incrementVersion(guest);
+        TransactionManager.afterCommit(() -> listeners.forEach(listener -> listener.updated(guest)));
+    }
+
+    private static void incrementVersion(Guest guest) {
+        int version = guest.getVersion();
+        guest.setVersion(version + 1);
+        TransactionManager.afterRollback(() -> guest.setVersion(version));
     }
 
     public List<Guest> findAll() {
@@ -103,9 +202,15 @@ public class GuestDao {
         }
     }
 
+    public Stream<Guest> stream() {
+        return ResultSetStream.open(dataSource, "SELECT * FROM GUEST", fetchSize, this::getGuest,
+                "Failed to stream all guests");
+    }
+
     public List<Guest> findByRoomKey(String roomKey) {
         try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement("SELECT * FROM GUEST WHERE ROOM = '" + roomKey + "'")) {
+             var st = connection.prepareStatement("SELECT * FROM GUEST WHERE ROOM = ?")) {
+            st.setString(1, roomKey);
             return getGuests(st);
         } catch (SQLException ex) {
             throw new DataAccessException("Failed to load all guests", ex);
@@ -114,50 +219,95 @@ public class GuestDao {
 
     public List<Guest> findByResId(Long id) {
         try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement("SELECT * FROM GUEST WHERE RES_ID = " + id)) {
+             var st = connection.prepareStatement("SELECT * FROM GUEST WHERE RES_ID = ?")) {
+            st.setLong(1, id);
             return getGuests(st);
         } catch (SQLException ex) {
             throw new DataAccessException("Failed to load all guests", ex);
         }
     }
 
+    public List<Guest> findPage(Long afterId, int limit) {
+        return findPage(afterId, limit, null);
+    }
+
+    public List<Guest> findPage(Long afterId, int limit, Long resId) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        String sql = resId == null
+                ? "SELECT * FROM GUEST WHERE ID > ? ORDER BY ID FETCH FIRST ? ROWS ONLY"
+                : "SELECT * FROM GUEST WHERE ID > ? AND RES_ID = ? ORDER BY ID FETCH FIRST ? ROWS ONLY";
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement(sql)) {
+            int i = 1;
+            st.setLong(i++, afterId == null ? 0 : afterId);
+            if (resId != null) {
+                st.setLong(i++, resId);
+            }
+            st.setInt(i, limit);
+            return getGuests(st);
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to load guests after " + afterId, ex);
+        }
+    }
+
     private List<Guest> getGuests(PreparedStatement st) throws SQLException {
         List<Guest> guests = new ArrayList<>();
         try (var rs = st.executeQuery()) {
             while (rs.next()) {
-                Guest guest = new Guest(
-                        rs.getString("FULLNAME"),
-                        rs.getString("ROOM"),
-                        rs.getString("ID_CARD"),
-                        Guest.GuestGeneration.valueOf(rs.getString("AGE")),
-                        rs.getString("INFO"),
-                        rs.getLong("RES_ID"));
-                guest.setId(rs.getLong("ID"));
-                guests.add(guest);
+                guests.add(getGuest(rs));
             }
         }
         return guests;
     }
 
-    public int countAll() {
-        try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement("SELECT COUNT(*) AS count FROM GUEST")) {
-            int count = 0;
+    private Guest getGuest(ResultSet rs) throws SQLException {
+        Guest guest = new Guest(
+                rs.getString("FULLNAME"),
+                rs.getString("ROOM"),
+                rs.getString("ID_CARD"),
+                Guest.GuestGeneration.valueOf(rs.getString("AGE")),
+                rs.getString("INFO"),
+                rs.getLong("RES_ID"));
+        guest.setId(rs.getLong("ID"));
+        guest.setVersion(rs.getInt("VERSION"));
+        return guest;
+    }
+
+    private DataAccessException updateFailure(Connection connection, Guest guest) throws SQLException {
+        try (var st = connection.prepareStatement("SELECT VERSION FROM GUEST WHERE ID = ?")) {
+            st.setLong(1, guest.getId());
             try (var rs = st.executeQuery()) {
                 if (rs.next()) {
-                    count = rs.getInt("count");
+                    return new OptimisticLockException("Guest " + guest.getId() + " was modified concurrently, expected version "
+                            + guest.getVersion() + " but found " + rs.getInt("VERSION"));
                 }
             }
-            return count;
-        } catch (SQLException ex) {
-            throw new DataAccessException("Failed to count all guests", ex);
         }
+        return new DataAccessException("Failed to update non-existing guest: " + guest);
     }
 
-    public int countAllWithRoom() {
+    public Map<String, Integer> countByRoom() {
         try (var connection = dataSource.getConnection();
              var st = connection.prepareStatement(
-                     "SELECT COUNT(*) AS count FROM GUEST WHERE ROOM <> ''")) {
+                     "SELECT ROOM, COUNT(*) AS count FROM GUEST WHERE ROOM <> '' GROUP BY ROOM")) {
+            Map<String, Integer> counts = new HashMap<>();
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getString("ROOM"), rs.getInt("count"));
+                }
+            }
+            return counts;
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to count guests by room", ex);
+        }
+    }
+
+    public int countInRoom(String roomKey) {
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement("SELECT COUNT(*) AS count FROM GUEST WHERE ROOM = ?")) {
+            st.setString(1, roomKey);
             int count = 0;
             try (var rs = st.executeQuery()) {
                 if (rs.next()) {
@@ -166,39 +316,54 @@ public class GuestDao {
             }
             return count;
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to count guests with room", ex);
+            throw new DataAccessException("Failed to count guests in room " + roomKey, ex);
         }
     }
 
-    private void initTable() {
-        if (!tableExits("APP", "GUEST")) {
-            createTable();
+    public Set<String> findRoomKeysByResId(Long resId) {
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement("SELECT DISTINCT ROOM FROM GUEST WHERE RES_ID = ?")) {
+            st.setLong(1, resId);
+            Set<String> rooms = new HashSet<>();
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rooms.add(rs.getString("ROOM"));
+                }
+            }
+            return rooms;
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to load rooms of reservation " + resId, ex);
         }
     }
 
-    protected boolean tableExits(String schemaName, String tableName) {
+    public int countAll() {
         try (var connection = dataSource.getConnection();
-             var rs = connection.getMetaData().getTables(null, schemaName, tableName, null)) {
-            return rs.next();
+             var st = connection.prepareStatement("SELECT COUNT(*) AS count FROM GUEST")) {
+            int count = 0;
+            try (var rs = st.executeQuery()) {
+                if (rs.next()) {
+                    count = rs.getInt("count");
+                }
+            }
+            return count;
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to detect if the table " + schemaName + "." + tableName + " exist", ex);
+            throw new DataAccessException("Failed to count all guests", ex);
         }
     }
 
-    protected void createTable() {
+    public int countAllWithRoom() {
         try (var connection = dataSource.getConnection();
-             var st = connection.createStatement()) {
-            st.executeUpdate("CREATE TABLE APP.GUEST (" +
-                    "ID BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
-                    "FULLNAME VARCHAR(100) NOT NULL," +
-                    "ROOM VARCHAR(10) NOT NULL," +
-                    "ID_CARD VARCHAR(20) NOT NULL," +
-                    "AGE VARCHAR(20) NOT NULL CONSTRAINT GENERATION_CHECK CHECK (AGE IN ('ADULT', 'CHILD'))," +
-                    "INFO VARCHAR(1000)," +
-                    "RES_ID BIGINT" +
-                    ")");
+             var st = connection.prepareStatement(
+                     "SELECT COUNT(*) AS count FROM GUEST WHERE ROOM <> ''")) {
+            int count = 0;
+            try (var rs = st.executeQuery()) {
+                if (rs.next()) {
+                    count = rs.getInt("count");
+                }
+            }
+            return count;
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to create GUEST table", ex);
+            throw new DataAccessException("Failed to count guests with room", ex);
         }
     }
 
@@ -0,0 +1,244 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.Room;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory view of rooms, active reservations and in-house guests used as the read path of the UI.
+ * Writes still go through the DAOs, whose committed changes are applied here, and reads return copies.
+ */
+public class HotelRepository {
+
+    private final RoomDao roomDao;
+    private final GuestDao guestDao;
+    private final ReservationDao reservationDao;
+    private final Map<String, Room> rooms = new LinkedHashMap<>();
+    private final Map<Long, Reservation> reservations = new HashMap<>();
+    private final Map<Long, Guest> guests = new LinkedHashMap<>();
+    private final Map<String, Set<Long>> guestsByRoom = new HashMap<>();
+    private final Map<Long, Set<Long>> guestsByReservation = new HashMap<>();
+    private boolean loaded;
+    private boolean caching = true;
+
+    public HotelRepository(RoomDao roomDao, GuestDao guestDao, ReservationDao reservationDao) {
+        this.roomDao = roomDao;
+        this.guestDao = guestDao;
+        this.reservationDao = reservationDao;
+        roomDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Room room) {
+                applyRoom(room);
+            }
+
+            @Override
+            public void updated(Room room) {
+                applyRoom(room);
+            }
+        });
+        guestDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Guest guest) {
+                applyGuest(guest);
+            }
+
+            @Override
+            public void updated(Guest guest) {
+                applyGuest(guest);
+            }
+
+            @Override
+            public void deleted(Guest guest) {
+                applyGuestRemoval(guest.getId());
+            }
+        });
+        reservationDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Reservation reservation) {
+                applyReservation(reservation);
+            }
+
+            @Override
+            public void updated(Reservation reservation) {
+                applyReservation(reservation);
+            }
+
+            @Override
+            public void deleted(Reservation reservation) {
+                applyReservationRemoval(reservation.getId());
+            }
+        });
+    }
+
+    /**
+     * Without caching every read loads the state again, so writes of other workstations to a shared database
+     * are seen.
+     */
+    public synchronized void setCaching(boolean caching) {
+        this.caching = caching;
+    }
+
+    public synchronized Room findRoom(String key) {
+        ensureLoaded();
+        Room room = rooms.get(key);
+        return room == null ? null : Entities.copyOf(room);
+    }
+
+    public synchronized List<Room> findAllRooms() {
+        ensureLoaded();
+        List<Room> result = new ArrayList<>(rooms.size());
+        rooms.values().forEach(room -> result.add(Entities.copyOf(room)));
+        return result;
+    }
+
+    /**
+     * Returns the reservation with the given id, ended and canceled reservations are read from the database.
+     */
+    public Reservation findReservation(Long id) {
+        synchronized (this) {
+            ensureLoaded();
+            Reservation reservation = reservations.get(id);
+            if (reservation != null) {
+                return Entities.copyOf(reservation);
+            }
+        }
+        return reservationDao.findById(id);
+    }
+
+    public synchronized List<Guest> findAllGuests() {
+        ensureLoaded();
+        return copiesOf(guests.keySet());
+    }
+
+    public synchronized List<Guest> findGuestsInRoom(String roomKey) {
+        ensureLoaded();
+        return copiesOf(guestsByRoom.getOrDefault(roomKey, Set.of()));
+    }
+
+    public synchronized List<Guest> findGuestsInRooms(Collection<String> roomKeys) {
+        ensureLoaded();
+        List<Guest> result = new ArrayList<>();
+        roomKeys.forEach(roomKey -> result.addAll(copiesOf(guestsByRoom.getOrDefault(roomKey, Set.of()))));
+        return result;
+    }
+
+    public synchronized List<Guest> findGuestsByReservation(Long reservationId) {
+        ensureLoaded();
+        return copiesOf(guestsByReservation.getOrDefault(reservationId, Set.of()));
+    }
+
+    public synchronized int countGuestsInRoom(String roomKey) {
+        ensureLoaded();
+        return guestsByRoom.getOrDefault(roomKey, Set.of()).size();
+    }
+
+    /**
+     * Drops the cached state, the next read loads it again from the database.
+     */
+    public synchronized void invalidate() {
+        loaded = false;
+        rooms.clear();
+        reservations.clear();
+        guests.clear();
+        guestsByRoom.clear();
+        guestsByReservation.clear();
+    }
+
+    private void ensureLoaded() {
+        if (loaded && caching) {
+            return;
+        }
+        invalidate();
+        roomDao.findAll().forEach(this::putRoom);
+        reservationDao.getActiveIndex().findOverlapping(LocalDate.MIN, LocalDate.MAX)
+                .forEach(this::putReservation);
+        try (var all = guestDao.stream()) {
+            all.forEach(this::putGuest);
+        }
+        loaded = true;
+    }
+
+    private synchronized void applyRoom(Room room) {
+        if (loaded) {
+            putRoom(room);
+        }
+    }
+
+    private synchronized void applyGuest(Guest guest) {
+        if (loaded) {
+            putGuest(guest);
+        }
+    }
+
+    private synchronized void applyGuestRemoval(Long id) {
+        if (loaded) {
+            removeGuest(id);
+        }
+    }
+
+    private synchronized void applyReservation(Reservation reservation) {
+        if (loaded) {
+            putReservation(reservation);
+        }
+    }
+
+    private synchronized void applyReservationRemoval(Long id) {
+        if (loaded) {
+            reservations.remove(id);
+        }
+    }
+
+    private void putRoom(Room room) {
+        rooms.put(room.getKey(), Entities.copyOf(room));
+    }
+
+    private void putReservation(Reservation reservation) {
+        if (reservation.getState().isActive()) {
+            reservations.put(reservation.getId(), Entities.copyOf(reservation));
+        } else {
+            reservations.remove(reservation.getId());
+        }
+    }
+
+    private void putGuest(Guest guest) {
+        removeGuest(guest.getId());
+        Guest copy = Entities.copyOf(guest);
+        guests.put(copy.getId(), copy);
+        if (copy.getRoom() != null && !copy.getRoom().isEmpty()) {
+            guestsByRoom.computeIfAbsent(copy.getRoom(), key -> new LinkedHashSet<>()).add(copy.getId());
+        }
+        guestsByReservation.computeIfAbsent(copy.getReservationId(), key -> new LinkedHashSet<>()).add(copy.getId());
+    }
+
+    private void removeGuest(Long id) {
+        Guest guest = guests.remove(id);
+        if (guest == null) {
+            return;
+        }
+        removeFromIndex(guestsByRoom, guest.getRoom(), id);
+        removeFromIndex(guestsByReservation, guest.getReservationId(), id);
+    }
+
+    private static <K> void removeFromIndex(Map<K, Set<Long>> index, K key, Long id) {
+        Set<Long> ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private List<Guest> copiesOf(Collection<Long> ids) {
+        List<Guest> result = new ArrayList<>(ids.size());
+        ids.forEach(id -> result.add(Entities.copyOf(guests.get(id))));
+        return result;
+    }
+}
@@ -1,22 +1,76 @@
 package cz.muni.fi.group05.room03.data;
 
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.Room;
+import org.apache.derby.jdbc.ClientDataSource;
 import org.apache.derby.jdbc.EmbeddedDataSource;
+
 import javax.sql.DataSource;
+import java.awt.EventQueue;
+import java.time.Duration;
 
 public class HotelSystemDao {
 
     private static HotelSystemDao instance;
+    private final DatabaseServer databaseServer;
+    private final ConnectionPool connectionPool;
+    private final TransactionManager transactionManager;
     private final GuestDao guestDao;
     private final ReservationDao reservationDao;
     private final RoomDao roomDao;
     private final ImportantDataDao importantDataDao;
+    private final RoomAvailabilityService roomAvailabilityService;
+    private final CapacityService capacityService;
+    private final RoomOccupancyService roomOccupancyService;
+    private final DashboardService dashboardService;
+    private final HotelRepository repository;
+    private final DomainEventBus eventBus;
+    private final AsyncDataAccess async;
 
     private HotelSystemDao() {
-        final DataSource dataSource = createDataSource();
-        importantDataDao = new ImportantDataDao(dataSource);
-        roomDao = new RoomDao(dataSource);
-        guestDao = new GuestDao(dataSource);
-        reservationDao = new ReservationDao(dataSource);
+        DatabaseMode mode = DatabaseMode.of(System.getProperty("hotel.db.mode", "embedded"));
+        databaseServer = mode == DatabaseMode.SERVER ? startDatabaseServer() : null;
+        connectionPool = createConnectionPool(createDataSource(mode));
+        async = new AsyncDataAccess(EventQueue::invokeLater);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            async.close();
+            connectionPool.close();
+            if (databaseServer != null) {
+                databaseServer.close();
+            }
+        }));
+        new SchemaMigrator(connectionPool).migrate();
+        transactionManager = new TransactionManager(connectionPool);
+        // other workstations write to a shared database, so it is read directly instead of the in-memory caches
+        boolean shared = mode != DatabaseMode.EMBEDDED;
+        importantDataDao = new ImportantDataDao(transactionManager);
+        importantDataDao.setCaching(!shared);
+        importantDataDao.reload();
+        roomDao = new RoomDao(transactionManager);
+        guestDao = new GuestDao(transactionManager);
+        reservationDao = new ReservationDao(transactionManager);
+        reservationDao.setCaching(!shared);
+        roomOccupancyService = new RoomOccupancyService(roomDao, guestDao, reservationDao);
+        roomOccupancyService.setCaching(!shared);
+        if (shared) {
+            capacityService = new CapacityService(transactionManager);
+            roomAvailabilityService = new RoomAvailabilityService(transactionManager);
+        } else {
+            capacityService = new CapacityService(transactionManager, reservationDao);
+            roomAvailabilityService = new RoomAvailabilityService(transactionManager, roomOccupancyService);
+        }
+        dashboardService = new DashboardService(transactionManager, roomDao, guestDao);
+        dashboardService.setCaching(!shared);
+        repository = new HotelRepository(roomDao, guestDao, reservationDao);
+        repository.setCaching(!shared);
+        eventBus = new DomainEventBus(EventQueue::invokeLater);
+        roomDao.addListener(eventBus.publisher(Room.class, Entities::copyOf));
+        guestDao.addListener(eventBus.publisher(Guest.class, Entities::copyOf));
+        reservationDao.addListener(eventBus.publisher(Reservation.class, Entities::copyOf));
+        int fetchSize = Integer.getInteger("hotel.jdbc.fetchSize", 100);
+        guestDao.setFetchSize(fetchSize);
+        reservationDao.setFetchSize(fetchSize);
     }
 
     public static void create() {
@@ -41,17 +95,84 @@ public class HotelSystemDao {
         return getAssertedInstance().roomDao;
     }
 
+    public static RoomAvailabilityService getRoomAvailabilityService() {
+        return getAssertedInstance().roomAvailabilityService;
+    }
+
+    public static CapacityService getCapacityService() {
+        return getAssertedInstance().capacityService;
+    }
+
+    public static RoomOccupancyService getRoomOccupancyService() {
+        return getAssertedInstance().roomOccupancyService;
+    }
+
+    public static DashboardService getDashboardService() {
+        return getAssertedInstance().dashboardService;
+    }
+
+    public static HotelRepository getRepository() {
+        return getAssertedInstance().repository;
+    }
+
+    public static DomainEventBus getEventBus() {
+        return getAssertedInstance().eventBus;
+    }
+
+    public static TransactionManager getTransactionManager() {
+        return getAssertedInstance().transactionManager;
+    }
+
+    public static AsyncDataAccess getAsync() {
+        return getAssertedInstance().async;
+    }
+
+    public static PoolStatistics getPoolStatistics() {
+        return getAssertedInstance().connectionPool.getStatistics();
+    }
+
     private static HotelSystemDao getAssertedInstance() {
         if (instance == null)
             throw new UnsupportedOperationException("HotelSystemDao Error: HotelSystemDao is not yet created, call create() method first!");
         return instance;
     }
 
-    private DataSource createDataSource() {
-        String dbPath = System.getProperty("user.home") + "/hotel-evidence";
-        EmbeddedDataSource dataSource = new EmbeddedDataSource();
+    private DatabaseServer startDatabaseServer() {
+        DatabaseServer server = new DatabaseServer(getDatabaseHost(), getDatabasePort());
+        server.start(Duration.ofSeconds(Long.getLong("hotel.db.startTimeoutSeconds", 30)));
+        return server;
+    }
+
+    private DataSource createDataSource(DatabaseMode mode) {
+        String dbPath = System.getProperty("hotel.db.name", System.getProperty("user.home") + "/hotel-evidence");
+        if (mode == DatabaseMode.EMBEDDED) {
+            EmbeddedDataSource dataSource = new EmbeddedDataSource();
+            dataSource.setDatabaseName(dbPath);
+            dataSource.setCreateDatabase("create");
+            return dataSource;
+        }
+        ClientDataSource dataSource = new ClientDataSource();
+        dataSource.setServerName(getDatabaseHost());
+        dataSource.setPortNumber(getDatabasePort());
         dataSource.setDatabaseName(dbPath);
         dataSource.setCreateDatabase("create");
         return dataSource;
     }
+
+    private static String getDatabaseHost() {
+        return System.getProperty("hotel.db.host", "localhost");
+    }
+
+    private static int getDatabasePort() {
+        return Integer.getInteger("hotel.db.port", 1527);
+    }
+
+    private ConnectionPool createConnectionPool(DataSource dataSource) {
+        return new ConnectionPool.Builder(dataSource)
+                .minSize(Integer.getInteger("hotel.pool.minSize", 1))
+                .maxSize(Integer.getInteger("hotel.pool.maxSize", 8))
+                .idleTimeout(Duration.ofSeconds(Long.getLong("hotel.pool.idleTimeoutSeconds", 300)))
+                .maxWait(Duration.ofSeconds(Long.getLong("hotel.pool.maxWaitSeconds", 30)))
+                .build();
+    }
 }
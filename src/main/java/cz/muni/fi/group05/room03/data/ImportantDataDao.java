@@ -1,17 +1,27 @@
 package cz.muni.fi.group05.room03.data;
 
 import javax.sql.DataSource;
+import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 
 public class ImportantDataDao {
 
     private final DataSource dataSource;
+    private final AtomicReference<Map<String, String>> snapshot = new AtomicReference<>();
+    private volatile boolean caching = true;
 
     public ImportantDataDao(DataSource dataSource) {
         this.dataSource = dataSource;
-        initTable();
+    }
+
+    // settings changed by another workstation are only seen when every read goes to the database
+    public void setCaching(boolean caching) {
+        this.caching = caching;
     }
 
     public void create(String key, String value) {
@@ -25,14 +35,15 @@ public class ImportantDataDao {
         } catch (SQLException ex) {
             throw new DataAccessException("Failed to store data " + key, ex);
         }
+        TransactionManager.afterCommit(() -> swap(key, value));
     }
 
 
     public void update(String key, String value) {
-        try {
-            var connection = dataSource.getConnection();
-            String format = String.format("UPDATE DATA SET VALUE = '%s' WHERE NAME = '%s'", value, key);
-            var st = connection.prepareStatement(format);
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement("UPDATE DATA SET VALUE = ? WHERE NAME = ?")) {
+            st.setString(1, value);
+            st.setString(2, key);
             int rowsChange = st.executeUpdate();
             if (rowsChange == 0) {
                 throw new DataAccessException("Failed to update non-existing data: " + key);
@@ -40,51 +51,83 @@ public class ImportantDataDao {
         } catch (SQLException e) {
             throw new DataAccessException("Failed to update data", e);
         }
+        TransactionManager.afterCommit(() -> swap(key, value));
     }
 
-    public String findByKey(String key) {
+    private void swap(String key, String value) {
+        snapshot.updateAndGet(current -> {
+            if (current == null) {
+                return null;
+            }
+            Map<String, String> next = new HashMap<>(current);
+            next.put(key, value);
+            return Map.copyOf(next);
+        });
+    }
+
+    public void reload() {
         try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement(
-                     "SELECT VALUE FROM DATA WHERE NAME = " + "'"  + key + "'")) {
-            String value = null;
+             var st = connection.prepareStatement("SELECT NAME, VALUE FROM DATA")) {
+            Map<String, String> values = new HashMap<>();
             try (var rs = st.executeQuery()) {
-                if (rs.next()) {
-                    value = rs.getString("VALUE");
+                while (rs.next()) {
+                    values.put(rs.getString("NAME"), rs.getString("VALUE"));
                 }
             }
-            return value;
+            snapshot.set(Map.copyOf(values));
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to load data with key " + key, ex);
+            throw new DataAccessException("Failed to load all data", ex);
         }
     }
 
-    private void initTable() {
-        if (!tableExits("APP", "DATA")) {
-            createTable();
-            create("TAX", "2");
+    private Map<String, String> getSnapshot() {
+        Map<String, String> values = snapshot.get();
+        if (values == null || !caching) {
+            reload();
+            values = snapshot.get();
         }
+        return values;
     }
 
-    protected boolean tableExits(String schemaName, String tableName) {
-        try (var connection = dataSource.getConnection();
-             var rs = connection.getMetaData().getTables(null, schemaName, tableName, null)) {
-            return rs.next();
-        } catch (SQLException ex) {
-            throw new DataAccessException("Failed to detect if the table " + schemaName + "." + tableName + " exist", ex);
+    public String findByKey(String key) {
+        return getSnapshot().get(key);
+    }
+
+    public int getInt(String key) {
+        String value = getRequired(key);
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new DataAccessException("Data " + key + " is not an integer: " + value, ex);
         }
     }
 
-    protected void createTable() {
-        try (var connection = dataSource.getConnection();
-             var st = connection.createStatement()) {
-            st.executeUpdate("CREATE TABLE APP.DATA (" +
-                    "ID BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
-                    "NAME VARCHAR(20) NOT NULL," +
-                    "VALUE VARCHAR(20) NOT NULL" +
-                    ")");
-        } catch (SQLException ex) {
-            throw new DataAccessException("Failed to create DATA table", ex);
+    public BigDecimal getDecimal(String key) {
+        String value = getRequired(key);
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new DataAccessException("Data " + key + " is not a decimal: " + value, ex);
+        }
+    }
+
+    public boolean getBoolean(String key) {
+        String value = getRequired(key).trim();
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new DataAccessException("Data " + key + " is not a boolean: " + value);
+    }
+
+    private String getRequired(String key) {
+        String value = findByKey(key);
+        if (value == null) {
+            throw new DataAccessException("Missing data with key " + key);
         }
+        return value;
     }
 
     public void dropTable() {
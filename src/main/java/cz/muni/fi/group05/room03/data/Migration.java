@@ -0,0 +1,46 @@
+package cz.muni.fi.group05.room03.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class Migration {
+
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+
+    public Migration(int version, String description, String... statements) {
+        if (version < 1)
+            throw new IllegalArgumentException("Migration version must be positive");
+        this.version = version;
+        this.description = description;
+        this.statements = List.of(statements);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    public long getChecksum() {
+        CRC32 crc = new CRC32();
+        for (String statement : statements) {
+            crc.update(statement.getBytes(StandardCharsets.UTF_8));
+            crc.update(';');
+        }
+        return crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return "V" + version + " " + description;
+    }
+}
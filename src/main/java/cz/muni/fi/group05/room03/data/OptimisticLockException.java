@@ -0,0 +1,8 @@
+package cz.muni.fi.group05.room03.data;
+
+public class OptimisticLockException extends DataAccessException {
+
+    public OptimisticLockException(String msg) {
+        super(msg);
+    }
+}
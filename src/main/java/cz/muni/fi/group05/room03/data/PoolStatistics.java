@@ -0,0 +1,69 @@
+package cz.muni.fi.group05.room03.data;
+
+public class PoolStatistics {
+
+    private final int active;
+    private final int idle;
+    private final int maxSize;
+    private final long waitCount;
+    private final long totalWaitMillis;
+    private final long maxWaitMillis;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    public PoolStatistics(int active, int idle, int maxSize, long waitCount, long totalWaitMillis, long maxWaitMillis,
+                          long statementCacheHits, long statementCacheMisses) {
+        this.active = active;
+        this.idle = idle;
+        this.maxSize = maxSize;
+        this.waitCount = waitCount;
+        this.totalWaitMillis = totalWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getWaitCount() {
+        return waitCount;
+    }
+
+    public long getTotalWaitMillis() {
+        return totalWaitMillis;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public double getAverageWaitMillis() {
+        return waitCount == 0 ? 0 : (double) totalWaitMillis / waitCount;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d, idle=%d, max=%d, waits=%d, totalWait=%dms, maxWait=%dms, " +
+                        "statementCacheHits=%d, statementCacheMisses=%d",
+                active, idle, maxSize, waitCount, totalWaitMillis, maxWaitMillis,
+                statementCacheHits, statementCacheMisses);
+    }
+}
@@ -1,22 +1,66 @@
 package cz.muni.fi.group05.room03.data;
 
 import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.ReservationIntervalIndex;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
 import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 
 public class ReservationDao {
 
+    private static final String INSERT = "INSERT INTO RESERVATION " +
+            "(NAME, DATE_FROM, DATE_TO, TELEPHONE, EMAIL, PERSONS, INFO, STATE) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE = "UPDATE RESERVATION SET NAME = ?, DATE_FROM = ?, DATE_TO = ?, " +
+            "TELEPHONE = ?, EMAIL = ?, PERSONS = ?, INFO = ?, STATE = ?, VERSION = VERSION + 1 WHERE ID = ? AND VERSION = ?";
+    // columns of RESERVATION_ORDER_IDX, the default order of the reservation list
+    private static final List<String> ORDER_INDEX_KEYS = List.of("DUE_DATE", "STATE_ORDER", "ID");
+    private static final Set<String> NULLABLE_SORT_KEYS = Set.of("DUE_DATE");
+
     private final DataSource dataSource;
+    private final List<EntityChangeListener<Reservation>> listeners = new CopyOnWriteArrayList<>();
+    private final ReservationIntervalIndex activeIndex = new ReservationIntervalIndex();
+    private boolean activeIndexLoaded;
+    private boolean caching = true;
+    private int fetchSize = 100;
 
     public ReservationDao(DataSource dataSource) {
         this.dataSource = dataSource;
-        initTable();
+    }
+
+    public void addListener(EntityChangeListener<Reservation> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Without caching {@link #getActiveIndex()} loads the active reservations again on every call, so it sees
+     * reservations other workstations wrote to a shared database.
+     */
+    public void setCaching(boolean caching) {
+        this.caching = caching;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size must not be negative: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
     }
 
     public void create(Reservation reservation) {
@@ -25,39 +69,140 @@ public class ReservationDao {
             return;
         }
         try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement(
-                "INSERT INTO RESERVATION (NAME, DATE_FROM, DATE_TO, TELEPHONE, EMAIL, PERSONS, INFO, STATE) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", RETURN_GENERATED_KEYS)) {
-            st.setString(1, reservation.getName());
-            st.setDate(2, Date.valueOf(reservation.getDateFrom()));
-            st.setDate(3, Date.valueOf(reservation.getDateTo()));
-            st.setString(4, reservation.getTelephone());
-            st.setString(5, reservation.getEmail());
-            st.setInt(6, reservation.getPeople());
-            st.setString(7, reservation.getInfo());
-            st.setString(8, reservation.getState().name());
-            st.executeUpdate();
-            try (var rs = st.getGeneratedKeys()) {
-                if (rs.next()) {
-                    reservation.setId(rs.getLong(1));
+             var st = connection.prepareStatement(INSERT, RETURN_GENERATED_KEYS)) {
+            reservation.setId(insert(st, reservation));
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to store reservation " + reservation, ex);
+        }
+        TransactionManager.afterRollback(() -> reservation.setId(null));
+        TransactionManager.afterCommit(() -> {
+            reindex(List.of(reservation));
+            listeners.forEach(listener -> listener.created(reservation));
+        });
+    }
+
+    public List<Long> createAll(List<Reservation> reservations) {
+        List<Long> ids = new ArrayList<>(reservations.size());
+        List<Reservation> updated = new ArrayList<>();
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (var insertSt = connection.prepareStatement(INSERT, RETURN_GENERATED_KEYS);
+                 var updateSt = connection.prepareStatement(UPDATE)) {
+                for (Reservation reservation : reservations) {
+                    if (reservation.getId() == null) {
+                        ids.add(insert(insertSt, reservation));
+                    } else {
+                        setParameters(updateSt, reservation);
+                        updateSt.setLong(9, reservation.getId());
+                        updateSt.setInt(10, reservation.getVersion());
+                        updateSt.addBatch();
+                        updated.add(reservation);
+                        ids.add(reservation.getId());
+                    }
+                }
+                int[] rowsChange = updateSt.executeBatch();
+                for (int i = 0; i < rowsChange.length; i++) {
+                    if (rowsChange[i] == 0) {
+                        throw updateFailure(connection, updated.get(i));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to store reservations " + reservations, ex);
+        }
+        List<Reservation> inserted = new ArrayList<>();
+        for (int i = 0; i < reservations.size(); i++) {
+            Reservation reservation = reservations.get(i);
+            if (reservation.getId() == null) {
+                reservation.setId(ids.get(i));
+                inserted.add(reservation);
+            }
+        }
+        updated.forEach(ReservationDao::incrementVersion);
+        TransactionManager.afterRollback(() -> inserted.forEach(reservation -> reservation.setId(null)));
+        TransactionManager.afterCommit(() -> {
+            reindex(reservations);
+            int nextUpdated = 0;
+            for (Reservation reservation : reservations) {
+                if (nextUpdated < updated.size() && updated.get(nextUpdated) == reservation) {
+                    nextUpdated++;
+                    listeners.forEach(listener -> listener.updated(reservation));
                 } else {
-                    throw new DataAccessException(
-                            "Failed to fetch generated key: no key returned for reservation: " + reservation);
+                    listeners.forEach(listener -> listener.created(reservation));
                 }
             }
+        });
+        return ids;
+    }
+
+    public void updateAll(List<Reservation> reservations) {
+        if (reservations.stream().anyMatch(reservation -> reservation.getId() == null)) {
+            throw new IllegalArgumentException("Reservation has null ID: " + reservations);
+        }
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (var st = connection.prepareStatement(UPDATE)) {
+                for (Reservation reservation : reservations) {
+                    setParameters(st, reservation);
+                    st.setLong(9, reservation.getId());
+                    st.setInt(10, reservation.getVersion());
+                    st.addBatch();
+                }
+                int[] rowsChange = st.executeBatch();
+                for (int i = 0; i < rowsChange.length; i++) {
+                    if (rowsChange[i] == 0) {
+                        throw updateFailure(connection, reservations.get(i));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to store reservation " + reservation, ex);
+            throw new DataAccessException("Failed to update reservations " + reservations, ex);
+        }
+        reservations.forEach(ReservationDao::incrementVersion);
+        TransactionManager.afterCommit(() -> {
+            reindex(reservations);
+            reservations.forEach(reservation -> listeners.forEach(listener -> listener.updated(reservation)));
+        });
+    }
+
+    private Long insert(PreparedStatement st, Reservation reservation) throws SQLException {
+        setParameters(st, reservation);
+        st.executeUpdate();
+        try (var rs = st.getGeneratedKeys()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            throw new DataAccessException(
+                    "Failed to fetch generated key: no key returned for reservation: " + reservation);
         }
     }
 
+    private void setParameters(PreparedStatement st, Reservation reservation) throws SQLException {
+        st.setString(1, reservation.getName());
+        st.setDate(2, Date.valueOf(reservation.getDateFrom()));
+        st.setDate(3, Date.valueOf(reservation.getDateTo()));
+        st.setString(4, reservation.getTelephone());
+        st.setString(5, reservation.getEmail());
+        st.setInt(6, reservation.getPeople());
+        st.setString(7, reservation.getInfo());
+        st.setString(8, reservation.getState().name());
+    }
+
     public void delete(Reservation reservation) {
         if (reservation.getId() == null) {
             throw new IllegalArgumentException("Reservation has null ID" + reservation);
         }
-        try {
-            var connection = dataSource.getConnection();
-            var st = connection.prepareStatement("DELETE FROM RESERVATION WHERE ID =" +
-                    reservation.getId());
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement("DELETE FROM RESERVATION WHERE ID = ?")) {
+            st.setLong(1, reservation.getId());
             int rowsChange = st.executeUpdate();
             if (rowsChange == 0) {
                 throw new DataAccessException("Failed to delete non-existing reservation: " + reservation);
@@ -65,125 +210,460 @@ public class ReservationDao {
         } catch (SQLException e) {
             throw new DataAccessException("Failed to delete reservation: " + reservation, e);
         }
+        TransactionManager.afterCommit(() -> {
+            synchronized (activeIndex) {
+                activeIndex.remove(reservation.getId());
+            }
+            listeners.forEach(listener -> listener.deleted(reservation));
+        });
     }
 
     public void update(Reservation reservation) {
         if (reservation.getId() == null) {
             throw new IllegalArgumentException("Reservation has null ID: " + reservation);
         }
-        try {
-            var connection = dataSource.getConnection();
-            String name = reservation.getName();
-            Date dateFrom = Date.valueOf(reservation.getDateFrom());
-            Date dateTo = Date.valueOf(reservation.getDateTo());
-            String phoneNumber = reservation.getTelephone();
-            String mail = reservation.getEmail();
-            Integer numberOfPersons = reservation.getPeople();
-            String info = reservation.getInfo();
-            String state = reservation.getState().name();
-            Long id = reservation.getId();
-            var st = connection.prepareStatement("UPDATE RESERVATION SET " +
-                            "NAME = " + "'" + name + "'" +
-                            ", DATE_FROM = " + "'" + dateFrom + "'" +
-                            ", DATE_TO = " + "'" + dateTo + "'" +
-                            ", TELEPHONE = " + "'" + phoneNumber + "'" +
-                            ", EMAIL = " + "'" + mail +  "'" +
-                            ", PERSONS = " + numberOfPersons +
-                            ", INFO = " + "'" + info + "'" +
-                            ", STATE = " + "'" + state + "'" +
-                            " WHERE ID = " +  id
-                    );
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement(UPDATE)) {
+            setParameters(st, reservation);
+            st.setLong(9, reservation.getId());
+            st.setInt(10, reservation.getVersion());
             int rowsChange = st.executeUpdate();
             if (rowsChange == 0) {
-                throw new DataAccessException("Failed to update non-existing reservation: " + reservation);
+                throw updateFailure(connection, reservation);
             }
         } catch (SQLException e) {
             throw new DataAccessException("Failed to update reservation " + reservation, e);
         }
+        incrementVersion(reservation);
+        TransactionManager.afterCommit(() -> {
+            reindex(List.of(reservation));
+            listeners.forEach(listener -> listener.updated(reservation));
+        });
+    }
+
+    private static void incrementVersion(Reservation reservation) {
+        int version = reservation.getVersion();
+        reservation.setVersion(version + 1);
+        TransactionManager.afterRollback(() -> reservation.setVersion(version));
+    }
+
+    public ReservationIntervalIndex getActiveIndex() {
+        if (!caching) {
+            var index = new ReservationIntervalIndex();
+            loadActive(index);
+            return index;
+        }
+        synchronized (activeIndex) {
+            if (!activeIndexLoaded) {
+                loadActive(activeIndex);
+                activeIndexLoaded = true;
+            }
+            return activeIndex;
+        }
+    }
+
+    private void loadActive(ReservationIntervalIndex index) {
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement("SELECT * FROM RESERVATION WHERE STATE IN ('UPCOMING', 'DOING')")) {
+            getReservations(st).forEach(index::put);
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to load active reservations", ex);
+        }
+    }
+
+    /**
+     * Locks the reservation table until the current transaction ends, so a capacity check and the write based on
+     * it are not interleaved with bookings of other workstations.
+     */
+    public void lockTable() {
+        try (var connection = dataSource.getConnection();
+             var st = connection.createStatement()) {
+            st.execute("LOCK TABLE RESERVATION IN EXCLUSIVE MODE");
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to lock reservation table", ex);
+        }
+    }
+
+    private void reindex(List<Reservation> reservations) {
+        synchronized (activeIndex) {
+            if (!activeIndexLoaded) {
+                return;
+            }
+            for (Reservation reservation : reservations) {
+                if (reservation.getState().isActive()) {
+                    activeIndex.put(Entities.copyOf(reservation));
+                } else {
+                    activeIndex.remove(reservation.getId());
+                }
+            }
+        }
     }
 
     public List<Reservation> findAll() {
         try (var connection = dataSource.getConnection();
              var st = connection.prepareStatement("SELECT * FROM RESERVATION")) {
-            List<Reservation> reservations = new ArrayList<>();
-            try (var rs = st.executeQuery()) {
-                while (rs.next()) {
-                    Reservation reservation = new Reservation(
-                            rs.getString("NAME"),
-                            rs.getDate("DATE_FROM").toLocalDate(),
-                            rs.getDate("DATE_TO").toLocalDate(),
-                            rs.getString("TELEPHONE"),
-                            rs.getString("EMAIL"),
-                            rs.getInt("PERSONS"),
-                            rs.getString("INFO"),
-                            Reservation.ReservationState.valueOf(rs.getString("STATE")));
-                    reservation.setId(rs.getLong("ID"));
-                    reservations.add(reservation);
-                }
-            }
-            return reservations;
+            return getReservations(st);
         } catch (SQLException ex) {
             throw new DataAccessException("Failed to load all reservations", ex);
         }
     }
 
-    public Reservation findById(Long id) {
+    public Stream<Reservation> stream() {
+        return ResultSetStream.open(dataSource, "SELECT * FROM RESERVATION", fetchSize, this::getReservation,
+                "Failed to stream all reservations");
+    }
+
+    public void forEach(Consumer<? super Reservation> action) {
+        try (var reservations = stream()) {
+            reservations.forEach(action);
+        }
+    }
+
+    public List<Long> findIdsByState(Reservation.ReservationState state) {
         try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement("SELECT * FROM RESERVATION WHERE ID = " + id)) {
-            Reservation reservation = null;
+             var st = connection.prepareStatement("SELECT ID FROM RESERVATION WHERE STATE = ? ORDER BY ID")) {
+            st.setString(1, state.name());
+            List<Long> ids = new ArrayList<>();
             try (var rs = st.executeQuery()) {
-                if (rs.next()) {
-                    reservation = new Reservation(
-                            rs.getString("NAME"),
-                            rs.getDate("DATE_FROM").toLocalDate(),
-                            rs.getDate("DATE_TO").toLocalDate(),
-                            rs.getString("TELEPHONE"),
-                            rs.getString("EMAIL"),
-                            rs.getInt("PERSONS"),
-                            rs.getString("INFO"),
-                            Reservation.ReservationState.valueOf(rs.getString("STATE")));
-                    reservation.setId(rs.getLong("ID"));
+                while (rs.next()) {
+                    ids.add(rs.getLong("ID"));
                 }
             }
-            return reservation;
+            return ids;
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to load reservation with id: " + id, ex);
+            throw new DataAccessException("Failed to load ids of reservations with state " + state, ex);
         }
     }
 
-    private void initTable() {
-        if (!tableExits("APP", "RESERVATION")) {
-            createTable();
+    public List<Reservation> findPage(Long afterId, int limit) {
+        return findPage(afterId, limit, null, null, null);
+    }
+
+    public List<Reservation> findPage(Long afterId, int limit, Reservation.ReservationState state,
+                                      LocalDate from, LocalDate to) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        StringBuilder sql = new StringBuilder("SELECT * FROM RESERVATION WHERE ID > ?");
+        if (state != null) {
+            sql.append(" AND STATE = ?");
+        }
+        if (from != null) {
+            sql.append(" AND DATE_TO > ?");
+        }
+        if (to != null) {
+            sql.append(" AND DATE_FROM < ?");
+        }
+        sql.append(" ORDER BY ID FETCH FIRST ? ROWS ONLY");
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement(sql.toString())) {
+            int i = 1;
+            st.setLong(i++, afterId == null ? 0 : afterId);
+            if (state != null) {
+                st.setString(i++, state.name());
+            }
+            if (from != null) {
+                st.setDate(i++, Date.valueOf(from));
+            }
+            if (to != null) {
+                st.setDate(i++, Date.valueOf(to));
+            }
+            st.setInt(i, limit);
+            return getReservations(st);
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to load reservations after " + afterId, ex);
         }
     }
 
-    protected boolean tableExits(String schemaName, String tableName) {
+    public int count(ReservationQuery query) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM RESERVATION" + whereClause(query, parameters);
         try (var connection = dataSource.getConnection();
-             var rs = connection.getMetaData().getTables(null, schemaName, tableName, null)) {
-            return rs.next();
+             var st = connection.prepareStatement(sql)) {
+            setParameters(st, parameters);
+            try (var rs = st.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
         } catch (SQLException ex) {
-            throw new DataAccessException(
-                    "Failed to detect if the table " + schemaName + "." + tableName + " exist", ex);
+            throw new DataAccessException("Failed to count reservations matching '" + query.getSearch() + "'", ex);
+        }
+    }
+
+    public List<Reservation> findPage(ReservationQuery query, int offset, int limit) {
+        return findPage(query, null, offset, limit);
+    }
+
+    /**
+     * Returns at most {@code limit} reservations matching the query, skipping the first {@code offset} of them.
+     * Reservations equal in the requested order are ordered by id, so pages never overlap.
+     * <p>
+     * {@code previousId} is the id of the reservation just before the page, {@code null} when it is not known.
+     * Ordered by id or by days to perform and state, the page then continues after it along an index. Otherwise
+     * the offset rows are skipped one by one, so pages far from the start take longer.
+     */
+    public List<Reservation> findPage(ReservationQuery query, Long previousId, int offset, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Page offset must not be negative: " + offset);
+        }
+        try (var connection = dataSource.getConnection()) {
+            // ids of the page come from an index when the order has one, only the page itself is read from the table
+            Map<String, Boolean> seekKeys = seekKeys(query);
+            List<Long> ids = previousId == null || seekKeys == null ? null
+                    : findIdsAfter(connection, query, seekKeys, previousId, limit);
+            if (ids == null) {
+                ids = findIds(connection, query, offset, limit);
+            }
+            if (ids.isEmpty()) {
+                return new ArrayList<>();
+            }
+            Map<Long, Reservation> reservations = new HashMap<>();
+            try (var st = connection.prepareStatement("SELECT * FROM RESERVATION WHERE ID IN ("
+                    + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")")) {
+                for (int i = 0; i < ids.size(); i++) {
+                    st.setLong(i + 1, ids.get(i));
+                }
+                getReservations(st).forEach(reservation -> reservations.put(reservation.getId(), reservation));
+            }
+            List<Reservation> page = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                Reservation reservation = reservations.get(id);
+                if (reservation != null) {
+                    page.add(reservation);
+                }
+            }
+            return page;
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to load reservations from " + offset, ex);
+        }
+    }
+
+    private List<Long> findIds(Connection connection, ReservationQuery query, int offset, int limit)
+            throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        String sql = "SELECT ID FROM RESERVATION" + whereClause(query, parameters) + orderByClause(query)
+                + " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+        parameters.add(offset);
+        parameters.add(limit);
+        List<Long> ids = new ArrayList<>(limit);
+        addIds(connection, sql, parameters, ids);
+        return ids;
+    }
+
+    /**
+     * Returns ids of the reservations following the previous one, or {@code null} when it does not exist anymore.
+     * The rows after it are the rows equal to it in all keys before some key and following it in that key, they are
+     * read one range after another, starting with the ranges closest to it.
+     */
+    private List<Long> findIdsAfter(Connection connection, ReservationQuery query, Map<String, Boolean> seekKeys,
+                                    long previousId, int limit) throws SQLException {
+        List<String> columns = new ArrayList<>(seekKeys.keySet());
+        List<Object> values = new ArrayList<>(columns.size());
+        try (var st = connection.prepareStatement("SELECT " + String.join(", ", columns)
+                + " FROM RESERVATION WHERE ID = ?")) {
+            st.setLong(1, previousId);
+            try (var rs = st.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                for (int i = 1; i <= columns.size(); i++) {
+                    values.add(rs.getObject(i));
+                }
+            }
+        }
+        List<Object> searchParameters = new ArrayList<>();
+        String where = whereClause(query, searchParameters);
+        String orderBy = orderByClause(query);
+        List<Long> ids = new ArrayList<>(limit);
+        for (int key = columns.size() - 1; key >= 0 && ids.size() < limit; key--) {
+            StringBuilder prefix = new StringBuilder(where.isEmpty() ? " WHERE " : where + " AND ");
+            List<Object> prefixParameters = new ArrayList<>(searchParameters);
+            for (int i = 0; i < key; i++) {
+                if (values.get(i) == null) {
+                    prefix.append(columns.get(i)).append(" IS NULL AND ");
+                } else {
+                    prefix.append(columns.get(i)).append(" = ? AND ");
+                    prefixParameters.add(values.get(i));
+                }
+            }
+            String column = columns.get(key);
+            Object value = values.get(key);
+            boolean ascending = seekKeys.get(column);
+            // NULL sorts after every value, it follows them in ascending order and precedes them in descending
+            List<String> ranges = new ArrayList<>();
+            if (value != null) {
+                ranges.add(column + (ascending ? " > ?" : " < ?"));
+                if (ascending && NULLABLE_SORT_KEYS.contains(column)) {
+                    ranges.add(column + " IS NULL");
+                }
+            } else if (!ascending) {
+                ranges.add(column + " IS NOT NULL");
+            }
+            for (String range : ranges) {
+                if (ids.size() == limit) {
+                    break;
+                }
+                List<Object> parameters = new ArrayList<>(prefixParameters);
+                if (range.endsWith("?")) {
+                    parameters.add(value);
+                }
+                parameters.add(limit - ids.size());
+                addIds(connection, "SELECT ID FROM RESERVATION" + prefix + range + orderBy
+                        + " FETCH FIRST ? ROWS ONLY", parameters, ids);
+            }
+        }
+        return ids;
+    }
+
+    private static void addIds(Connection connection, String sql, List<Object> parameters, List<Long> ids)
+            throws SQLException {
+        try (var st = connection.prepareStatement(sql)) {
+            setParameters(st, parameters);
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
         }
     }
 
-    protected void createTable() {
+    private static void setParameters(PreparedStatement st, List<Object> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            st.setObject(i + 1, parameters.get(i));
+        }
+    }
+
+    /**
+     * Returns the sort columns mapped to {@code true} for ascending order when an index walks the rows in that
+     * order, {@code null} otherwise.
+     */
+    private static Map<String, Boolean> seekKeys(ReservationQuery query) {
+        Map<String, Boolean> keys = new LinkedHashMap<>();
+        query.getOrder().forEach((field, ascending) -> keys.put(sortExpression(field), ascending));
+        keys.putIfAbsent("ID", true);
+        if (keys.keySet().equals(Set.of("ID"))) {
+            return keys;
+        }
+        boolean ascending = !keys.containsValue(false);
+        return ascending && new ArrayList<>(keys.keySet()).equals(ORDER_INDEX_KEYS) ? keys : null;
+    }
+
+    private static String orderByClause(ReservationQuery query) {
+        StringBuilder orderBy = new StringBuilder();
+        query.getOrder().forEach((field, ascending) -> orderBy.append(sortExpression(field))
+                .append(ascending ? " ASC, " : " DESC, "));
+        if (!query.getOrder().containsKey(ReservationQuery.Field.ID)) {
+            orderBy.append("ID, ");
+        }
+        return " ORDER BY " + orderBy.substring(0, orderBy.length() - 2);
+    }
+
+    private static String whereClause(ReservationQuery query, List<Object> parameters) {
+        String search = query.getSearch().toLowerCase();
+        if (search.isEmpty()) {
+            return "";
+        }
+        String pattern = "%" + search.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        List<String> conditions = new ArrayList<>();
+        for (ReservationQuery.Field field : query.getSearchFields()) {
+            if (field == ReservationQuery.Field.STATE) {
+                List<Reservation.ReservationState> states = query.getSearchStates();
+                if (!states.isEmpty()) {
+                    conditions.add("STATE IN (" + String.join(", ", Collections.nCopies(states.size(), "?")) + ")");
+                    states.forEach(state -> parameters.add(state.name()));
+                }
+            } else if (field != ReservationQuery.Field.DAYS_TO_PERFORM) {
+                conditions.add(searchExpression(field) + " LIKE ? ESCAPE '\\'");
+                parameters.add(pattern);
+            }
+        }
+        return conditions.isEmpty() ? " WHERE 1 = 0" : " WHERE (" + String.join(" OR ", conditions) + ")";
+    }
+
+    private static String searchExpression(ReservationQuery.Field field) {
+        switch (field) {
+            case DATE_FROM:
+            case DATE_TO:
+                return "CAST(" + field.name() + " AS CHAR(10))";
+            case PEOPLE:
+                return "CAST(PERSONS AS CHAR(11))";
+            case ID:
+            case VERSION:
+                return "CAST(" + field.name() + " AS CHAR(20))";
+            default:
+                return "LOWER(" + field.name() + ")";
+        }
+    }
+
+    private static String sortExpression(ReservationQuery.Field field) {
+        switch (field) {
+            case PEOPLE:
+                return "PERSONS";
+            case STATE:
+                return "STATE_ORDER";
+            case DAYS_TO_PERFORM:
+                // reservations without a due date sort last, as their Integer.MAX_VALUE days do
+                return "DUE_DATE";
+            default:
+                return field.name();
+        }
+    }
+
+    private List<Reservation> getReservations(PreparedStatement st) throws SQLException {
+        List<Reservation> reservations = new ArrayList<>();
+        try (var rs = st.executeQuery()) {
+            while (rs.next()) {
+                reservations.add(getReservation(rs));
+            }
+        }
+        return reservations;
+    }
+
+    private Reservation getReservation(ResultSet rs) throws SQLException {
+        Reservation reservation = new Reservation(
+                rs.getString("NAME"),
+                rs.getDate("DATE_FROM").toLocalDate(),
+                rs.getDate("DATE_TO").toLocalDate(),
+                rs.getString("TELEPHONE"),
+                rs.getString("EMAIL"),
+                rs.getInt("PERSONS"),
+                rs.getString("INFO"),
+                Reservation.ReservationState.valueOf(rs.getString("STATE")));
+        reservation.setId(rs.getLong("ID"));
+        reservation.setVersion(rs.getInt("VERSION"));
+        return reservation;
+    }
+
+    private DataAccessException updateFailure(Connection connection, Reservation reservation) throws SQLException {
+        try (var st = connection.prepareStatement("SELECT VERSION FROM RESERVATION WHERE ID = ?")) {
+            st.setLong(1, reservation.getId());
+            try (var rs = st.executeQuery()) {
+                if (rs.next()) {
+                    return new OptimisticLockException("Reservation " + reservation.getId()
+                            + " was modified concurrently, expected version " + reservation.getVersion()
+                            + " but found " + rs.getInt("VERSION"));
+                }
+            }
+        }
+        return new DataAccessException("Failed to update non-existing reservation: " + reservation);
+    }
+
+    public Reservation findById(Long id) {
         try (var connection = dataSource.getConnection();
-             var st = connection.createStatement()) {
-            st.executeUpdate("CREATE TABLE APP.RESERVATION (" +
-                    "ID BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
-                    "NAME VARCHAR(100) NOT NULL," +
-                    "DATE_FROM DATE NOT NULL," +
-                    "DATE_TO DATE NOT NULL," +
-                    "TELEPHONE VARCHAR(20) NOT NULL," +
-                    "EMAIL VARCHAR(50)," +
-                    "PERSONS INT NOT NULL," +
-                    "INFO VARCHAR(1000)," +
-                    "STATE VARCHAR(20) NOT NULL CONSTRAINT " +
-                    "STATE_CHECK CHECK (STATE IN ('UPCOMING', 'DOING', 'CANCELED', 'ENDED'))" +
-                    ")");
+             var st = connection.prepareStatement("SELECT * FROM RESERVATION WHERE ID = ?")) {
+            st.setLong(1, id);
+            Reservation reservation = null;
+            try (var rs = st.executeQuery()) {
+                if (rs.next()) {
+                    reservation = getReservation(rs);
+                }
+            }
+            return reservation;
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to create RESERVATION table", ex);
+            throw new DataAccessException("Failed to load reservation with id: " + id, ex);
         }
     }
 
@@ -0,0 +1,73 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Reservation;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search text and order of reservations read page by page. Fields are translated to SQL by {@link ReservationDao}.
+ */
+public class ReservationQuery {
+
+    private String search = "";
+    private List<Field> searchFields = List.of();
+    private List<Reservation.ReservationState> searchStates = List.of();
+    private final Map<Field, Boolean> order = new LinkedHashMap<>();
+
+    public ReservationQuery search(String text, Collection<Field> fields) {
+        search = text == null ? "" : text;
+        searchFields = List.copyOf(fields);
+        return this;
+    }
+
+    /**
+     * Sets states matched by the search text when {@link Field#STATE} is searched. States are shown by their
+     * translated names, so the caller decides which of them the text matches.
+     */
+    public ReservationQuery searchStates(Collection<Reservation.ReservationState> states) {
+        searchStates = List.copyOf(states);
+        return this;
+    }
+
+    public ReservationQuery orderBy(Field field, boolean ascending) {
+        order.put(field, ascending);
+        return this;
+    }
+
+    public String getSearch() {
+        return search;
+    }
+
+    public List<Field> getSearchFields() {
+        return searchFields;
+    }
+
+    public List<Reservation.ReservationState> getSearchStates() {
+        return searchStates;
+    }
+
+    /**
+     * Returns fields to order by mapped to {@code true} for ascending order.
+     */
+    public Map<Field, Boolean> getOrder() {
+        return order;
+    }
+
+    public enum Field {
+
+        NAME,
+        DATE_FROM,
+        DATE_TO,
+        TELEPHONE,
+        EMAIL,
+        PEOPLE,
+        INFO,
+        STATE,
+        DAYS_TO_PERFORM,
+        ID,
+        VERSION
+    }
+}
@@ -0,0 +1,93 @@
+package cz.muni.fi.group05.room03.data;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+final class ResultSetStream {
+
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private ResultSetStream() {
+    }
+
+    static <T> Stream<T> open(DataSource dataSource, String sql, int fetchSize, RowMapper<T> mapper,
+                              String errorMessage) {
+        Connection connection = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            connection = dataSource.getConnection();
+            st = connection.prepareStatement(sql);
+            st.setFetchSize(fetchSize);
+            rs = st.executeQuery();
+        } catch (SQLException ex) {
+            var failure = new DataAccessException(errorMessage, ex);
+            try {
+                close(rs, st, connection);
+            } catch (DataAccessException closeFailure) {
+                failure.addSuppressed(closeFailure);
+            }
+            throw failure;
+        }
+        var cursor = new Cursor<>(rs, mapper, errorMessage);
+        var resources = new AutoCloseable[]{rs, st, connection};
+        return StreamSupport.stream(cursor, false).onClose(() -> close(resources));
+    }
+
+    private static void close(AutoCloseable... resources) {
+        DataAccessException failure = null;
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception ex) {
+                if (failure == null) {
+                    failure = new DataAccessException("Failed to close result set stream", ex);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private final String errorMessage;
+
+        private Cursor(ResultSet rs, RowMapper<T> mapper, String errorMessage) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+            this.rs = rs;
+            this.mapper = mapper;
+            this.errorMessage = errorMessage;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (!rs.next()) {
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException ex) {
+                throw new DataAccessException(errorMessage, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package cz.muni.fi.group05.room03.data;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RoomAvailabilityService {
+
+    private static final String ACTIVE_STAY = "SELECT DATE_FROM, DATE_TO FROM RESERVATION " +
+            "WHERE ID = ? AND STATE IN ('UPCOMING', 'DOING')";
+    private static final String ASSIGNABLE_ROOMS = "SELECT R.NUMBER FROM ROOM R LEFT JOIN GUEST G ON G.ROOM = R.NUMBER " +
+            "LEFT JOIN RESERVATION O ON O.ID = G.RES_ID AND O.ID <> ? AND O.STATE IN ('UPCOMING', 'DOING') " +
+            "AND O.DATE_FROM < ? AND O.DATE_TO > ? " +
+            "GROUP BY R.NUMBER, R.NUMBER_OF_BEDS " +
+            "HAVING COUNT(G.ID) + CAST(? AS INT) <= R.NUMBER_OF_BEDS AND COUNT(O.ID) = 0 " +
+            "ORDER BY R.NUMBER";
+
+    private final DataSource dataSource;
+    private final RoomOccupancyService occupancyService;
+    private final Clock clock;
+
+    public RoomAvailabilityService(DataSource dataSource) {
+        this(dataSource, null, Clock.systemDefaultZone());
+    }
+
+    // with an occupancy service the rooms come from its calendar instead of the aggregated query
+    public RoomAvailabilityService(DataSource dataSource, RoomOccupancyService occupancyService) {
+        this(dataSource, occupancyService, Clock.systemDefaultZone());
+    }
+
+    public RoomAvailabilityService(DataSource dataSource, RoomOccupancyService occupancyService, Clock clock) {
+        this.dataSource = dataSource;
+        this.occupancyService = occupancyService;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns rooms with beds for {@code partySize} more guests of the reservation whose other guests do not belong
+     * to an active reservation staying there during the rest of its stay, the same answer as
+     * {@link RoomOccupancyService#findAssignableRooms(Long, int)}.
+     */
+    public List<String> findAssignableRooms(Long resId, int partySize) {
+        if (resId == null) {
+            throw new IllegalArgumentException("Reservation has null ID");
+        }
+        if (occupancyService != null) {
+            return occupancyService.findAssignableRooms(resId, partySize);
+        }
+        try (var connection = dataSource.getConnection()) {
+            return findAssignableRooms(connection, resId, partySize);
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to load assignable rooms for reservation " + resId, ex);
+        }
+    }
+
+    private List<String> findAssignableRooms(Connection connection, Long resId, int partySize) throws SQLException {
+        LocalDate from;
+        LocalDate to;
+        try (var st = connection.prepareStatement(ACTIVE_STAY)) {
+            st.setLong(1, resId);
+            try (var rs = st.executeQuery()) {
+                if (!rs.next()) {
+                    return List.of();
+                }
+                LocalDate today = LocalDate.now(clock);
+                LocalDate dateFrom = rs.getDate("DATE_FROM").toLocalDate();
+                from = dateFrom.isBefore(today) ? today : dateFrom;
+                to = rs.getDate("DATE_TO").toLocalDate();
+            }
+        }
+        List<String> rooms = new ArrayList<>();
+        try (var st = connection.prepareStatement(ASSIGNABLE_ROOMS)) {
+            st.setLong(1, resId);
+            // a stay without nights left overlaps nothing, the NULL bounds match no other reservation
+            if (from.isBefore(to)) {
+                st.setDate(2, Date.valueOf(to));
+                st.setDate(3, Date.valueOf(from));
+            } else {
+                st.setNull(2, Types.DATE);
+                st.setNull(3, Types.DATE);
+            }
+            st.setInt(4, partySize);
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rooms.add(rs.getString("NUMBER"));
+                }
+            }
+        }
+        return rooms;
+    }
+}
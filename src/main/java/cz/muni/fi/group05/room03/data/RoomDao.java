@@ -3,51 +3,142 @@ package cz.muni.fi.group05.room03.data;
 import cz.muni.fi.group05.room03.model.Room;
 
 import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-
-import static java.sql.Statement.RETURN_GENERATED_KEYS;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class RoomDao {
 
+    private static final String INSERT =
+            "INSERT INTO ROOM (NUMBER, TYPE, NUMBER_OF_BEDS, STATUS, PRICE) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE =
+            "UPDATE ROOM SET TYPE = ?, NUMBER_OF_BEDS = ?, STATUS = ?, PRICE = ?, VERSION = VERSION + 1 " +
+            "WHERE NUMBER = ? AND VERSION = ?";
+
     private final DataSource dataSource;
+    private final List<EntityChangeListener<Room>> listeners = new CopyOnWriteArrayList<>();
 
     public RoomDao(DataSource dataSource) {
         this.dataSource = dataSource;
-        initTable();
+    }
+
+    public void addListener(EntityChangeListener<Room> listener) {
+        listeners.add(listener);
     }
 
     public void create(Room room) {
         try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement(
-                     "INSERT INTO ROOM (NUMBER, TYPE, NUMBER_OF_BEDS, STATUS, PRICE) VALUES (?, ?, ?, ?, ?)",
-                     RETURN_GENERATED_KEYS)) {
-            st.setString(1, room.getKey());
-            st.setString(2, room.getType().name());
-            st.setInt(3, room.getBeds());
-            st.setString(4, room.getStatus().name());
-            st.setString(5, room.getPrice().toString());
+             var st = connection.prepareStatement(INSERT)) {
+            setInsertParameters(st, room);
             st.executeUpdate();
         } catch (SQLException ex) {
             throw new DataAccessException("Failed to store room " + room, ex);
         }
+        TransactionManager.afterCommit(() -> listeners.forEach(listener -> listener.created(room)));
+    }
+
+    public void createAll(List<Room> rooms) {
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (var st = connection.prepareStatement(INSERT)) {
+                for (Room room : rooms) {
+                    setInsertParameters(st, room);
+                    st.addBatch();
+                }
+                st.executeBatch();
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to store rooms " + rooms, ex);
+        }
+        TransactionManager.afterCommit(() -> rooms.forEach(room -> listeners.forEach(listener -> listener.created(room))));
     }
 
     public void update(Room room) {
-        try {
-            var connection = dataSource.getConnection();
-            String format = String.format("UPDATE ROOM SET NUMBER = '%s', TYPE = '%s'" +
-                            ", NUMBER_OF_BEDS = %d, STATUS = '%s', PRICE = '%s' WHERE NUMBER = '%s'",
-                    room.getKey(), room.getType().name(), room.getBeds(), room.getStatus().name(), room.getPrice().toString(), room.getKey());
-            var st = connection.prepareStatement(format);
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement(UPDATE)) {
+            setUpdateParameters(st, room);
             int rowsChange = st.executeUpdate();
             if (rowsChange == 0) {
-                throw new DataAccessException("Failed to update non-existing room: " + room);
+                throw updateFailure(connection, room);
             }
         } catch (SQLException e) {
             throw new DataAccessException("Failed to update room", e);
         }
+        incrementVersion(room);
+        TransactionManager.afterCommit(() -> listeners.forEach(listener -> listener.updated(room)));
+    }
+
+    public void updateAll(List<Room> rooms) {
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (var st = connection.prepareStatement(UPDATE)) {
+                for (Room room : rooms) {
+                    setUpdateParameters(st, room);
+                    st.addBatch();
+                }
+                int[] rowsChange = st.executeBatch();
+                for (int i = 0; i < rowsChange.length; i++) {
+                    if (rowsChange[i] == 0) {
+                        throw updateFailure(connection, rooms.get(i));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to update rooms", e);
+        }
+        rooms.forEach(RoomDao::incrementVersion);
+        TransactionManager.afterCommit(() -> rooms.forEach(room -> listeners.forEach(listener -> listener.updated(room))));
+    }
+
+    private static void incrementVersion(Room room) {
+        int version = room.getVersion();
+        room.setVersion(version + 1);
+        TransactionManager.afterRollback(() -> room.setVersion(version));
+    }
+
+    private void setInsertParameters(PreparedStatement st, Room room) throws SQLException {
+        st.setString(1, room.getKey());
+        st.setString(2, room.getType().name());
+        st.setInt(3, room.getBeds());
+        st.setString(4, room.getStatus().name());
+        st.setBigDecimal(5, BigDecimal.valueOf(room.getPrice()));
+    }
+
+    private void setUpdateParameters(PreparedStatement st, Room room) throws SQLException {
+        st.setString(1, room.getType().name());
+        st.setInt(2, room.getBeds());
+        st.setString(3, room.getStatus().name());
+        st.setBigDecimal(4, BigDecimal.valueOf(room.getPrice()));
+        st.setString(5, room.getKey());
+        st.setInt(6, room.getVersion());
+    }
+
+    private DataAccessException updateFailure(Connection connection, Room room) throws SQLException {
+        try (var st = connection.prepareStatement("SELECT VERSION FROM ROOM WHERE NUMBER = ?")) {
+            st.setString(1, room.getKey());
+            try (var rs = st.executeQuery()) {
+                if (rs.next()) {
+                    return new OptimisticLockException("Room " + room.getKey() + " was modified concurrently, expected version "
+                            + room.getVersion() + " but found " + rs.getInt("VERSION"));
+                }
+            }
+        }
+        return new DataAccessException("Failed to update non-existing room: " + room);
     }
 
     public List<Room> findAll() {
@@ -56,14 +147,7 @@ public class RoomDao {
             List<Room> rooms = new ArrayList<>();
             try (var rs = st.executeQuery()) {
                 while (rs.next()) {
-                    Room room = new Room(
-                            rs.getString("NUMBER"),
-                            Room.RoomType.valueOf(rs.getString("TYPE")),
-                            rs.getInt("NUMBER_OF_BEDS"),
-                            Room.RoomStatus.valueOf(rs.getString("STATUS")),
-                            rs.getDouble("PRICE")
-                            );
-                    rooms.add(room);
+                    rooms.add(getRoom(rs));
                 }
             }
             return rooms;
@@ -74,16 +158,12 @@ public class RoomDao {
 
     public Room findByKey(String key) {
         try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement("SELECT * FROM ROOM WHERE NUMBER = '"  + key + "'")) {
+             var st = connection.prepareStatement("SELECT * FROM ROOM WHERE NUMBER = ?")) {
+            st.setString(1, key);
             Room room = null;
             try (var rs = st.executeQuery()) {
                 if (rs.next()) {
-                    room = new Room(
-                            rs.getString("NUMBER"),
-                            Room.RoomType.valueOf(rs.getString("TYPE")),
-                            rs.getInt("NUMBER_OF_BEDS"),
-                            Room.RoomStatus.valueOf(rs.getString("STATUS")),
-                            rs.getDouble("PRICE"));
+                    room = getRoom(rs);
                 }
             }
             return room;
@@ -92,9 +172,21 @@ public class RoomDao {
         }
     }
 
+    private Room getRoom(ResultSet rs) throws SQLException {
+        Room room = new Room(
+                rs.getString("NUMBER"),
+                Room.RoomType.valueOf(rs.getString("TYPE")),
+                rs.getInt("NUMBER_OF_BEDS"),
+                Room.RoomStatus.valueOf(rs.getString("STATUS")),
+                rs.getDouble("PRICE"));
+        room.setVersion(rs.getInt("VERSION"));
+        return room;
+    }
+
     public int countWithStatus(Room.RoomStatus status) {
         try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement("SELECT COUNT(*) AS count FROM ROOM WHERE STATUS = " + "'"  + status.name() + "'")) {
+             var st = connection.prepareStatement("SELECT COUNT(*) AS count FROM ROOM WHERE STATUS = ?")) {
+            st.setString(1, status.name());
             int count = 0;
             try (var rs = st.executeQuery()) {
                 if (rs.next()) {
@@ -107,61 +199,54 @@ public class RoomDao {
         }
     }
 
-    public int countAll() {
+    public double sumPriceWithStatus(Room.RoomStatus status) {
         try (var connection = dataSource.getConnection();
-             var st = connection.prepareStatement("SELECT COUNT(*) AS count FROM ROOM")) {
-            int count = 0;
-            try (var rs = st.executeQuery()) {
-                if (rs.next()) {
-                    count = rs.getInt("count");
-                }
-            }
-            return count;
+             var st = connection.prepareStatement(
+                     "SELECT COALESCE(SUM(PRICE), 0) AS total FROM ROOM WHERE STATUS = ?")) {
+            st.setString(1, status.name());
+            return getTotal(st);
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to count all rooms", ex);
+            throw new DataAccessException("Failed to sum price of rooms with status " + status, ex);
         }
     }
 
-    private void initTable() {
-        if (!tableExits("APP", "ROOM")) {
-            createTable();
-            create(new Room("101A", Room.RoomType.FAMILY, 6, Room.RoomStatus.NOT_OCCUPIED, 120.0));
-            create(new Room("101B", Room.RoomType.FAMILY, 6, Room.RoomStatus.NOT_OCCUPIED, 120.0));
-            create(new Room("102B", Room.RoomType.DOUBLE, 5, Room.RoomStatus.NOT_OCCUPIED, 100.50));
-            create(new Room("103", Room.RoomType.DOUBLE, 5, Room.RoomStatus.NOT_OCCUPIED, 100.50));
-            create(new Room("104", Room.RoomType.SINGLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0));
-            create(new Room("105", Room.RoomType.SINGLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0));
-            create(new Room("201", Room.RoomType.SINGLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0));
-            create(new Room("202", Room.RoomType.FAMILY, 5, Room.RoomStatus.NOT_OCCUPIED, 110.0));
-            create(new Room("203", Room.RoomType.FAMILY, 4, Room.RoomStatus.NOT_OCCUPIED, 105.50));
-            create(new Room("204", Room.RoomType.FAMILY, 4, Room.RoomStatus.NOT_OCCUPIED, 105.50));
-            create(new Room("205", Room.RoomType.DOUBLE, 3, Room.RoomStatus.NOT_OCCUPIED, 90.0));
-            create(new Room("301", Room.RoomType.SINGLE, 1, Room.RoomStatus.NOT_OCCUPIED, 50.0));
-            create(new Room("302", Room.RoomType.FAMILY, 3, Room.RoomStatus.NOT_OCCUPIED, 90.0));
+    public double sumGuestNightlyPrice(Collection<String> roomKeys) {
+        if (roomKeys.isEmpty()) {
+            return 0;
         }
-    }
-
-    protected boolean tableExits(String schemaName, String tableName) {
+        String placeholders = String.join(", ", Collections.nCopies(roomKeys.size(), "?"));
         try (var connection = dataSource.getConnection();
-             var rs = connection.getMetaData().getTables(null, schemaName, tableName, null)) {
-            return rs.next();
+             var st = connection.prepareStatement(
+                     "SELECT COALESCE(SUM(R.PRICE), 0) AS total FROM GUEST G JOIN ROOM R ON G.ROOM = R.NUMBER " +
+                             "WHERE G.ROOM IN (" + placeholders + ")")) {
+            int i = 1;
+            for (String key : roomKeys) {
+                st.setString(i++, key);
+            }
+            return getTotal(st);
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to detect if the table " + schemaName + "." + tableName + " exist", ex);
+            throw new DataAccessException("Failed to sum guest price of rooms " + roomKeys, ex);
+        }
+    }
+
+    private double getTotal(PreparedStatement st) throws SQLException {
+        try (var rs = st.executeQuery()) {
+            return rs.next() ? rs.getBigDecimal("total").doubleValue() : 0;
         }
     }
 
-    protected void createTable() {
+    public int countAll() {
         try (var connection = dataSource.getConnection();
-             var st = connection.createStatement()) {
-            st.executeUpdate("CREATE TABLE APP.ROOM (" +
-                    "NUMBER VARCHAR(7) PRIMARY KEY NOT NULL," +
-                    "TYPE VARCHAR(20) NOT NULL CONSTRAINT TYPE_CHECK CHECK (TYPE IN ('FAMILY', 'SINGLE', 'DOUBLE'))," +
-                    "NUMBER_OF_BEDS INT NOT NULL," +
-                    "STATUS VARCHAR(20) NOT NULL CONSTRAINT STATUS_CHECK CHECK (STATUS IN ('NOT_OCCUPIED', 'OCCUPIED'))," +
-                    "PRICE VARCHAR(10) NOT NULL" +
-                    ")");
+             var st = connection.prepareStatement("SELECT COUNT(*) AS count FROM ROOM")) {
+            int count = 0;
+            try (var rs = st.executeQuery()) {
+                if (rs.next()) {
+                    count = rs.getInt("count");
+                }
+            }
+            return count;
         } catch (SQLException ex) {
-            throw new DataAccessException("Failed to create ROOM table", ex);
+            throw new DataAccessException("Failed to count all rooms", ex);
         }
     }
 
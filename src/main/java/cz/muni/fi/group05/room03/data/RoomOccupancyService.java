@@ -0,0 +1,124 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.Room;
+import cz.muni.fi.group05.room03.model.RoomOccupancyCalendar;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class RoomOccupancyService {
+
+    public static final int HORIZON_DAYS = 2 * 366;
+
+    private final RoomDao roomDao;
+    private final GuestDao guestDao;
+    private final ReservationDao reservationDao;
+    private final Clock clock;
+    private RoomOccupancyCalendar calendar;
+    private boolean caching = true;
+
+    public RoomOccupancyService(RoomDao roomDao, GuestDao guestDao, ReservationDao reservationDao) {
+        this(roomDao, guestDao, reservationDao, Clock.systemDefaultZone());
+    }
+
+    public RoomOccupancyService(RoomDao roomDao, GuestDao guestDao, ReservationDao reservationDao, Clock clock) {
+        this.roomDao = roomDao;
+        this.guestDao = guestDao;
+        this.reservationDao = reservationDao;
+        this.clock = clock;
+        roomDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Room room) {
+                apply(calendar -> calendar.putRoom(room));
+            }
+
+            @Override
+            public void updated(Room room) {
+                apply(calendar -> calendar.putRoom(room));
+            }
+        });
+        guestDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Guest guest) {
+                apply(calendar -> calendar.putGuest(guest));
+            }
+
+            @Override
+            public void updated(Guest guest) {
+                apply(calendar -> calendar.putGuest(guest));
+            }
+
+            @Override
+            public void deleted(Guest guest) {
+                apply(calendar -> calendar.removeGuest(guest.getId()));
+            }
+        });
+        // the active index is updated before listeners are called, the calendar reads the new stay from it
+        reservationDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Reservation reservation) {
+                apply(calendar -> calendar.reservationChanged(reservation.getId()));
+            }
+
+            @Override
+            public void updated(Reservation reservation) {
+                apply(calendar -> calendar.reservationChanged(reservation.getId()));
+            }
+
+            @Override
+            public void deleted(Reservation reservation) {
+                apply(calendar -> calendar.reservationChanged(reservation.getId()));
+            }
+        });
+    }
+
+    public boolean isFree(String room, LocalDate from, LocalDate to) {
+        return getCalendar().isFree(room, from, to);
+    }
+
+    public List<String> findFreeRooms(LocalDate from, LocalDate to) {
+        return getCalendar().findFreeRooms(from, to);
+    }
+
+    /**
+     * Returns rooms the given number of guests of the reservation can be moved to, see
+     * {@link RoomOccupancyCalendar#findAssignableRooms(Long, int)}.
+     */
+    public List<String> findAssignableRooms(Long resId, int partySize) {
+        if (resId == null) {
+            throw new IllegalArgumentException("Reservation has null ID");
+        }
+        return getCalendar().findAssignableRooms(resId, partySize);
+    }
+
+    // rebuilding on every call keeps the calendar current when other workstations assign rooms
+    public synchronized void setCaching(boolean caching) {
+        this.caching = caching;
+        calendar = null;
+    }
+
+    public synchronized RoomOccupancyCalendar getCalendar() {
+        LocalDate today = LocalDate.now(clock);
+        if (calendar == null || !caching) {
+            var loaded = new RoomOccupancyCalendar(today, HORIZON_DAYS, reservationDao.getActiveIndex());
+            roomDao.findAll().forEach(loaded::putRoom);
+            try (var guests = guestDao.stream()) {
+                guests.forEach(loaded::putGuest);
+            }
+            calendar = loaded;
+        } else {
+            calendar.moveTo(today);
+        }
+        return calendar;
+    }
+
+    private synchronized void apply(Consumer<RoomOccupancyCalendar> change) {
+        if (calendar != null) {
+            change.accept(calendar);
+        }
+    }
+}
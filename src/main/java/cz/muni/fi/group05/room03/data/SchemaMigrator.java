@@ -0,0 +1,232 @@
+package cz.muni.fi.group05.room03.data;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+public class SchemaMigrator {
+
+    public static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create hotel tables",
+                    "CREATE TABLE APP.DATA (" +
+                            "ID BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
+                            "NAME VARCHAR(20) NOT NULL," +
+                            "VALUE VARCHAR(20) NOT NULL" +
+                            ")",
+                    "INSERT INTO APP.DATA (NAME, VALUE) VALUES ('TAX', '2')",
+                    "CREATE TABLE APP.ROOM (" +
+                            "NUMBER VARCHAR(7) PRIMARY KEY NOT NULL," +
+                            "TYPE VARCHAR(20) NOT NULL CONSTRAINT TYPE_CHECK CHECK (TYPE IN ('FAMILY', 'SINGLE', 'DOUBLE'))," +
+                            "NUMBER_OF_BEDS INT NOT NULL," +
+                            "STATUS VARCHAR(20) NOT NULL CONSTRAINT STATUS_CHECK CHECK (STATUS IN ('NOT_OCCUPIED', 'OCCUPIED'))," +
+                            "PRICE VARCHAR(10) NOT NULL" +
+                            ")",
+                    "INSERT INTO APP.ROOM (NUMBER, TYPE, NUMBER_OF_BEDS, STATUS, PRICE) VALUES " +
+                            "('101A', 'FAMILY', 6, 'NOT_OCCUPIED', '120.0'), " +
+                            "('101B', 'FAMILY', 6, 'NOT_OCCUPIED', '120.0'), " +
+                            "('102B', 'DOUBLE', 5, 'NOT_OCCUPIED', '100.5'), " +
+                            "('103', 'DOUBLE', 5, 'NOT_OCCUPIED', '100.5'), " +
+                            "('104', 'SINGLE', 2, 'NOT_OCCUPIED', '70.0'), " +
+                            "('105', 'SINGLE', 2, 'NOT_OCCUPIED', '70.0'), " +
+                            "('201', 'SINGLE', 2, 'NOT_OCCUPIED', '70.0'), " +
+                            "('202', 'FAMILY', 5, 'NOT_OCCUPIED', '110.0'), " +
+                            "('203', 'FAMILY', 4, 'NOT_OCCUPIED', '105.5'), " +
+                            "('204', 'FAMILY', 4, 'NOT_OCCUPIED', '105.5'), " +
+                            "('205', 'DOUBLE', 3, 'NOT_OCCUPIED', '90.0'), " +
+                            "('301', 'SINGLE', 1, 'NOT_OCCUPIED', '50.0'), " +
+                            "('302', 'FAMILY', 3, 'NOT_OCCUPIED', '90.0')",
+                    "CREATE TABLE APP.GUEST (" +
+                            "ID BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
+                            "FULLNAME VARCHAR(100) NOT NULL," +
+                            "ROOM VARCHAR(10) NOT NULL," +
+                            "ID_CARD VARCHAR(20) NOT NULL," +
+                            "AGE VARCHAR(20) NOT NULL CONSTRAINT GENERATION_CHECK CHECK (AGE IN ('ADULT', 'CHILD'))," +
+                            "INFO VARCHAR(1000)," +
+                            "RES_ID BIGINT" +
+                            ")",
+                    "CREATE TABLE APP.RESERVATION (" +
+                            "ID BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
+                            "NAME VARCHAR(100) NOT NULL," +
+                            "DATE_FROM DATE NOT NULL," +
+                            "DATE_TO DATE NOT NULL," +
+                            "TELEPHONE VARCHAR(20) NOT NULL," +
+                            "EMAIL VARCHAR(50)," +
+                            "PERSONS INT NOT NULL," +
+                            "INFO VARCHAR(1000)," +
+                            "STATE VARCHAR(20) NOT NULL CONSTRAINT " +
+                            "STATE_CHECK CHECK (STATE IN ('UPCOMING', 'DOING', 'CANCELED', 'ENDED'))" +
+                            ")"),
+            new Migration(2, "Index guest and reservation lookups",
+                    "CREATE INDEX GUEST_ROOM_IDX ON APP.GUEST (ROOM)",
+                    "CREATE INDEX GUEST_RES_ID_IDX ON APP.GUEST (RES_ID)",
+                    "CREATE INDEX RESERVATION_STATE_IDX ON APP.RESERVATION (STATE)",
+                    "CREATE INDEX RESERVATION_DATES_IDX ON APP.RESERVATION (DATE_FROM, DATE_TO)"),
+            new Migration(3, "Store room price as decimal",
+                    "ALTER TABLE APP.ROOM ADD COLUMN PRICE_DECIMAL DECIMAL(10, 2) NOT NULL DEFAULT 0",
+                    "UPDATE APP.ROOM SET PRICE_DECIMAL = CAST(TRIM(PRICE) AS DECIMAL(10, 2))",
+                    "ALTER TABLE APP.ROOM DROP COLUMN PRICE",
+                    "RENAME COLUMN APP.ROOM.PRICE_DECIMAL TO PRICE",
+                    "ALTER TABLE APP.ROOM ALTER COLUMN PRICE DROP DEFAULT"),
+            new Migration(4, "Add optimistic lock versions",
+                    "ALTER TABLE APP.ROOM ADD COLUMN VERSION INT NOT NULL DEFAULT 0",
+                    "ALTER TABLE APP.GUEST ADD COLUMN VERSION INT NOT NULL DEFAULT 0",
+                    "ALTER TABLE APP.RESERVATION ADD COLUMN VERSION INT NOT NULL DEFAULT 0"),
+            // sort keys of the reservation list: the date days to perform count to and the ordinal of the state
+            new Migration(5, "Index reservation list order",
+                    "ALTER TABLE APP.RESERVATION ADD COLUMN DUE_DATE DATE GENERATED ALWAYS AS " +
+                            "(CASE STATE WHEN 'UPCOMING' THEN DATE_FROM WHEN 'DOING' THEN DATE_TO END)",
+                    "ALTER TABLE APP.RESERVATION ADD COLUMN STATE_ORDER SMALLINT GENERATED ALWAYS AS " +
+                            "(CASE STATE WHEN 'DOING' THEN 0 WHEN 'UPCOMING' THEN 1 WHEN 'CANCELED' THEN 2 ELSE 3 END)",
+                    "CREATE INDEX RESERVATION_ORDER_IDX ON APP.RESERVATION (DUE_DATE, STATE_ORDER, ID)"));
+
+    private static final String TABLE_DOES_NOT_EXIST = "42X05";
+    private static final String OBJECT_ALREADY_EXISTS = "X0Y32";
+
+    private final DataSource dataSource;
+    private final List<Migration> migrations;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this(dataSource, MIGRATIONS);
+    }
+
+    public SchemaMigrator(DataSource dataSource, List<Migration> migrations) {
+        this.dataSource = dataSource;
+        this.migrations = migrations.stream()
+                .sorted(Comparator.comparingInt(Migration::getVersion))
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    public int migrate() {
+        try (var connection = dataSource.getConnection()) {
+            NavigableMap<Integer, Long> applied = findApplied(connection);
+            if (applied != null) {
+                verify(applied);
+            }
+            if (applied == null || applied.size() < migrations.size()) {
+                applied = applyPending(connection, applied == null);
+            }
+            return applied.isEmpty() ? 0 : applied.lastKey();
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to migrate database schema", ex);
+        }
+    }
+
+    private NavigableMap<Integer, Long> findApplied(Connection connection) throws SQLException {
+        try (var st = connection.prepareStatement("SELECT VERSION, CHECKSUM FROM APP.SCHEMA_VERSION");
+             var rs = st.executeQuery()) {
+            NavigableMap<Integer, Long> applied = new TreeMap<>();
+            while (rs.next()) {
+                applied.put(rs.getInt("VERSION"), rs.getLong("CHECKSUM"));
+            }
+            return applied;
+        } catch (SQLException ex) {
+            if (TABLE_DOES_NOT_EXIST.equals(ex.getSQLState())) {
+                return null;
+            }
+            throw ex;
+        }
+    }
+
+    private NavigableMap<Integer, Long> applyPending(Connection connection, boolean createVersionTable)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            try (var st = connection.createStatement()) {
+                if (createVersionTable) {
+                    createVersionTable(st);
+                }
+                st.execute("LOCK TABLE APP.SCHEMA_VERSION IN EXCLUSIVE MODE");
+            }
+            NavigableMap<Integer, Long> applied = findApplied(connection);
+            verify(applied);
+            boolean adopting = applied.isEmpty() && tableExists(connection, "ROOM");
+            if (adopting) {
+                Migration baseline = migrations.get(0);
+                record(connection, baseline);
+                applied.put(baseline.getVersion(), baseline.getChecksum());
+            }
+            for (Migration migration : migrations) {
+                if (!applied.containsKey(migration.getVersion())) {
+                    apply(connection, migration, adopting);
+                    applied.put(migration.getVersion(), migration.getChecksum());
+                }
+            }
+            connection.commit();
+            return applied;
+        } catch (SQLException | RuntimeException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void createVersionTable(Statement st) throws SQLException {
+        try {
+            st.executeUpdate("CREATE TABLE APP.SCHEMA_VERSION (" +
+                    "VERSION INT PRIMARY KEY NOT NULL," +
+                    "DESCRIPTION VARCHAR(200) NOT NULL," +
+                    "CHECKSUM BIGINT NOT NULL," +
+                    "INSTALLED_ON TIMESTAMP NOT NULL" +
+                    ")");
+        } catch (SQLException ex) {
+            if (!OBJECT_ALREADY_EXISTS.equals(ex.getSQLState())) {
+                throw ex;
+            }
+        }
+    }
+
+    private boolean tableExists(Connection connection, String tableName) throws SQLException {
+        try (var rs = connection.getMetaData().getTables(null, "APP", tableName, null)) {
+            return rs.next();
+        }
+    }
+
+    private void apply(Connection connection, Migration migration, boolean adopting) throws SQLException {
+        try (var st = connection.createStatement()) {
+            for (String sql : migration.getStatements()) {
+                try {
+                    st.executeUpdate(sql);
+                } catch (SQLException ex) {
+                    if (!adopting || !OBJECT_ALREADY_EXISTS.equals(ex.getSQLState())) {
+                        throw ex;
+                    }
+                }
+            }
+        }
+        record(connection, migration);
+    }
+
+    private void record(Connection connection, Migration migration) throws SQLException {
+        try (var st = connection.prepareStatement(
+                "INSERT INTO APP.SCHEMA_VERSION (VERSION, DESCRIPTION, CHECKSUM, INSTALLED_ON) VALUES (?, ?, ?, ?)")) {
+            st.setInt(1, migration.getVersion());
+            st.setString(2, migration.getDescription());
+            st.setLong(3, migration.getChecksum());
+            st.setTimestamp(4, Timestamp.from(Instant.now()));
+            st.executeUpdate();
+        }
+    }
+
+    private void verify(Map<Integer, Long> applied) {
+        for (var entry : applied.entrySet()) {
+            Migration migration = migrations.stream()
+                    .filter(m -> m.getVersion() == entry.getKey())
+                    .findFirst()
+                    .orElseThrow(() -> new DataAccessException(
+                            "Database schema version " + entry.getKey() + " is unknown to this application"));
+            if (migration.getChecksum() != entry.getValue()) {
+                throw new DataAccessException("Checksum mismatch for applied migration " + migration);
+            }
+        }
+    }
+}
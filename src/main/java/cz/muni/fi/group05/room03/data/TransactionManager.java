@@ -0,0 +1,247 @@
+package cz.muni.fi.group05.room03.data;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Data source that lets several DAO calls share one connection and one commit.
+ * Inside {@link #call(Supplier)} every connection taken from this data source on the same thread is the
+ * transaction connection, and closing, committing or rolling it back is left to the transaction.
+ */
+public class TransactionManager implements DataSource {
+
+    private static final ThreadLocal<Transaction> CURRENT = new ThreadLocal<>();
+
+    private final DataSource dataSource;
+
+    public TransactionManager(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> T call(Supplier<T> work) {
+        Transaction current = CURRENT.get();
+        if (current != null) {
+            if (current.manager != this) {
+                throw new IllegalStateException("Another transaction is already active on this thread");
+            }
+            return work.get();
+        }
+        Transaction transaction = begin();
+        CURRENT.set(transaction);
+        T result;
+        try {
+            result = work.get();
+            if (transaction.rollbackOnly) {
+                throw new DataAccessException("Transaction was marked for rollback");
+            }
+            commit(transaction);
+        } catch (RuntimeException | Error ex) {
+            rollback(transaction, ex);
+            for (int i = transaction.afterRollback.size() - 1; i >= 0; i--) {
+                transaction.afterRollback.get(i).run();
+            }
+            throw ex;
+        } finally {
+            CURRENT.remove();
+            close(transaction);
+        }
+        transaction.afterCommit.forEach(Runnable::run);
+        return result;
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or immediately when there is none.
+     * Actions of a rolled back transaction are dropped.
+     */
+    public static void afterCommit(Runnable action) {
+        Transaction current = CURRENT.get();
+        if (current == null) {
+            action.run();
+        } else {
+            current.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Runs the action if the current transaction rolls back, after the actions registered later.
+     * DAOs use it to restore the IDs and versions they set on entities during the transaction.
+     * Without a transaction there is nothing to roll back and the action is dropped.
+     */
+    public static void afterRollback(Runnable action) {
+        Transaction current = CURRENT.get();
+        if (current != null) {
+            current.afterRollback.add(action);
+        }
+    }
+
+    private Transaction begin() {
+        try {
+            Connection connection = dataSource.getConnection();
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException ex) {
+                connection.close();
+                throw ex;
+            }
+            return new Transaction(this, connection);
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to begin transaction", ex);
+        }
+    }
+
+    private void commit(Transaction transaction) {
+        try {
+            transaction.connection.commit();
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to commit transaction", ex);
+        }
+    }
+
+    private void rollback(Transaction transaction, Throwable cause) {
+        try {
+            transaction.connection.rollback();
+        } catch (SQLException ex) {
+            cause.addSuppressed(ex);
+        }
+    }
+
+    private void close(Transaction transaction) {
+        try {
+            transaction.connection.setAutoCommit(true);
+        } catch (SQLException ignored) {
+            // the pool resets the connection when it is returned
+        }
+        try {
+            transaction.connection.close();
+        } catch (SQLException ignored) {
+            // nothing is left to release
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Transaction current = CURRENT.get();
+        if (current != null && current.manager == this) {
+            return current.borrow();
+        }
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Transaction manager does not support per-user connections");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+
+    private static final class Transaction {
+
+        private final TransactionManager manager;
+        private final Connection connection;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        private final List<Runnable> afterRollback = new ArrayList<>();
+        private boolean rollbackOnly;
+
+        private Transaction(TransactionManager manager, Connection connection) {
+            this.manager = manager;
+            this.connection = connection;
+        }
+
+        private Connection borrow() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this));
+        }
+    }
+
+    private static final class Handle implements InvocationHandler {
+
+        private final Transaction transaction;
+
+        private Handle(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "setAutoCommit":
+                case "commit":
+                    return null;
+                case "rollback":
+                    if (args == null) {
+                        transaction.rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                case "getAutoCommit":
+                    return false;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(transaction.connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
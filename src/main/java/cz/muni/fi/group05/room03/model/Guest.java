@@ -11,6 +11,7 @@ public class Guest {
     private final Long reservationId;
     private Long id;
     private String room;
+    private int version;
 
     public Guest(String name, String room, String idCard, GuestGeneration generation, String info, Long reservationId, Long id) {
         this.name = name;
@@ -58,6 +59,14 @@ public class Guest {
         this.id = id;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public Long getReservationId() {
         return reservationId;
     }
@@ -16,6 +16,7 @@ public class Reservation {
     private final String info;
     private ReservationState state;
     private Long id;
+    private int version;
     private int daysToPerform = 0;
 
     public Reservation(String name, LocalDate dateFrom, LocalDate dateTo, String telephone, String email,
@@ -96,6 +97,14 @@ public class Reservation {
         this.id = id;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public enum ReservationState {
 
         DOING,
@@ -105,6 +114,10 @@ public class Reservation {
 
         private static final I18N I18N = new I18N(ReservationState.class);
 
+        public boolean isActive() {
+            return this == UPCOMING || this == DOING;
+        }
+
         @Override
         public String toString() {
             return I18N.getString(this.name());
@@ -0,0 +1,222 @@
+package cz.muni.fi.group05.room03.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReservationIntervalIndex {
+
+    private final Map<Long, Reservation> reservations = new HashMap<>();
+    private Node starts;
+    private Node ends;
+
+    public synchronized void put(Reservation reservation) {
+        Long id = reservation.getId();
+        if (id == null) {
+            throw new IllegalArgumentException("Reservation has null ID: " + reservation);
+        }
+        remove(id);
+        reservations.put(id, reservation);
+        starts = insert(starts, new Node(reservation.getDateFrom(), id, reservation));
+        ends = insert(ends, new Node(reservation.getDateTo(), id, reservation));
+    }
+
+    public synchronized void remove(Long id) {
+        Reservation reservation = reservations.remove(id);
+        if (reservation != null) {
+            starts = delete(starts, reservation.getDateFrom(), id);
+            ends = delete(ends, reservation.getDateTo(), id);
+        }
+    }
+
+    public synchronized void clear() {
+        reservations.clear();
+        starts = null;
+        ends = null;
+    }
+
+    public synchronized int size() {
+        return reservations.size();
+    }
+
+    public synchronized Reservation get(Long id) {
+        return reservations.get(id);
+    }
+
+    public synchronized List<Reservation> findOverlapping(LocalDate from, LocalDate to) {
+        List<Reservation> result = new ArrayList<>();
+        collectOverlapping(starts, from, to, result);
+        return result;
+    }
+
+    public List<Reservation> findInHouse(LocalDate date) {
+        return findOverlapping(date, date.plusDays(1));
+    }
+
+    public synchronized int countOverlapping(LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            return 0;
+        }
+        return countBefore(starts, to) - countBefore(ends, from.plusDays(1));
+    }
+
+    public int countInHouse(LocalDate date) {
+        return countOverlapping(date, date.plusDays(1));
+    }
+
+    private static void collectOverlapping(Node node, LocalDate from, LocalDate to, List<Reservation> result) {
+        if (node == null || !node.maxEnd.isAfter(from)) {
+            return;
+        }
+        collectOverlapping(node.left, from, to, result);
+        if (node.key.isBefore(to)) {
+            if (node.value.getDateTo().isAfter(from)) {
+                result.add(node.value);
+            }
+            collectOverlapping(node.right, from, to, result);
+        }
+    }
+
+    private static int countBefore(Node node, LocalDate date) {
+        int count = 0;
+        while (node != null) {
+            if (node.key.isBefore(date)) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    private static int compare(LocalDate key, long id, Node node) {
+        int result = key.compareTo(node.key);
+        return result != 0 ? result : Long.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (compare(inserted.key, inserted.id, node) < 0) {
+            node.left = insert(node.left, inserted);
+        } else {
+            node.right = insert(node.right, inserted);
+        }
+        return balance(node);
+    }
+
+    private static Node delete(Node node, LocalDate key, long id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(key, id, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, key, id);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, key, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.size = size(node.left) + size(node.right) + 1;
+        LocalDate maxEnd = node.value.getDateTo();
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+
+        private final LocalDate key;
+        private final long id;
+        private final Reservation value;
+        private Node left;
+        private Node right;
+        private int height = 1;
+        private int size = 1;
+        private LocalDate maxEnd;
+
+        private Node(LocalDate key, long id, Reservation value) {
+            this.key = key;
+            this.id = id;
+            this.value = value;
+            this.maxEnd = value.getDateTo();
+        }
+    }
+}
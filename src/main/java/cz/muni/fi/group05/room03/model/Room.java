@@ -9,6 +9,7 @@ public class Room {
     private final String key;
     private Integer beds;
     private RoomStatus status;
+    private int version;
 
     public Room(String key, RoomType type, Integer beds, RoomStatus status, Double price) {
         this.key = key;
@@ -46,6 +47,14 @@ public class Room {
         this.status = status;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public enum RoomStatus {
 
         NOT_OCCUPIED,
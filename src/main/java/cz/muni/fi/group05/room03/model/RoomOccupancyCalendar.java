@@ -0,0 +1,221 @@
+package cz.muni.fi.group05.room03.model;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nights of each room from the start of the calendar on. A night of a room is taken when a guest of an active
+ * reservation is assigned to the room and the reservation stays over that night. Stays of active reservations are
+ * read from the given index, the calendar has to be told when one of them changes.
+ * <p>
+ * Reservations without assigned guests take no particular room, they are counted against the beds of the whole
+ * hotel by the capacity check instead.
+ */
+public class RoomOccupancyCalendar {
+
+    private final int days;
+    private final Map<String, long[]> occupancy = new LinkedHashMap<>();
+    private final Map<String, Integer> beds = new HashMap<>();
+    private final Map<String, Map<Long, Integer>> guestsPerReservation = new HashMap<>();
+    private final Map<Long, Stay> guests = new HashMap<>();
+    private final ReservationIntervalIndex reservations;
+    private LocalDate start;
+
+    public RoomOccupancyCalendar(LocalDate start, int days, ReservationIntervalIndex reservations) {
+        if (days < 1) {
+            throw new IllegalArgumentException("Calendar horizon must be positive: " + days);
+        }
+        this.start = start;
+        this.days = days;
+        this.reservations = reservations;
+    }
+
+    public synchronized LocalDate getStart() {
+        return start;
+    }
+
+    public synchronized LocalDate getEnd() {
+        return start.plusDays(days);
+    }
+
+    public synchronized void putRoom(Room room) {
+        occupancy.computeIfAbsent(room.getKey(), key -> new long[words()]);
+        beds.put(room.getKey(), room.getBeds());
+    }
+
+    /**
+     * Marks nights of the rooms holding guests of the reservation again, after it was changed in the index.
+     */
+    public synchronized void reservationChanged(Long id) {
+        guestsPerReservation.forEach((room, perReservation) -> {
+            if (perReservation.containsKey(id)) {
+                recompute(room);
+            }
+        });
+    }
+
+    public synchronized void putGuest(Guest guest) {
+        removeGuest(guest.getId());
+        String room = guest.getRoom();
+        if (room == null || room.isEmpty()) {
+            return;
+        }
+        guests.put(guest.getId(), new Stay(room, guest.getReservationId()));
+        guestsPerReservation.computeIfAbsent(room, key -> new HashMap<>())
+                .merge(guest.getReservationId(), 1, Integer::sum);
+        recompute(room);
+    }
+
+    public synchronized void removeGuest(Long id) {
+        Stay stay = guests.remove(id);
+        if (stay == null) {
+            return;
+        }
+        Map<Long, Integer> perReservation = guestsPerReservation.get(stay.room);
+        if (perReservation.merge(stay.reservationId, -1, Integer::sum) == 0) {
+            perReservation.remove(stay.reservationId);
+            recompute(stay.room);
+        }
+    }
+
+    public synchronized void moveTo(LocalDate newStart) {
+        if (!newStart.equals(start)) {
+            start = newStart;
+            occupancy.keySet().forEach(this::recompute);
+        }
+    }
+
+    public synchronized boolean isFree(String room, LocalDate from, LocalDate to) {
+        long[] bits = occupancy.get(room);
+        if (bits == null) {
+            throw new IllegalArgumentException("Unknown room " + room);
+        }
+        int first = dayIndex(from);
+        int last = dayIndex(to);
+        return !intersects(bits, first, last);
+    }
+
+    public synchronized List<String> findFreeRooms(LocalDate from, LocalDate to) {
+        int first = dayIndex(from);
+        int last = dayIndex(to);
+        List<String> free = new ArrayList<>();
+        occupancy.forEach((room, bits) -> {
+            if (!intersects(bits, first, last)) {
+                free.add(room);
+            }
+        });
+        return free;
+    }
+
+    /**
+     * Returns rooms with beds for {@code guests} more guests of the reservation which are not taken by other
+     * reservations during the rest of its stay. Rooms already holding guests of the reservation are included,
+     * an inactive reservation has no assignable rooms.
+     */
+    public synchronized List<String> findAssignableRooms(Long reservationId, int guests) {
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null) {
+            return List.of();
+        }
+        int first = clampedIndex(reservation.getDateFrom());
+        int last = clampedIndex(reservation.getDateTo());
+        List<String> assignable = new ArrayList<>();
+        occupancy.forEach((room, bits) -> {
+            Map<Long, Integer> perReservation = guestsPerReservation.getOrDefault(room, Map.of());
+            int assigned = perReservation.values().stream().mapToInt(Integer::intValue).sum();
+            if (assigned + guests > beds.getOrDefault(room, 0)) {
+                return;
+            }
+            // the bits cannot tell the nights of the reservation itself from the nights of others
+            if (!intersects(bits, first, last)
+                    || perReservation.containsKey(reservationId) && !takenByOthers(perReservation, reservationId, first, last)) {
+                assignable.add(room);
+            }
+        });
+        return assignable;
+    }
+
+    private boolean takenByOthers(Map<Long, Integer> perReservation, Long reservationId, int first, int last) {
+        for (Long other : perReservation.keySet()) {
+            Reservation reservation = reservations.get(other);
+            if (!other.equals(reservationId) && reservation != null
+                    && clampedIndex(reservation.getDateFrom()) < last && clampedIndex(reservation.getDateTo()) > first) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int clampedIndex(LocalDate date) {
+        return (int) Math.max(0, Math.min(days, ChronoUnit.DAYS.between(start, date)));
+    }
+
+    private int dayIndex(LocalDate date) {
+        long index = ChronoUnit.DAYS.between(start, date);
+        if (index < 0 || index > days) {
+            throw new IllegalArgumentException("Date " + date + " is outside of calendar from " + start
+                    + " to " + start.plusDays(days));
+        }
+        return (int) index;
+    }
+
+    private static boolean intersects(long[] bits, int first, int last) {
+        if (first >= last) {
+            return false;
+        }
+        int firstWord = first >>> 6;
+        int lastWord = (last - 1) >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = -1L;
+            if (word == firstWord) {
+                mask &= -1L << first;
+            }
+            if (word == lastWord) {
+                mask &= -1L >>> (63 - ((last - 1) & 63));
+            }
+            if ((bits[word] & mask) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recompute(String room) {
+        long[] bits = occupancy.computeIfAbsent(room, key -> new long[words()]);
+        Arrays.fill(bits, 0);
+        for (Long reservationId : guestsPerReservation.getOrDefault(room, Map.of()).keySet()) {
+            Reservation reservation = reservations.get(reservationId);
+            if (reservation != null) {
+                mark(bits, reservation.getDateFrom(), reservation.getDateTo());
+            }
+        }
+    }
+
+    private void mark(long[] bits, LocalDate from, LocalDate to) {
+        int last = clampedIndex(to);
+        for (int day = clampedIndex(from); day < last; day++) {
+            bits[day >>> 6] |= 1L << day;
+        }
+    }
+
+    private int words() {
+        return (days + 63) >>> 6;
+    }
+
+    private static final class Stay {
+
+        private final String room;
+        private final Long reservationId;
+
+        private Stay(String room, Long reservationId) {
+            this.room = room;
+            this.reservationId = reservationId;
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package cz.muni.fi.group05.room03.ui;
 
 import cz.muni.fi.group05.room03.data.HotelSystemDao;
+import cz.muni.fi.group05.room03.model.Guest;
 import cz.muni.fi.group05.room03.model.Room;
 
 import javax.swing.JLabel;
+import java.awt.EventQueue;
 
 public class Footer {
 
     private static final I18N I18N = new I18N(Footer.class);
     private final JLabel label;
+    private boolean calculationPending;
 
     public Footer(JLabel label) {
         this.label = label;
+        HotelSystemDao.getEventBus().subscribe(Room.class, event -> scheduleCalculation());
+        HotelSystemDao.getEventBus().subscribe(Guest.class, event -> scheduleCalculation());
         calculate();
     }
 
@@ -20,11 +25,25 @@ public class Footer {
     }
 
     public void calculate() {
-        label.setText((I18N.getString("allGuests") + " ") +
-                HotelSystemDao.getGuestDao().countAllWithRoom() +
-                "    |    " +
-                (I18N.getString("allRooms") + " ") +
-                HotelSystemDao.getRoomDao().countWithStatus(Room.RoomStatus.OCCUPIED) +
-                " / " + HotelSystemDao.getRoomDao().countAll());
+        HotelSystemDao.getAsync().supply(HotelSystemDao.getDashboardService()::getStats)
+                .thenAccept(stats -> label.setText((I18N.getString("allGuests") + " ") +
+                        stats.getGuestsWithRoom() +
+                        "    |    " +
+                        (I18N.getString("allRooms") + " ") +
+                        stats.getOccupiedRooms() +
+                        " / " + stats.getRooms()))
+                .exceptionally(Message::showDataAccessError);
+    }
+
+    // events of one change arrive on the event thread one after another, the counters are calculated once after them
+    private void scheduleCalculation() {
+        if (calculationPending) {
+            return;
+        }
+        calculationPending = true;
+        EventQueue.invokeLater(() -> {
+            calculationPending = false;
+            calculate();
+        });
     }
 }
@@ -151,7 +151,7 @@ public class HotelSystemUI {
     private void setTax() {
         ImportantDataDao importantDataDao = HotelSystemDao.getImportantDataDao();
         SpinnerNumberModel sModel = new SpinnerNumberModel(
-            Integer.parseInt(importantDataDao.findByKey("TAX")),
+            importantDataDao.getInt("TAX"),
             0, 100, 1);
         JSpinner spinner = new JSpinner(sModel);
         for (Component c : spinner.getEditor().getComponents()) {
@@ -161,7 +161,9 @@ public class HotelSystemUI {
                     && field.isEditValid() ? Color.WHITE : Color.PINK));
         }
         if (Message.showYesNoDialog(I18N.getString("enterTax"), spinner)) {
-            importantDataDao.update("TAX", String.valueOf(spinner.getValue()));
+            String tax = String.valueOf(spinner.getValue());
+            HotelSystemDao.getAsync().run(() -> importantDataDao.update("TAX", tax))
+                    .exceptionally(Message::showDataAccessError);
         }
     }
 }
@@ -1,5 +1,7 @@
 package cz.muni.fi.group05.room03.ui;
 
+import cz.muni.fi.group05.room03.data.OptimisticLockException;
+
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -8,6 +10,7 @@ import java.awt.Container;
 import java.awt.GridLayout;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.concurrent.CompletionException;
 
 public class Message {
 
@@ -40,6 +43,16 @@ public class Message {
         JOptionPane.showMessageDialog(new Container(), createPanel(info), I18N.getString("error"), JOptionPane.ERROR_MESSAGE);
     }
 
+    public static <T> T showDataAccessError(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof OptimisticLockException) {
+            showWarningDialog(I18N.getString("concurrentModification"));
+            return null;
+        }
+        showErrorDialog(I18N.getString("dataAccessFailed") + "\n" + cause.getMessage());
+        return null;
+    }
+
     public static boolean showYesNoDialog(String title, JComponent component) {
         String[] options = { I18N.getString("yes"), I18N.getString("no") };
         return JOptionPane.showOptionDialog(null, component, title, JOptionPane.DEFAULT_OPTION,
@@ -35,6 +35,7 @@ public class GuestForm {
     private Long reservationId;
     private int numberToCheckIn = 0;
     private Long id = null;
+    private int version;
 
     private List<Guest> checkInGuests = new ArrayList<>();
 
@@ -62,6 +63,7 @@ public class GuestForm {
             @Override
             public void componentHidden(ComponentEvent e) {
                 id = null;
+                version = 0;
                 checkInGuests = new ArrayList<>();
             }
         });
@@ -76,6 +78,7 @@ public class GuestForm {
         info.setData(guest.getInfo());
         room = guest.getRoom();
         id = guest.getId();
+        version = guest.getVersion();
         reservationId = guest.getReservationId();
     }
 
@@ -118,19 +121,18 @@ public class GuestForm {
     private void GuestAddNextButtonAction() {
         final Guest guest = new Guest(name.getData(), room, idCard.getData(), generation.getData(), info.getData(), reservationId);
         guest.setId(id);
+        guest.setVersion(version);
         checkInGuests.add(guest);
         if (editing) {
-            HotelSystemUI.getGuestTable().createGuests(checkInGuests);
-            HotelSystemUI.getGuestTable().removeEditingRow();
+            HotelSystemUI.getGuestTable().saveGuests(checkInGuests);
             HotelSystemUI.getPanelController().switchPanelNow(ContentPanelNames.GUEST_TABLE);
             setEditing(false);
         } else if (guestNum == numberToCheckIn - 1) {
             confirm.setText(I18N.getString("confirm"));
             guestNum++;
         } else if (guestNum == numberToCheckIn){
-            HotelSystemUI.getGuestTable().createGuests(checkInGuests);
+            HotelSystemUI.getReservationsTable().checkInReservation(reservationId, checkInGuests);
             HotelSystemUI.getPanelController().switchPanelNow(ContentPanelNames.GUEST_TABLE);
-            HotelSystemUI.getReservationsTable().checkInReservation();
         } else {
             guestNum++;
         }
@@ -1,8 +1,8 @@
 package cz.muni.fi.group05.room03.ui.form;
 
+import cz.muni.fi.group05.room03.data.CapacityCheck;
 import cz.muni.fi.group05.room03.data.HotelSystemDao;
 import cz.muni.fi.group05.room03.model.Reservation;
-import cz.muni.fi.group05.room03.model.Room;
 import cz.muni.fi.group05.room03.ui.ColoredButton;
 import cz.muni.fi.group05.room03.ui.ContentPanelController.ContentPanelNames;
 import cz.muni.fi.group05.room03.ui.HotelSystemUI;
@@ -37,6 +37,7 @@ public class ReservationForm {
     private final ColoredButton confirm = ColoredButton.form(I18N.getString("confirm"));
     private Reservation.ReservationState state = Reservation.ReservationState.UPCOMING;
     private Long id = null;
+    private int version;
 
     public ReservationForm() {
         confirm.addConfirmReason(this::reservationConfirmButtonAction, this::getFilledInfo);
@@ -59,15 +60,12 @@ public class ReservationForm {
             @Override
             public void componentHidden(ComponentEvent e) {
                 id = null;
+                version = 0;
                 state = Reservation.ReservationState.UPCOMING;
             }
         });
     }
 
-    private static boolean overlapsWith(Reservation first, Reservation second) {
-        return first.getDateFrom().isBefore(second.getDateTo()) && second.getDateFrom().isBefore(first.getDateTo());
-    }
-
     public void setState(Reservation.ReservationState state) {
         this.state = state;
     }
@@ -81,6 +79,7 @@ public class ReservationForm {
         people.setData(reservation.getPeople());
         info.setData(reservation.getInfo());
         id = reservation.getId();
+        version = reservation.getVersion();
         state = reservation.getState();
         name.setEnabled(state == Reservation.ReservationState.UPCOMING);
         telephone.setEnabled(state == Reservation.ReservationState.UPCOMING);
@@ -162,19 +161,31 @@ public class ReservationForm {
     }
 
     private void reservationConfirmButtonAction() {
-        List<Reservation> reservations = HotelSystemDao.getReservationDao().findAll();
         Reservation reservation = new Reservation(name.getData(), dateFrom.getData(), dateTo.getData(),
                 telephone.getData(), email.getData(), people.getData(), info.getData(), state);
         reservation.setId(id);
-        int people = reservations.stream().filter(res -> overlapsWith(res, reservation) && !res.getId().equals(reservation.getId())
-                && (res.getState().equals(Reservation.ReservationState.UPCOMING) || res.getState().equals(Reservation.ReservationState.DOING)))
-                .mapToInt(Reservation::getPeople).sum();
-        if (people + reservation.getPeople() > HotelSystemDao.getRoomDao().findAll().stream().mapToInt(Room::getBeds).sum()) {
-            Message.showWarningDialog(I18N.getString("full"));
+        reservation.setVersion(version);
+        // the reservation table stays locked from the check to the write, so desks sharing the database
+        // cannot both book the last free beds
+        HotelSystemDao.getAsync().supply(() -> HotelSystemDao.getTransactionManager().call(() -> {
+                    HotelSystemDao.getReservationDao().lockTable();
+                    CapacityCheck capacity = HotelSystemDao.getCapacityService().check(reservation.getDateFrom(),
+                            reservation.getDateTo(), reservation.getPeople(), reservation.getId());
+                    if (capacity.fits()) {
+                        HotelSystemDao.getReservationDao().create(reservation);
+                    }
+                    return capacity;
+                }))
+                .thenAccept(this::confirmReservation)
+                .exceptionally(Message::showDataAccessError);
+    }
+
+    private void confirmReservation(CapacityCheck capacity) {
+        if (!capacity.fits()) {
+            Message.showWarningDialog(I18N.getString("full") + "\n" +
+                    I18N.getString("firstFullNight") + ": " + capacity.getFirstOverfullNight());
             return;
         }
-        HotelSystemUI.getReservationsTable().removeIfSelected();
-        HotelSystemUI.getReservationsTable().createReservation(reservation);
         HotelSystemUI.getPanelController().switchPanelNow(ContentPanelNames.RESERVATION_TABLE);
     }
 
@@ -1,6 +1,8 @@
 package cz.muni.fi.group05.room03.ui.table;
 
+import cz.muni.fi.group05.room03.data.EntityEvent;
 import cz.muni.fi.group05.room03.data.HotelSystemDao;
+import cz.muni.fi.group05.room03.data.OptimisticLockException;
 import cz.muni.fi.group05.room03.model.Room;
 import cz.muni.fi.group05.room03.ui.I18N;
 import cz.muni.fi.group05.room03.ui.Menu;
@@ -19,10 +21,8 @@ import java.awt.event.KeyEvent;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 public class GuestTable {
@@ -34,24 +34,29 @@ public class GuestTable {
     private final TableUI tableUI;
 
     private final Column<String> name = Column.of(String.class, I18N.getString("name"));
-    private final Column<String> room = Column.of(String.class, I18N.getString("room"));
+    private final Column<String> room = Column.ofDictionary(String.class, I18N.getString("room"));
     private final Column<String> idCard = Column.of(String.class, I18N.getString("idCard"));
     private final Column<Guest.GuestGeneration> age = Column.of(Guest.GuestGeneration.class, I18N.getString("age"));
     private final Column<String> info = Column.of(String.class, I18N.getString("info"));
     private final Column<Long> id = Column.of(Long.class, I18N.getString("id"));
     private final Column<Long> idReservation = Column.of(Long.class, I18N.getString("idRes"));
+    private final Column<Integer> version = Column.of(Integer.class, I18N.getString("version"));
 
     public GuestTable() {
-        table = new Table(name, room, idCard, age, info, id, idReservation);
+        table = new Table(name, room, idCard, age, info, id, idReservation, version);
+        table.setKeyColumn(id);
         guestDao = HotelSystemDao.getGuestDao();
-        guestDao.findAll().forEach(this::addGuest);
+        HotelSystemDao.getAsync().supply(() -> guestDao.findAll().stream().map(this::toRow).collect(Collectors.toList()))
+                .thenAccept(table::replaceAll)
+                .exceptionally(Message::showDataAccessError);
+        HotelSystemDao.getEventBus().subscribe(Guest.class, this::applyEvent);
         Menu menu = new Menu.Builder()
                 .addMenuItem(Menu.createMenuItem(I18N.getString("assignRoom"), KeyEvent.VK_O, I18N.getString("assignRoomDes"), 'o', this::assignRoomAction), Menu.MenuCondition.MORE_THAN_ZERO)
                 .addMenuItem(Menu.createMenuItem(I18N.getString("showInfo"), KeyEvent.VK_I, I18N.getString("showInfoDes"), 'i', this::showPersonalizedInfo), Menu.MenuCondition.EXACTLY_ONE)
                 .addMenuItem(Menu.createMenuItem(I18N.getString("edit"), KeyEvent.VK_E, I18N.getString("editDes"), 'e', this::guestEditAction), Menu.MenuCondition.EXACTLY_ONE)
                 .build();
         tableUI = new TableUI(menu, table);
-        tableUI.hideColumns(List.of(idCard, age, info, id, idReservation));
+        tableUI.hideColumns(List.of(idCard, age, info, id, idReservation, version));
         tableUI.addDoubleClickAction(this::showPersonalizedInfo);
         tableUI.sortColumnsOnShow(List.of(room));
     }
@@ -65,76 +70,67 @@ public class GuestTable {
                 return;
             }
         }
-        Object[] allRooms = getAvailableRooms(selected, resId);
+        HotelSystemDao.getAsync().supply(() -> getAvailableRooms(selected, resId))
+                .thenAccept(allRooms -> assignRoom(selected, allRooms))
+                .exceptionally(Message::showDataAccessError);
+    }
+
+    private void assignRoom(List<Guest> selected, Object[] allRooms) {
         if (allRooms.length == 0) {
             Message.showWarningDialog(I18N.getString("full"));
             return;
         }
         String selection = Message.showAllOptions(I18N.getString("assignRoom"), I18N.getString("chooseRoom"), allRooms);
         if (selection != null && selection.length() > 0) {
-            HotelSystemUI.getRoomTable().changeStatus(selection, Room.RoomStatus.OCCUPIED);
-            Arrays.stream(tableUI.getSelectedPositions()).forEach(i -> table.setValueAt(selection, i, room));
-            moveGuestsBetweenRooms(selected);
-            selected.forEach(guest -> { guest.setRoom(selection); guestDao.update(guest); });
-            HotelSystemUI.getFooter().calculate();
+            Long resId = selected.get(0).getReservationId();
+            HotelSystemDao.getAsync().run(() -> HotelSystemDao.getTransactionManager().run(() -> {
+                        // another desk sharing the database may have filled the room since the list was shown
+                        guestDao.lockTable();
+                        if (!HotelSystemDao.getRoomAvailabilityService()
+                                .findAssignableRooms(resId, selected.size()).contains(selection)) {
+                            throw new OptimisticLockException("Room " + selection
+                                    + " is no longer assignable to reservation " + resId);
+                        }
+                        List<String> emptiedRooms = findEmptiedRooms(selected);
+                        emptiedRooms.remove(selection);
+                        for (Guest guest : selected) {
+                            guest.setRoom(selection);
+                            guestDao.update(guest);
+                        }
+                        changeRoomStatus(selection, Room.RoomStatus.OCCUPIED);
+                        emptiedRooms.forEach(roomNumber -> changeRoomStatus(roomNumber, Room.RoomStatus.NOT_OCCUPIED));
+                    }))
+                    .exceptionally(Message::showDataAccessError);
         }
     }
 
-    public void createGuests(List<Guest> guests){
-        for (Guest guest : guests) {
-            guestDao.create(guest);
-            addGuest(guest);
+    private void changeRoomStatus(String roomKey, Room.RoomStatus status) {
+        Room changed = HotelSystemDao.getRepository().findRoom(roomKey);
+        if (changed.getStatus() != status) {
+            changed.setStatus(status);
+            HotelSystemDao.getRoomDao().update(changed);
         }
     }
 
-    public void deleteGuests(List<Guest> guests) {
-        for (Guest guest: guests) {
-            guestDao.delete(guest);
-            for (int i = 0; i < table.getRowCount(); i++) {
-                if (table.getRowValue(i, id).equals(guest.getId())) {
-                    table.removeRow(i);
-                    break;
-                }
-            }
-        }
+    public void saveGuests(List<Guest> guests){
+        List<Guest> saved = List.copyOf(guests);
+        HotelSystemDao.getAsync().run(() -> guestDao.createAll(saved))
+                .exceptionally(Message::showDataAccessError);
     }
 
     public JPanel getPanel() {
         return tableUI.getPanel();
     }
 
-    public void removeEditingRow() {
-        table.removeRow(tableUI.getSelectedPosition());
-    }
-
     private void showPersonalizedInfo() {
         tableUI.showPersonalizedInfo(List.of(name, idCard, age, info, room));
     }
 
     private Object[] getAvailableRooms(List<Guest> selected, Long resId) {
-        List<Guest> guests = HotelSystemDao.getGuestDao().findAll();
-        Map<String, Integer> occupied = new HashMap<>();
-        Set<String> present = new HashSet<>();
-        for (var guest : guests) {
-            var room = guest.getRoom();
-            if (room != null) {
-                occupied.put(room, occupied.getOrDefault(guest.getRoom(), 0) + 1);
-            }
-            if (resId.equals(guest.getReservationId())) {
-                present.add(room);
-            }
-        }
-        List<String> allRooms = new ArrayList<>();
-        for (var r : HotelSystemDao.getRoomDao().findAll()) {
-            if ((Room.RoomStatus.NOT_OCCUPIED.equals(r.getStatus()) || present.contains(r.getKey()))
-                    && selected.size() + occupied.getOrDefault(r.getKey(), 0) <= r.getBeds()) {
-                allRooms.add(r.getKey());
-            }
-        }
-        return allRooms.toArray();
+        return HotelSystemDao.getRoomAvailabilityService().findAssignableRooms(resId, selected.size()).toArray();
     }
 
-    private void moveGuestsBetweenRooms(List<Guest> guests) {
+    private List<String> findEmptiedRooms(List<Guest> guests) {
         Map<String, Integer> rooms = new HashMap<>();
         for (Guest guest : guests) {
             String checkingRoom = guest.getRoom();
@@ -142,11 +138,13 @@ public class GuestTable {
                 rooms.put(checkingRoom, rooms.getOrDefault(checkingRoom, 0) + 1);
             }
         }
+        List<String> emptiedRooms = new ArrayList<>();
         for (String roomNumber : rooms.keySet()) {
-            if(HotelSystemDao.getGuestDao().findByRoomKey(roomNumber).size() == rooms.get(roomNumber)) {
-                HotelSystemUI.getRoomTable().changeStatus(roomNumber, Room.RoomStatus.NOT_OCCUPIED);
+            if(HotelSystemDao.getRepository().countGuestsInRoom(roomNumber) == rooms.get(roomNumber)) {
+                emptiedRooms.add(roomNumber);
             }
         }
+        return emptiedRooms;
     }
 
     private void guestEditAction() {
@@ -159,7 +157,7 @@ public class GuestTable {
     }
 
     private Guest getRowGuest(int row) {
-        return new Guest(
+        Guest guest = new Guest(
                 table.getRowValue(row, name),
                 table.getRowValue(row, room),
                 table.getRowValue(row, idCard),
@@ -168,6 +166,8 @@ public class GuestTable {
                 table.getRowValue(row, idReservation),
                 table.getRowValue(row, id)
         );
+        guest.setVersion(table.getRowValue(row, version));
+        return guest;
     }
 
     private Guest getSelectedGuest() {
@@ -178,13 +178,32 @@ public class GuestTable {
         return Arrays.stream(tableUI.getSelectedPositions()).mapToObj(this::getRowGuest).collect(Collectors.toList());
     }
 
+    private void applyEvent(EntityEvent<Guest> event) {
+        Guest guest = event.getEntity();
+        int row = table.findRow(id, guest.getId());
+        if (event.getKind() == EntityEvent.Kind.DELETED) {
+            if (row >= 0) {
+                table.removeRow(row);
+            }
+        } else if (row >= 0) {
+            table.setRow(row, toRow(guest));
+        } else {
+            addGuest(guest);
+        }
+    }
+
     private void addGuest(Guest guest) {
-        table.addRow(guest.getName(),
+        table.addRow(toRow(guest));
+    }
+
+    private Object[] toRow(Guest guest) {
+        return new Object[]{guest.getName(),
                 guest.getRoom(),
                 guest.getIdCard(),
                 guest.getGeneration(),
                 guest.getInfo(),
                 guest.getId(),
-                guest.getReservationId());
+                guest.getReservationId(),
+                guest.getVersion()};
     }
 }
@@ -1,6 +1,9 @@
 package cz.muni.fi.group05.room03.ui.table;
 
+import cz.muni.fi.group05.room03.data.DataAccessException;
+import cz.muni.fi.group05.room03.data.EntityEvent;
 import cz.muni.fi.group05.room03.data.HotelSystemDao;
+import cz.muni.fi.group05.room03.model.Guest;
 import cz.muni.fi.group05.room03.model.Reservation;
 import cz.muni.fi.group05.room03.ui.I18N;
 import cz.muni.fi.group05.room03.ui.Menu;
@@ -9,22 +12,33 @@ import cz.muni.fi.group05.room03.ui.form.ReservationForm;
 import cz.muni.fi.group05.room03.ui.ContentPanelController.ContentPanelNames;
 import cz.muni.fi.group05.room03.ui.HotelSystemUI;
 import cz.muni.fi.group05.room03.data.ReservationDao;
+import cz.muni.fi.group05.room03.data.ReservationQuery;
 import cz.muni.fi.group05.room03.ui.table.util.Column;
-import cz.muni.fi.group05.room03.ui.table.util.Table;
+import cz.muni.fi.group05.room03.ui.table.util.PageQuery;
+import cz.muni.fi.group05.room03.ui.table.util.PagedTable;
 import cz.muni.fi.group05.room03.ui.table.util.TableUI;
 
 import javax.swing.JPanel;
+import javax.swing.SortOrder;
 import java.awt.event.KeyEvent;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.IntStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class ReservationTable {
 
     private static final I18N I18N = new I18N(ReservationTable.class);
+    private static final int PAGE_SIZE = 200;
+    private static final int CACHED_PAGES = 25;
 
     private final ReservationDao reservationDao;
-    private final Table table;
+    private final PagedTable table;
     private final TableUI tableUI;
 
     private final Column<String> name = Column.of(String.class, I18N.getString("name"));
@@ -37,11 +51,30 @@ public class ReservationTable {
     private final Column<Reservation.ReservationState> state = Column.of(Reservation.ReservationState.class, I18N.getString("state"));
     private final Column<Integer> daysToPerform = Column.of(Integer.class, I18N.getString("days"));
     private final Column<Long> id = Column.of(Long.class, I18N.getString("id"));
+    private final Column<Integer> version = Column.of(Integer.class, I18N.getString("version"));
+    private final Map<Column<?>, ReservationQuery.Field> fields = new HashMap<>();
 
     public ReservationTable() {
-        table = new Table(name, dateFrom, dateTo, telephone, email, people, info, state, daysToPerform, id);
+        table = new PagedTable(new ReservationPages(), PAGE_SIZE, CACHED_PAGES,
+                name, dateFrom, dateTo, telephone, email, people, info, state, daysToPerform, id, version);
+        table.setKeyColumn(id);
+        fields.put(name, ReservationQuery.Field.NAME);
+        fields.put(dateFrom, ReservationQuery.Field.DATE_FROM);
+        fields.put(dateTo, ReservationQuery.Field.DATE_TO);
+        fields.put(telephone, ReservationQuery.Field.TELEPHONE);
+        fields.put(email, ReservationQuery.Field.EMAIL);
+        fields.put(people, ReservationQuery.Field.PEOPLE);
+        fields.put(info, ReservationQuery.Field.INFO);
+        fields.put(state, ReservationQuery.Field.STATE);
+        fields.put(daysToPerform, ReservationQuery.Field.DAYS_TO_PERFORM);
+        fields.put(id, ReservationQuery.Field.ID);
+        fields.put(version, ReservationQuery.Field.VERSION);
         reservationDao = HotelSystemDao.getReservationDao();
-        reservationDao.findAll().forEach(this::addReservation);
+        Map<Column<?>, SortOrder> shownOrder = new LinkedHashMap<>();
+        shownOrder.put(daysToPerform, SortOrder.ASCENDING);
+        shownOrder.put(state, SortOrder.ASCENDING);
+        table.setSortOrders(shownOrder);
+        HotelSystemDao.getEventBus().subscribe(Reservation.class, this::applyEvent);
         Menu menu = new Menu.Builder()
                 .addMenuItem(Menu.createMenuItem(I18N.getString("showInfo"), KeyEvent.VK_S, I18N.getString("showInfoDes"), 'i', this::showPersonalizedInfo), Menu.MenuCondition.EXACTLY_ONE)
                 .addMenuItem(Menu.createMenuItem(I18N.getString("checkIn"), KeyEvent.VK_I, I18N.getString("checkInDes"), 'i', this::createCheckInButtonAction), Menu.MenuCondition.EXACTLY_ONE)
@@ -49,34 +82,56 @@ public class ReservationTable {
                 .addMenuItem(Menu.createMenuItem(I18N.getString("cancel"), KeyEvent.VK_C, I18N.getString("cancelDes"), 'c', this::cancelAction), Menu.MenuCondition.EXACTLY_ONE)
                 .build();
         tableUI = new TableUI(menu, table);
-        tableUI.hideColumns(List.of(info, people, daysToPerform, id));
+        tableUI.hideColumns(List.of(info, people, daysToPerform, id, version));
         tableUI.addDoubleClickAction(this::showPersonalizedInfo);
         tableUI.sortColumnsOnShow(List.of(daysToPerform, state));
     }
 
     private void showPersonalizedInfo() {
-        tableUI.showPersonalizedInfo(List.of(name, telephone, people, state, info));
+        if (isSelectedRowLoaded()) {
+            tableUI.showPersonalizedInfo(List.of(name, telephone, people, state, info));
+        }
     }
 
     private void cancelAction() {
-        int selectedRow = tableUI.getSelectedPosition();
-        Reservation reservation = getSelectedReservation();
-        if (reservation.getState() != Reservation.ReservationState.UPCOMING) {
-            Message.showWarningDialog(I18N.getString("cancelNotUpcomingResWarn"));
-            return;
-        }
-        if (Message.showYesNoDialog(I18N.getString("checkCancelReservationMessage"),
-                I18N.getString("checkCancelReservationTitle"))) {
-            table.setValueAt(Reservation.ReservationState.CANCELED, selectedRow, state);
-            table.setValueAt(Integer.MAX_VALUE, selectedRow, daysToPerform);
-            reservation.setState(Reservation.ReservationState.CANCELED);
-            reservationDao.update(reservation);
-            table.fireTableRowsInserted(selectedRow, selectedRow);
+        withSelectedReservation(reservation -> {
+            if (reservation.getState() != Reservation.ReservationState.UPCOMING) {
+                Message.showWarningDialog(I18N.getString("cancelNotUpcomingResWarn"));
+                return;
+            }
+            if (Message.showYesNoDialog(I18N.getString("checkCancelReservationMessage"),
+                    I18N.getString("checkCancelReservationTitle"))) {
+                reservation.setState(Reservation.ReservationState.CANCELED);
+                HotelSystemDao.getAsync().run(() -> reservationDao.update(reservation))
+                        .exceptionally(Message::showDataAccessError);
+            }
+        });
+    }
+
+    private void applyEvent(EntityEvent<Reservation> event) {
+        if (event.getKind() == EntityEvent.Kind.UPDATED) {
+            table.updateRow(toRow(event.getEntity()));
+        } else {
+            table.refresh();
         }
     }
 
-    private void addReservation(Reservation reservation) {
-        table.addRow(reservation.getName(),
+    private ReservationQuery toReservationQuery(PageQuery query) {
+        String filter = query.getFilter().toLowerCase();
+        // the database knows states by their names, the search text matches their translations
+        List<Reservation.ReservationState> states = Arrays.stream(Reservation.ReservationState.values())
+                .filter(shown -> shown.toString().toLowerCase().contains(filter))
+                .collect(Collectors.toList());
+        var reservationQuery = new ReservationQuery()
+                .search(query.getFilter(), query.getFilterColumns().stream().map(fields::get).collect(Collectors.toList()))
+                .searchStates(states);
+        query.getSortOrders().forEach((column, order) ->
+                reservationQuery.orderBy(fields.get(column), order == SortOrder.ASCENDING));
+        return reservationQuery;
+    }
+
+    private Object[] toRow(Reservation reservation) {
+        return new Object[]{reservation.getName(),
                 reservation.getDateFrom(),
                 reservation.getDateTo(),
                 reservation.getTelephone(),
@@ -85,47 +140,31 @@ public class ReservationTable {
                 reservation.getInfo(),
                 reservation.getState(),
                 reservation.getDaysToPerform(),
-                reservation.getId());
+                reservation.getId(),
+                reservation.getVersion()};
     }
 
-    public void createReservation(Reservation reservation) {
-        reservationDao.create(reservation);
-        addReservation(reservation);
-    }
-
-    public void checkInReservation() {
-        Reservation reservation = getSelectedReservation();
-        reservation.setState(Reservation.ReservationState.DOING);
-        reservationDao.update(reservation);
-        table.setValueAt(Reservation.ReservationState.DOING, tableUI.getSelectedPosition(), state);
-        table.setValueAt(reservation.getDaysToPerform(), tableUI.getSelectedPosition(), daysToPerform);
-        table.fireTableDataChanged();
-        HotelSystemUI.getFooter().calculate();
+    public void checkInReservation(Long reservationId, List<Guest> guests) {
+        List<Guest> checkedIn = List.copyOf(guests);
+        HotelSystemDao.getAsync().run(() -> HotelSystemDao.getTransactionManager().run(() -> {
+                    Reservation reservation = reservationDao.findById(reservationId);
+                    if (reservation == null) {
+                        throw new DataAccessException("Failed to check in non-existing reservation " + reservationId);
+                    }
+                    reservation.setState(Reservation.ReservationState.DOING);
+                    HotelSystemDao.getGuestDao().createAll(checkedIn);
+                    reservationDao.update(reservation);
+                }))
+                .exceptionally(Message::showDataAccessError);
     }
 
     public JPanel getPanel() {
         return tableUI.getPanel();
     }
 
-    public void checkOutReservation(Reservation reservation) {
-        Long reservationId = reservation.getId();
-        reservation.setState(Reservation.ReservationState.ENDED);
-        reservationDao.update(reservation);
-        int rowIndex = IntStream.range(0, table.getRowCount())
-                .filter(i -> table.getRowValue(i, id).equals(reservationId)).findFirst().orElse(-1);
-        table.setValueAt(Reservation.ReservationState.ENDED, rowIndex, state);
-        table.setValueAt(reservation.getDaysToPerform(), rowIndex, daysToPerform);
-        table.fireTableDataChanged();
-    }
-
-    public void removeIfSelected() {
-        var row = tableUI.getSelectedPosition();
-        if (row >= 0) {
-            table.removeRow(row);
-        }
-    }
-
     private void createCheckInButtonAction() {
+        if (!isSelectedRowLoaded())
+            return;
         int selectedPosition = tableUI.getSelectedPosition();
         if (Reservation.ReservationState.UPCOMING == table.getRowValue(selectedPosition, state)) {
             HotelSystemUI.getGuestForm().setNumberToCheckIn(table.getRowValue(selectedPosition, people));
@@ -137,28 +176,69 @@ public class ReservationTable {
     }
 
     private void reservationEditAction() {
-        Reservation reservation = getSelectedReservation();
-        HotelSystemUI.getPanelController().switchPanel(ContentPanelNames.RESERVATION_FORM);
-        ReservationForm reservationForm = HotelSystemUI.getReservationForm();
-        reservationForm.fillBasedOn(reservation);
-        reservationForm.setState(reservation.getState());
+        withSelectedReservation(reservation -> {
+            HotelSystemUI.getPanelController().switchPanel(ContentPanelNames.RESERVATION_FORM);
+            ReservationForm reservationForm = HotelSystemUI.getReservationForm();
+            reservationForm.fillBasedOn(reservation);
+            reservationForm.setState(reservation.getState());
+        });
+    }
+
+    // rows of a page which is still being fetched have no values yet
+    private boolean isSelectedRowLoaded() {
+        if (table.getRowValue(tableUI.getSelectedPosition(), id) == null) {
+            Message.showWarningDialog(I18N.getString("notLoadedResWarn"));
+            return false;
+        }
+        return true;
+    }
+
+    // the reservation is loaded again, so it is edited with its current version
+    private void withSelectedReservation(Consumer<Reservation> action) {
+        if (!isSelectedRowLoaded())
+            return;
+        Long selectedId = table.getRowValue(tableUI.getSelectedPosition(), id);
+        HotelSystemDao.getAsync().supply(() -> reservationDao.findById(selectedId))
+                .thenAccept(reservation -> {
+                    if (reservation == null) {
+                        Message.showWarningDialog(I18N.getString("missingResWarn"));
+                        table.refresh();
+                    } else {
+                        action.accept(reservation);
+                    }
+                })
+                .exceptionally(Message::showDataAccessError);
     }
 
-    private Reservation getRowReservation(int row) {
-        return new Reservation(
-                table.getRowValue(row, name),
-                table.getRowValue(row, dateFrom),
-                table.getRowValue(row, dateTo),
-                table.getRowValue(row, telephone),
-                table.getRowValue(row, email),
-                table.getRowValue(row, people),
-                table.getRowValue(row, info),
-                table.getRowValue(row, state),
-                table.getRowValue(row, id)
-        );
+    private static void reportFailure(Object result, Throwable ex) {
+        if (ex != null) {
+            Message.showDataAccessError(ex);
+        }
     }
 
-    private Reservation getSelectedReservation() {
-        return getRowReservation(tableUI.getSelectedPosition());
+    // queries replaced while waiting for the data thread, such as searches typed further, are not run
+    private class ReservationPages implements PagedTable.PageSource {
+
+        @Override
+        public CompletableFuture<Integer> count(PageQuery query) {
+            ReservationQuery reservationQuery = toReservationQuery(query);
+            return HotelSystemDao.getAsync().supply(() -> query != table.getQuery() ? 0
+                            : reservationDao.count(reservationQuery))
+                    .whenComplete(ReservationTable::reportFailure);
+        }
+
+        @Override
+        public CompletableFuture<List<Object[]>> fetch(PageQuery query, int offset, int limit) {
+            return fetch(query, offset, limit, null);
+        }
+
+        @Override
+        public CompletableFuture<List<Object[]>> fetch(PageQuery query, int offset, int limit, Object previousKey) {
+            ReservationQuery reservationQuery = toReservationQuery(query);
+            return HotelSystemDao.getAsync().supply(() -> query != table.getQuery() ? List.<Object[]>of()
+                            : reservationDao.findPage(reservationQuery, (Long) previousKey, offset, limit).stream()
+                                    .map(ReservationTable.this::toRow).collect(Collectors.toList()))
+                    .whenComplete(ReservationTable::reportFailure);
+        }
     }
 }
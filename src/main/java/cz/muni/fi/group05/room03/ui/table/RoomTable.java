@@ -1,11 +1,11 @@
 package cz.muni.fi.group05.room03.ui.table;
 
+import cz.muni.fi.group05.room03.data.EntityEvent;
 import cz.muni.fi.group05.room03.data.HotelSystemDao;
 import cz.muni.fi.group05.room03.model.Room;
 import cz.muni.fi.group05.room03.model.Reservation;
 import cz.muni.fi.group05.room03.data.RoomDao;
 import cz.muni.fi.group05.room03.model.Guest;
-import cz.muni.fi.group05.room03.ui.HotelSystemUI;
 import cz.muni.fi.group05.room03.ui.I18N;
 import cz.muni.fi.group05.room03.ui.Menu;
 import cz.muni.fi.group05.room03.ui.Message;
@@ -19,6 +19,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class RoomTable {
@@ -33,24 +34,39 @@ public class RoomTable {
     private final Column<Integer> numberOfBeds = Column.of(Integer.class, I18N.getString("bedNum"));
     private final Column<Room.RoomStatus> status = Column.of(Room.RoomStatus.class, I18N.getString("status"));
     private final Column<Double> price = Column.of(Double.class, I18N.getString("price"));
+    private final Column<Integer> version = Column.of(Integer.class, I18N.getString("version"));
 
     public RoomTable() {
-        table = new Table(key, type, numberOfBeds, status, price);
+        table = new Table(key, type, numberOfBeds, status, price, version);
+        table.setKeyColumn(key);
         roomDao = HotelSystemDao.getRoomDao();
-        roomDao.findAll().forEach(room -> table.addRow(room.getKey(), room.getType(), room.getBeds(), room.getStatus(), room.getPrice()));
+        HotelSystemDao.getAsync().supply(() -> roomDao.findAll().stream().map(this::toRow).collect(Collectors.toList()))
+                .thenAccept(table::replaceAll)
+                .exceptionally(Message::showDataAccessError);
+        HotelSystemDao.getEventBus().subscribe(Room.class, this::applyEvent);
         Menu menu = new Menu.Builder()
                 .addMenuItem(Menu.createMenuItem(I18N.getString("checkOut"), KeyEvent.VK_O, I18N.getString("checkOutDes"), 'o', this::checkOut), Menu.MenuCondition.MORE_THAN_ZERO)
                 .addMenuItem(Menu.createMenuItem(I18N.getString("showInfo"), KeyEvent.VK_S, I18N.getString("showInfoDes"), 's', this::showPersonalizedInfo), Menu.MenuCondition.EXACTLY_ONE)
                 .addMenuItem(Menu.createMenuItem(I18N.getString("edit"), KeyEvent.VK_E, I18N.getString("editDes"), 'e', this::roomEditAction), Menu.MenuCondition.EXACTLY_ONE)
                 .build();
         tableUI = new TableUI(menu, table);
+        tableUI.hideColumns(List.of(version));
         tableUI.addDoubleClickAction(this::showPersonalizedInfo);
         tableUI.sortColumnsOnShow(List.of(key));
     }
 
     public void checkOut() {
         Map<String, Room> rooms = getSelectedRooms().stream().collect(Collectors.toMap(Room::getKey, room -> room));
-        List<Guest> guests = HotelSystemDao.getGuestDao().findAll().stream().filter(guest -> rooms.containsKey(guest.getRoom())).collect(Collectors.toList());
+        HotelSystemDao.getAsync().supply(() -> findGuestsInRooms(rooms.keySet()))
+                .thenAccept(guests -> checkOut(rooms, guests))
+                .exceptionally(Message::showDataAccessError);
+    }
+
+    private List<Guest> findGuestsInRooms(Set<String> roomKeys) {
+        return HotelSystemDao.getRepository().findGuestsInRooms(roomKeys);
+    }
+
+    private void checkOut(Map<String, Room> rooms, List<Guest> guests) {
         if (guests.size() == 0 || rooms.values().stream().anyMatch(room -> room.getStatus() == Room.RoomStatus.NOT_OCCUPIED)) {
             Message.showWarningDialog(I18N.getString("checkOutNotOccupiedWarn"));
             return;
@@ -60,37 +76,49 @@ public class RoomTable {
             Message.showWarningDialog(I18N.getString("sameResRoomsWarn"));
             return;
         }
-        Reservation reservation = HotelSystemDao.getReservationDao().findById(resId);
-        long duration = ChronoUnit.DAYS.between(reservation.getDateFrom(), reservation.getDateTo());
-        double totalPrice = guests.stream().mapToDouble(guest -> rooms.get(guest.getRoom()).getPrice() * duration).sum();
-        HotelSystemUI.getGuestTable().deleteGuests(guests);
-        int[] selectedRows = tableUI.getSelectedPositions();
-        int i = 0;
-        for (var room : rooms.values()) {
-            room.setStatus(Room.RoomStatus.NOT_OCCUPIED);
-            roomDao.update(room);
-            table.setValueAt(Room.RoomStatus.NOT_OCCUPIED, selectedRows[i++], status);
-        }
-        if (HotelSystemDao.getGuestDao().findByResId(resId).isEmpty()) {
-            HotelSystemUI.getReservationsTable().checkOutReservation(reservation);
-        }
-        HotelSystemUI.getFooter().calculate();
-        showPrice(guests.size(), totalPrice);
-    }
-
-    public void changeStatus(String selectedRoomKey, Room.RoomStatus roomStatus) {
-        for (int i = 0; i < table.getRowCount(); i++) {
-            String key = table.getRowValue(i, this.key);
-            if (key.equals(selectedRoomKey)) {
-                Room room = roomDao.findByKey(selectedRoomKey);
-                room.setStatus(roomStatus);
-                roomDao.update(room);
-                table.setValueAt(roomStatus, i, status);
-                break;
+        HotelSystemDao.getAsync().supply(() -> checkOutInDatabase(rooms, guests, resId))
+                .thenAccept(totalPrice -> showPrice(guests.size(), totalPrice))
+                .exceptionally(Message::showDataAccessError);
+    }
+
+    private double checkOutInDatabase(Map<String, Room> rooms, List<Guest> guests, long resId) {
+        var guestDao = HotelSystemDao.getGuestDao();
+        var reservationDao = HotelSystemDao.getReservationDao();
+        return HotelSystemDao.getTransactionManager().call(() -> {
+            Reservation reservation = HotelSystemDao.getRepository().findReservation(resId);
+            long duration = ChronoUnit.DAYS.between(reservation.getDateFrom(), reservation.getDateTo());
+            double totalPrice = roomDao.sumGuestNightlyPrice(rooms.keySet()) * duration;
+            guests.forEach(guestDao::delete);
+            for (var room : rooms.values()) {
+                room.setStatus(Room.RoomStatus.NOT_OCCUPIED);
             }
+            roomDao.updateAll(List.copyOf(rooms.values()));
+            if (guestDao.findByResId(resId).isEmpty()) {
+                reservation.setState(Reservation.ReservationState.ENDED);
+                reservationDao.update(reservation);
+            }
+            return totalPrice;
+        });
+    }
+
+    private void applyEvent(EntityEvent<Room> event) {
+        Room room = event.getEntity();
+        int row = table.findRow(key, room.getKey());
+        if (event.getKind() == EntityEvent.Kind.DELETED) {
+            if (row >= 0) {
+                table.removeRow(row);
+            }
+        } else if (row >= 0) {
+            table.setRow(row, toRow(room));
+        } else {
+            table.addRow(toRow(room));
         }
     }
 
+    private Object[] toRow(Room room) {
+        return new Object[]{room.getKey(), room.getType(), room.getBeds(), room.getStatus(), room.getPrice(), room.getVersion()};
+    }
+
     public JPanel getPanel() {
         return tableUI.getPanel();
     }
@@ -113,16 +141,22 @@ public class RoomTable {
             Message.showWarningDialog(I18N.getString("tooManyBeds"));
             return;
         }
-        Room room = roomDao.findByKey(table.getRowValue(selectedRow, key));
-        if (newNumberOfBeds < room.getBeds() && newNumberOfBeds <
-                HotelSystemDao.getGuestDao().findAll().stream()
-                        .filter(guest -> room.getKey().equals(guest.getRoom())).count()) {
-            Message.showWarningDialog(I18N.getString("full"));
-            return;
-        }
-        table.setValueAt(newNumberOfBeds, selectedRow, numberOfBeds);
-        room.setBeds(newNumberOfBeds);
-        roomDao.update(room);
+        int beds = newNumberOfBeds;
+        Room room = getRowRoom(selectedRow);
+        HotelSystemDao.getAsync().supply(() -> {
+                    if (beds < room.getBeds() && beds < HotelSystemDao.getRepository().countGuestsInRoom(room.getKey())) {
+                        return false;
+                    }
+                    room.setBeds(beds);
+                    roomDao.update(room);
+                    return true;
+                })
+                .thenAccept(updated -> {
+                    if (!updated) {
+                        Message.showWarningDialog(I18N.getString("full"));
+                    }
+                })
+                .exceptionally(Message::showDataAccessError);
     }
 
     private String getStringAboutGuest(Guest guest) {
@@ -141,8 +175,14 @@ public class RoomTable {
 
     private void showPersonalizedInfo() {
         Room room = getSelectedRoom();
+        HotelSystemDao.getAsync().supply(() -> getInfoAboutRoom(room))
+                .thenAccept(info -> Message.showInformationDialog(I18N.getString("infoAboutRoom"), info))
+                .exceptionally(Message::showDataAccessError);
+    }
+
+    private String getInfoAboutRoom(Room room) {
         String key = room.getKey();
-        List<Guest> guests = HotelSystemDao.getGuestDao().findByRoomKey(key);
+        List<Guest> guests = HotelSystemDao.getRepository().findGuestsInRoom(key);
         StringBuilder info = new StringBuilder();
         if (guests.isEmpty()) {
             info.append(I18N.getString("noGuests")).append(" ").append(key);
@@ -152,8 +192,8 @@ public class RoomTable {
                 info.append(getStringAboutGuest(guest)).append("\n");
             }
             long resId = guests.get(0).getReservationId();
-            int tax = Integer.parseInt(HotelSystemDao.getImportantDataDao().findByKey("TAX"));
-            Reservation reservation = HotelSystemDao.getReservationDao().findById(resId);
+            int tax = HotelSystemDao.getImportantDataDao().getInt("TAX");
+            Reservation reservation = HotelSystemDao.getRepository().findReservation(resId);
             double totalPrice = room.getPrice() * ChronoUnit.DAYS.between(reservation.getDateFrom(), reservation.getDateTo());
             info.append(I18N.getString("priceWithoutTax")).append(": ").append(String.format("%.2f", totalPrice)).append(System.lineSeparator());
             final double taxVal = (totalPrice / 100) * tax;
@@ -162,16 +202,18 @@ public class RoomTable {
             info.append(I18N.getString("tax")).append(" (").append(tax).append("%): ").append(String.format("%.2f", taxVal)).append(System.lineSeparator());
             info.append(I18N.getString("totalPrice")).append(": ").append(String.format("%.2f", totalPrice)).append(System.lineSeparator());
         }
-        Message.showInformationDialog(I18N.getString("infoAboutRoom"), info.toString());
+        return info.toString();
     }
 
     private Room getRowRoom(int row) {
-        return new Room(
+        Room room = new Room(
                 table.getRowValue(row, key),
                 table.getRowValue(row, type),
                 table.getRowValue(row, numberOfBeds),
                 table.getRowValue(row, status),
                 table.getRowValue(row, price));
+        room.setVersion(table.getRowValue(row, version));
+        return room;
     }
 
     private Room getSelectedRoom() {
@@ -183,7 +225,7 @@ public class RoomTable {
     }
 
     private void showPrice(int people, double price) {
-        int tax = Integer.parseInt(HotelSystemDao.getImportantDataDao().findByKey("TAX"));
+        int tax = HotelSystemDao.getImportantDataDao().getInt("TAX");
         double taxVal = price * tax / 100;
         String info = I18N.getString("numOfPeople") + ":\t" +
                 people + "\n" +
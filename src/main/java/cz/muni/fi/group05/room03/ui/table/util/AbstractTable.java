@@ -0,0 +1,95 @@
+package cz.muni.fi.group05.room03.ui.table.util;
+
+import javax.swing.RowSorter;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Typed columns of a table shown by {@link TableUI}. Subclasses decide where rows are kept and how they are
+ * sorted and filtered.
+ */
+public abstract class AbstractTable extends AbstractTableModel {
+
+    private final List<Column<?>> columns;
+    private final Map<Column<?>, Integer> columnIndexes = new HashMap<>();
+
+    protected AbstractTable(Column<?>... columns) {
+        this.columns = asArrayList(columns);
+        if (this.columns.size() != this.columns.stream().map(Column::getName).collect(Collectors.toSet()).size())
+            throw new IllegalArgumentException("Table Error: Columns must have unique names!");
+        for (int i = 0; i < this.columns.size(); i++) {
+            columnIndexes.put(this.columns.get(i), i);
+        }
+    }
+
+    public abstract <T> T getRowValue(int row, Column<T> column);
+
+    abstract RowSorter<? extends TableModel> createRowSorter();
+
+    abstract void filterRows(RowSorter<? extends TableModel> sorter, String text, int[] columns);
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    public String getColumnName(int col) {
+        return columns.get(col).getName();
+    }
+
+    public Class<?> getColumnClass(int col) {
+        return columns.get(col).getType();
+    }
+
+    public boolean isCellEditable(int row, int col) {
+       return false;
+    }
+
+    public int findColumn(Column<?> column) {
+        return columnIndexes.getOrDefault(column, -1);
+    }
+
+    public List<String> getColumnNames() {
+        return columns.stream().map(Column::getName).collect(Collectors.toList());
+    }
+
+    Column<?> getColumn(int col) {
+        return columns.get(col);
+    }
+
+    @SafeVarargs
+    private static <T> List<T> asArrayList(T ... items) {
+        List<T> list = new ArrayList<>();
+        Collections.addAll(list, items);
+        return list;
+    }
+
+    void assertColumnMatchesColumn(int column, Object object) {
+        Class<?> newType = object.getClass();
+        Class<?> definedType = columns.get(column).getType();
+        if (!newType.equals(definedType))
+            throw new IllegalArgumentException(String.format(
+                    "Column %d of type %s does not match defined table column type of %s!",
+                    column, newType, definedType));
+    }
+
+    void assertRowMatchesColumns(Object[] row)  {
+        if (row.length != columns.size())
+            throw new IllegalArgumentException("Row size does not match column size!");
+        for (int i = 0; i < row.length; i++) {
+            assertColumnMatchesColumn(i, row[i]);
+        }
+    }
+
+    int assertIndexedColumn(Column<?> column) {
+        Integer index = columnIndexes.get(column);
+        if (index == null)
+            throw new IllegalArgumentException("Table Error: getSelectedRowClass could not find column");
+        return index;
+    }
+}
@@ -4,14 +4,23 @@ public class Column<T> {
 
     private final Class<T> type;
     private final String name;
+    private final boolean dictionaryEncoded;
 
-    private Column(Class<T> type, String name) {
+    private Column(Class<T> type, String name, boolean dictionaryEncoded) {
         this.type = type;
         this.name = name.toUpperCase();
+        this.dictionaryEncoded = dictionaryEncoded;
     }
 
     public static <T> Column<T> of(Class<T> type, String name) {
-        return new Column<>(type, name);
+        return new Column<>(type, name, false);
+    }
+
+    /**
+     * Column whose values repeat a lot, such as room keys, stored as codes into a table of distinct values.
+     */
+    public static <T> Column<T> ofDictionary(Class<T> type, String name) {
+        return new Column<>(type, name, true);
     }
 
     public String getName() {
@@ -22,6 +31,10 @@ public class Column<T> {
         return type;
     }
 
+    public boolean isDictionaryEncoded() {
+        return dictionaryEncoded;
+    }
+
     @SuppressWarnings("unchecked")
     public T valueOf(Object obj) {
         if (!type.isInstance(obj))
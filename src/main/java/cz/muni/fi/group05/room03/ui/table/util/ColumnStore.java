@@ -0,0 +1,272 @@
+package cz.muni.fi.group05.room03.ui.table.util;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Values of one table column kept in a primitive array where the column type allows it.
+ * The table owns the row count, stores only hold the values and grow on request.
+ */
+abstract class ColumnStore {
+
+    static ColumnStore forColumn(Column<?> column) {
+        Class<?> type = column.getType();
+        if (column.isDictionaryEncoded()) {
+            return new DictionaryStore();
+        }
+        if (type == Integer.class) {
+            return new IntStore();
+        }
+        if (type == Long.class) {
+            return new LongStore();
+        }
+        if (type == Double.class) {
+            return new DoubleStore();
+        }
+        if (type == LocalDate.class) {
+            return new EpochDayStore();
+        }
+        if (type.isEnum() && type.getEnumConstants().length <= 256) {
+            return new EnumStore(type.getEnumConstants());
+        }
+        return new ObjectStore();
+    }
+
+    abstract Object get(int row);
+
+    abstract void set(int row, Object value);
+
+    abstract void resize(int capacity);
+
+    /** Moves rows after the removed one up by one, {@code size} is the row count before removal. */
+    abstract void remove(int row, int size);
+
+    abstract void clear();
+
+    private static final class IntStore extends ColumnStore {
+
+        private int[] values = new int[0];
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = (Integer) value;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void remove(int row, int size) {
+            System.arraycopy(values, row + 1, values, row, size - row - 1);
+        }
+
+        @Override
+        void clear() {
+            values = new int[0];
+        }
+    }
+
+    private static final class LongStore extends ColumnStore {
+
+        private long[] values = new long[0];
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = (Long) value;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void remove(int row, int size) {
+            System.arraycopy(values, row + 1, values, row, size - row - 1);
+        }
+
+        @Override
+        void clear() {
+            values = new long[0];
+        }
+    }
+
+    private static final class DoubleStore extends ColumnStore {
+
+        private double[] values = new double[0];
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = (Double) value;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void remove(int row, int size) {
+            System.arraycopy(values, row + 1, values, row, size - row - 1);
+        }
+
+        @Override
+        void clear() {
+            values = new double[0];
+        }
+    }
+
+    private static final class EpochDayStore extends ColumnStore {
+
+        private int[] days = new int[0];
+
+        @Override
+        Object get(int row) {
+            return LocalDate.ofEpochDay(days[row]);
+        }
+
+        @Override
+        void set(int row, Object value) {
+            days[row] = Math.toIntExact(((LocalDate) value).toEpochDay());
+        }
+
+        @Override
+        void resize(int capacity) {
+            days = Arrays.copyOf(days, capacity);
+        }
+
+        @Override
+        void remove(int row, int size) {
+            System.arraycopy(days, row + 1, days, row, size - row - 1);
+        }
+
+        @Override
+        void clear() {
+            days = new int[0];
+        }
+    }
+
+    private static final class EnumStore extends ColumnStore {
+
+        private final Object[] constants;
+        private byte[] ordinals = new byte[0];
+
+        private EnumStore(Object[] constants) {
+            this.constants = constants;
+        }
+
+        @Override
+        Object get(int row) {
+            return constants[ordinals[row] & 0xFF];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            ordinals[row] = (byte) ((Enum<?>) value).ordinal();
+        }
+
+        @Override
+        void resize(int capacity) {
+            ordinals = Arrays.copyOf(ordinals, capacity);
+        }
+
+        @Override
+        void remove(int row, int size) {
+            System.arraycopy(ordinals, row + 1, ordinals, row, size - row - 1);
+        }
+
+        @Override
+        void clear() {
+            ordinals = new byte[0];
+        }
+    }
+
+    private static final class DictionaryStore extends ColumnStore {
+
+        private final List<Object> dictionary = new ArrayList<>();
+        private final Map<Object, Integer> codesByValue = new HashMap<>();
+        private int[] codes = new int[0];
+
+        @Override
+        Object get(int row) {
+            return dictionary.get(codes[row]);
+        }
+
+        @Override
+        void set(int row, Object value) {
+            codes[row] = codesByValue.computeIfAbsent(value, key -> {
+                dictionary.add(key);
+                return dictionary.size() - 1;
+            });
+        }
+
+        @Override
+        void resize(int capacity) {
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        @Override
+        void remove(int row, int size) {
+            System.arraycopy(codes, row + 1, codes, row, size - row - 1);
+        }
+
+        @Override
+        void clear() {
+            codes = new int[0];
+            dictionary.clear();
+            codesByValue.clear();
+        }
+    }
+
+    private static final class ObjectStore extends ColumnStore {
+
+        private Object[] values = new Object[0];
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void remove(int row, int size) {
+            System.arraycopy(values, row + 1, values, row, size - row - 1);
+            values[size - 1] = null;
+        }
+
+        @Override
+        void clear() {
+            values = new Object[0];
+        }
+    }
+}
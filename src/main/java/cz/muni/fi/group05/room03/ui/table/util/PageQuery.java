@@ -0,0 +1,42 @@
+package cz.muni.fi.group05.room03.ui.table.util;
+
+import javax.swing.SortOrder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filter text and sort order a {@link PagedTable} asks its page source for.
+ */
+public final class PageQuery {
+
+    private final String filter;
+    private final List<Column<?>> filterColumns;
+    private final Map<Column<?>, SortOrder> sortOrders;
+
+    PageQuery(String filter, List<Column<?>> filterColumns, Map<Column<?>, SortOrder> sortOrders) {
+        this.filter = filter;
+        this.filterColumns = List.copyOf(filterColumns);
+        this.sortOrders = Collections.unmodifiableMap(new LinkedHashMap<>(sortOrders));
+    }
+
+    /**
+     * Returns the text rows must contain, ignoring case, in at least one of the filter columns.
+     * Empty text matches every row.
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    public List<Column<?>> getFilterColumns() {
+        return filterColumns;
+    }
+
+    /**
+     * Returns columns to sort by, the first column is the primary one.
+     */
+    public Map<Column<?>, SortOrder> getSortOrders() {
+        return sortOrders;
+    }
+}
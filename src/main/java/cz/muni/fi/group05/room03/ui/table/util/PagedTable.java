@@ -0,0 +1,321 @@
+package cz.muni.fi.group05.room03.ui.table.util;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Table whose rows stay in the page source. Only the row count is known up front, rows are fetched a page at
+ * a time when the view first asks for them and only the most recently used pages are kept. Sorting and filtering
+ * are done by the source as well.
+ * <p>
+ * Rows of a page which is still being fetched have no values, the table notifies listeners once it arrives.
+ */
+public class PagedTable extends AbstractTable {
+
+    private static final int MAX_SORT_KEYS = 3;
+
+    private final PageSource source;
+    private final int pageSize;
+    private final Map<Integer, List<Object[]>> pages;
+    private final Set<Integer> pendingPages = new HashSet<>();
+    // read by page sources off the event thread to skip work for queries which were already replaced
+    private volatile PageQuery query = new PageQuery("", List.of(), Map.of());
+    private int keyColumn = -1;
+    private int rowCount;
+    private boolean counting;
+    private int generation;
+
+    public PagedTable(PageSource source, int pageSize, int cachedPages, Column<?>... columns) {
+        super(columns);
+        if (pageSize < 1 || cachedPages < 1)
+            throw new IllegalArgumentException(String.format(
+                    "Table Error: Page size %d and cached pages %d must be positive", pageSize, cachedPages));
+        this.source = source;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Object[]>> eldest) {
+                return size() > cachedPages;
+            }
+        };
+    }
+
+    /**
+     * Declares the column whose values identify rows, so fetched rows can be replaced by {@link #updateRow(Object...)}.
+     */
+    public void setKeyColumn(Column<?> column) {
+        keyColumn = assertIndexedColumn(column);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public Object getValueAt(int row, int col) {
+        Object[] values = getRow(row);
+        return values == null ? null : values[col];
+    }
+
+    /**
+     * Returns {@code null} when the page of the row has not been fetched yet.
+     */
+    public <T> T getRowValue(int row, Column<T> column) {
+        int col = assertIndexedColumn(column);
+        Object[] values = getRow(row);
+        return values == null ? null : column.valueOf(values[col]);
+    }
+
+    /**
+     * Returns the query of the table, sources may call it from any thread to find out their query was replaced.
+     */
+    public PageQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Drops fetched pages and asks the source for the row count again, for example after rows were added or removed.
+     */
+    public void refresh() {
+        int requested = ++generation;
+        pages.clear();
+        pendingPages.clear();
+        // the first page is asked for before the count, so its rows show up before a large result is counted
+        counting = true;
+        fetch(0);
+        source.count(query).thenAccept(count -> {
+            if (requested == generation) {
+                counting = false;
+                rowCount = count;
+                fireTableDataChanged();
+            }
+        });
+    }
+
+    /**
+     * Replaces the fetched row with the same key in place, rows are not moved to follow the sort order.
+     * Returns {@code false} when no fetched row has the key.
+     */
+    public boolean updateRow(Object... elements) {
+        if (keyColumn < 0)
+            throw new IllegalStateException("Table Error: Key column is not set");
+        assertRowMatchesColumns(elements);
+        for (Map.Entry<Integer, List<Object[]>> page : pages.entrySet()) {
+            List<Object[]> rows = page.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i)[keyColumn].equals(elements[keyColumn])) {
+                    rows.set(i, elements.clone());
+                    int row = page.getKey() * pageSize + i;
+                    if (row < rowCount) {
+                        fireTableRowsUpdated(row, row);
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public void setFilter(String text, List<Column<?>> columns) {
+        columns.forEach(this::assertIndexedColumn);
+        // without text every row matches, whichever the columns are
+        if (text.isEmpty() && query.getFilter().isEmpty())
+            return;
+        if (text.equals(query.getFilter()) && columns.equals(query.getFilterColumns()))
+            return;
+        query = new PageQuery(text, columns, query.getSortOrders());
+        refresh();
+    }
+
+    /**
+     * Sorts rows by the given columns, the first column of the map is the primary one.
+     */
+    public void setSortOrders(Map<Column<?>, SortOrder> sortOrders) {
+        sortOrders.keySet().forEach(this::assertIndexedColumn);
+        if (new ArrayList<>(sortOrders.entrySet()).equals(new ArrayList<>(query.getSortOrders().entrySet())))
+            return;
+        query = new PageQuery(query.getFilter(), query.getFilterColumns(), sortOrders);
+        refresh();
+    }
+
+    @Override
+    RowSorter<? extends TableModel> createRowSorter() {
+        return new Sorter();
+    }
+
+    @Override
+    void filterRows(RowSorter<? extends TableModel> sorter, String text, int[] columns) {
+        List<Column<?>> filterColumns = new ArrayList<>(columns.length);
+        for (int column : columns) {
+            filterColumns.add(getColumn(column));
+        }
+        setFilter(text, filterColumns);
+    }
+
+    private Object[] getRow(int row) {
+        if (row < 0 || row >= rowCount)
+            throw new IndexOutOfBoundsException(String.format("Row %d does not exist", row));
+        int page = row / pageSize;
+        List<Object[]> rows = pages.get(page);
+        if (rows == null) {
+            fetch(page);
+            // a source answering synchronously has already delivered the page
+            rows = pages.get(page);
+        }
+        int index = row % pageSize;
+        return rows == null || index >= rows.size() ? null : rows.get(index);
+    }
+
+    private void fetch(int page) {
+        if (!pendingPages.add(page))
+            return;
+        int requested = generation;
+        int first = page * pageSize;
+        // a failed page stays pending, so it is not requested again on every repaint until the next refresh
+        source.fetch(query, first, pageSize, findPreviousKey(page)).thenAccept(rows -> {
+            if (requested != generation)
+                return;
+            pendingPages.remove(page);
+            pages.put(page, new ArrayList<>(rows));
+            if (counting && first + rows.size() > rowCount) {
+                rowCount = first + rows.size();
+                fireTableDataChanged();
+                return;
+            }
+            int last = Math.min(first + rows.size(), rowCount) - 1;
+            if (first <= last) {
+                fireTableRowsUpdated(first, last);
+            }
+        });
+    }
+
+    // the key of the row before the page when the previous page is fetched in full, looked up without get(),
+    // which would count as a use of the previous page
+    private Object findPreviousKey(int page) {
+        if (keyColumn < 0)
+            return null;
+        for (Map.Entry<Integer, List<Object[]>> previous : pages.entrySet()) {
+            if (previous.getKey() == page - 1 && previous.getValue().size() == pageSize)
+                return previous.getValue().get(pageSize - 1)[keyColumn];
+        }
+        return null;
+    }
+
+    /**
+     * Fetches rows of a {@link PagedTable} for the current query, futures are expected to complete on the thread
+     * which owns the table.
+     */
+    public interface PageSource {
+
+        CompletableFuture<Integer> count(PageQuery query);
+
+        CompletableFuture<List<Object[]>> fetch(PageQuery query, int offset, int limit);
+
+        /**
+         * Fetches rows like {@link #fetch(PageQuery, int, int)}, {@code previousKey} is the key of the row before
+         * {@code offset} or {@code null} when it is not fetched. Sources able to continue after a row should do so
+         * instead of skipping {@code offset} rows.
+         */
+        default CompletableFuture<List<Object[]>> fetch(PageQuery query, int offset, int limit, Object previousKey) {
+            return fetch(query, offset, limit);
+        }
+    }
+
+    // rows are already in the order of the source, the sorter only passes sort keys to it
+    private final class Sorter extends RowSorter<TableModel> {
+
+        private List<SortKey> sortKeys = List.of();
+
+        @Override
+        public TableModel getModel() {
+            return PagedTable.this;
+        }
+
+        @Override
+        public void toggleSortOrder(int column) {
+            List<SortKey> keys = new ArrayList<>(sortKeys);
+            SortOrder order = SortOrder.ASCENDING;
+            if (!keys.isEmpty() && keys.get(0).getColumn() == column
+                    && keys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+                order = SortOrder.DESCENDING;
+            }
+            keys.removeIf(key -> key.getColumn() == column);
+            keys.add(0, new SortKey(column, order));
+            setSortKeys(keys.subList(0, Math.min(keys.size(), MAX_SORT_KEYS)));
+        }
+
+        @Override
+        public int convertRowIndexToModel(int index) {
+            return index;
+        }
+
+        @Override
+        public int convertRowIndexToView(int index) {
+            return index;
+        }
+
+        @Override
+        public void setSortKeys(List<? extends SortKey> keys) {
+            List<SortKey> newKeys = keys == null ? List.of() : List.copyOf(keys);
+            Map<Column<?>, SortOrder> sortOrders = new LinkedHashMap<>();
+            for (SortKey key : newKeys) {
+                if (key.getColumn() < 0 || key.getColumn() >= getColumnCount())
+                    throw new IllegalArgumentException("Invalid SortKey");
+                if (key.getSortOrder() != SortOrder.UNSORTED) {
+                    sortOrders.putIfAbsent(getColumn(key.getColumn()), key.getSortOrder());
+                }
+            }
+            if (newKeys.equals(sortKeys))
+                return;
+            sortKeys = newKeys;
+            fireSortOrderChanged();
+            setSortOrders(sortOrders);
+        }
+
+        @Override
+        public List<? extends SortKey> getSortKeys() {
+            return sortKeys;
+        }
+
+        @Override
+        public int getViewRowCount() {
+            return getRowCount();
+        }
+
+        @Override
+        public int getModelRowCount() {
+            return getRowCount();
+        }
+
+        @Override
+        public void modelStructureChanged() {
+        }
+
+        @Override
+        public void allRowsChanged() {
+        }
+
+        @Override
+        public void rowsInserted(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsDeleted(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsUpdated(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsUpdated(int firstRow, int endRow, int column) {
+        }
+    }
+}
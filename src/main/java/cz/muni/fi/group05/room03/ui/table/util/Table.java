@@ -1,110 +1,239 @@
 package cz.muni.fi.group05.room03.ui.table.util;
 
-import javax.swing.table.AbstractTableModel;
-import java.util.ArrayList;
-import java.util.Collections;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
 
-public class Table extends AbstractTableModel {
+public class Table extends AbstractTable {
 
-    private final List<Column<?>> columns;
-    private final List<List<Object>> data;
+    private final ColumnStore[] stores;
+    private final Map<Object, Integer> rowsByKey = new HashMap<>();
+    private int keyColumn = -1;
+    private int rowCount;
+    private int capacity;
 
     public Table(Column<?>... columns) {
-        this.columns = asArrayList(columns);
-        if (this.columns.size() != this.columns.stream().map(Column::getName).collect(Collectors.toSet()).size())
-            throw new IllegalArgumentException("Table Error: Columns must have unique names!");
-        this.data = new ArrayList<>();
+        super(columns);
+        this.stores = new ColumnStore[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            stores[i] = ColumnStore.forColumn(columns[i]);
+        }
     }
 
-    public int getColumnCount() {
-        return columns.size();
+    /**
+     * Declares the column whose values identify rows, so {@link #findRow(Column, Object)} on it takes constant time.
+     */
+    public void setKeyColumn(Column<?> column) {
+        keyColumn = assertIndexedColumn(column);
+        rowsByKey.clear();
+        reindexFrom(0);
     }
 
     public int getRowCount() {
-        return data.size();
-    }
-
-    public String getColumnName(int col) {
-        return columns.get(col).getName();
+        return rowCount;
     }
 
     public Object getValueAt(int row, int col) {
-        return data.get(row).get(col);
+        return stores[col].get(assertRow(row));
     }
 
     public <T> T getRowValue(int row, Column<T> column) {
-        return column.valueOf(data.get(row).get(assertIndexedColumn(column)));
-    }
-
-    public Class<?> getColumnClass(int col) {
-        return columns.get(col).getType();
-    }
-
-    public boolean isCellEditable(int row, int col) {
-       return false;
-    }
-
-    public int findColumn(Column<?> column) {
-        return super.findColumn(column.getName());
+        return column.valueOf(stores[assertIndexedColumn(column)].get(assertRow(row)));
     }
 
     public void setValueAt(Object value, int row, Column<?> column) {
         if (!value.getClass().equals(column.getType()))
             throw new IllegalArgumentException("Set value received object of different type than column is");
         int col = assertIndexedColumn(column);
-        data.get(row).set(col, value);
+        assertRow(row);
+        if (col == keyColumn) {
+            updateKey(row, value);
+        }
+        stores[col].set(row, value);
         fireTableCellUpdated(row, col);
     }
 
     public void addRow(Object... elements) {
-        List<Object> row = asArrayList(elements);
-        assertRowMatchesColumns(row);
-        int newRowIndex = data.size();
-        data.add(row);
+        assertRowMatchesColumns(elements);
+        int newRowIndex = rowCount;
+        if (keyColumn >= 0) {
+            putKey(elements[keyColumn], newRowIndex);
+        }
+        ensureCapacity(rowCount + 1);
+        write(newRowIndex, elements);
+        rowCount++;
         fireTableRowsInserted(newRowIndex, newRowIndex);
     }
 
+    /**
+     * Appends all rows with a single insert event. Nothing is added when any row does not match the columns.
+     */
+    public void addRows(List<Object[]> rows) {
+        if (rows.isEmpty())
+            return;
+        checkRows(rows);
+        int first = rowCount;
+        if (keyColumn >= 0) {
+            Map<Object, Integer> added = new HashMap<>();
+            for (int i = 0; i < rows.size(); i++) {
+                Object key = rows.get(i)[keyColumn];
+                Integer existing = rowsByKey.get(key);
+                if (existing == null)
+                    existing = added.put(key, first + i);
+                if (existing != null)
+                    throw new IllegalArgumentException(String.format("Table Error: Key %s is already in row %d", key, existing));
+            }
+            rowsByKey.putAll(added);
+        }
+        ensureCapacity(rowCount + rows.size());
+        for (Object[] row : rows) {
+            write(rowCount++, row);
+        }
+        fireTableRowsInserted(first, rowCount - 1);
+    }
+
+    /**
+     * Replaces the whole content of the table with a single data changed event.
+     */
+    public void replaceAll(List<Object[]> rows) {
+        checkRows(rows);
+        if (keyColumn >= 0) {
+            Map<Object, Integer> keys = new HashMap<>();
+            for (int i = 0; i < rows.size(); i++) {
+                Object key = rows.get(i)[keyColumn];
+                Integer existing = keys.put(key, i);
+                if (existing != null)
+                    throw new IllegalArgumentException(String.format("Table Error: Key %s is already in row %d", key, existing));
+            }
+            rowsByKey.clear();
+            rowsByKey.putAll(keys);
+        }
+        for (ColumnStore store : stores) {
+            store.clear();
+        }
+        rowCount = 0;
+        capacity = 0;
+        ensureCapacity(rows.size());
+        for (Object[] row : rows) {
+            write(rowCount++, row);
+        }
+        fireTableDataChanged();
+    }
+
+    public void setRow(int rowIndex, Object... elements) {
+        if (rowCount <= rowIndex)
+            throw new IllegalArgumentException(String.format("Row %d does not exist", rowIndex));
+        assertRowMatchesColumns(elements);
+        if (keyColumn >= 0) {
+            updateKey(rowIndex, elements[keyColumn]);
+        }
+        write(rowIndex, elements);
+        fireTableRowsUpdated(rowIndex, rowIndex);
+    }
+
+    public int findRow(Column<?> column, Object value) {
+        int col = assertIndexedColumn(column);
+        if (col == keyColumn) {
+            return rowsByKey.getOrDefault(value, -1);
+        }
+        for (int i = 0; i < rowCount; i++) {
+            if (stores[col].get(i).equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public void removeRow(int rowIndex) {
-        if (data.size() <= rowIndex)
+        if (rowCount <= rowIndex)
             throw new IllegalArgumentException(String.format("Row %d does not exist", rowIndex));
-        data.remove(rowIndex);
+        if (keyColumn >= 0) {
+            rowsByKey.remove(stores[keyColumn].get(rowIndex));
+        }
+        for (ColumnStore store : stores) {
+            store.remove(rowIndex, rowCount);
+        }
+        rowCount--;
+        if (keyColumn >= 0) {
+            reindexFrom(rowIndex);
+        }
         fireTableRowsDeleted(rowIndex, rowIndex);
     }
 
-    public List<String> getColumnNames() {
-        return columns.stream().map(Column::getName).collect(Collectors.toList());
+    @Override
+    RowSorter<? extends TableModel> createRowSorter() {
+        return new TableRowSorter<>(this);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void filterRows(RowSorter<? extends TableModel> sorter, String regex, int[] columns) {
+        try {
+            ((TableRowSorter<TableModel>) sorter).setRowFilter(RowFilter.regexFilter("(?i)" + regex, columns));
+        } catch (PatternSyntaxException ignored) {
+            // illegal regex will be ignored
+        }
+    }
+
+    private void checkRows(List<Object[]> rows) {
+        Class<?>[] types = new Class<?>[getColumnCount()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = getColumnClass(i);
+        }
+        for (Object[] row : rows) {
+            if (row.length != types.length)
+                throw new IllegalArgumentException("Row size does not match column size!");
+            for (int i = 0; i < types.length; i++) {
+                if (row[i].getClass() != types[i])
+                    assertColumnMatchesColumn(i, row[i]);
+            }
+        }
     }
 
-    @SafeVarargs
-    private static <T> List<T> asArrayList(T ... items) {
-        List<T> list = new ArrayList<>();
-        Collections.addAll(list, items);
-        return list;
+    private void write(int row, Object[] elements) {
+        for (int i = 0; i < stores.length; i++) {
+            stores[i].set(row, elements[i]);
+        }
     }
 
-    private void assertColumnMatchesColumn(int column, Object object) {
-        Class<?> newType = object.getClass();
-        Class<?> definedType = columns.get(column).getType();
-        if (!newType.equals(definedType))
-            throw new IllegalArgumentException(String.format(
-                    "Column %d of type %s does not match defined table column type of %s!",
-                    column, newType, definedType));
+    private void ensureCapacity(int required) {
+        if (required <= capacity)
+            return;
+        capacity = Math.max(required, capacity + (capacity >> 1) + 16);
+        for (ColumnStore store : stores) {
+            store.resize(capacity);
+        }
     }
 
-    private void assertRowMatchesColumns(List<Object> row)  {
-        if (row.size() != columns.size())
-            throw new IllegalArgumentException("Row size does not match column size!");
-        for (int i = 0; i < row.size(); i++) {
-            assertColumnMatchesColumn(i, row.get(i));
+    private int assertRow(int row) {
+        if (row < 0 || row >= rowCount)
+            throw new IndexOutOfBoundsException(String.format("Row %d does not exist", row));
+        return row;
+    }
+
+    private void putKey(Object key, int rowIndex) {
+        Integer existing = rowsByKey.putIfAbsent(key, rowIndex);
+        if (existing != null && existing != rowIndex)
+            throw new IllegalArgumentException(String.format("Table Error: Key %s is already in row %d", key, existing));
+    }
+
+    private void updateKey(int rowIndex, Object newKey) {
+        Object oldKey = stores[keyColumn].get(rowIndex);
+        if (!oldKey.equals(newKey)) {
+            putKey(newKey, rowIndex);
+            rowsByKey.remove(oldKey);
         }
     }
 
-    private int assertIndexedColumn(Column<?> column) {
-        int index = columns.indexOf(column);
-        if (index < 0)
-            throw new IllegalArgumentException("Table Error: getSelectedRowClass could not find column");
-        return index;
+    // rows after a removed one move up by one, as they do in the column stores
+    private void reindexFrom(int rowIndex) {
+        for (int i = rowIndex; i < rowCount; i++) {
+            rowsByKey.put(stores[keyColumn].get(i), i);
+        }
     }
 }
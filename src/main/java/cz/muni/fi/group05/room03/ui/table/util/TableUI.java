@@ -17,7 +17,6 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
-import javax.swing.RowFilter;
 import javax.swing.RowSorter;
 import javax.swing.SortOrder;
 import javax.swing.SwingConstants;
@@ -26,7 +25,6 @@ import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
 import javax.swing.table.TableModel;
-import javax.swing.table.TableRowSorter;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.GridBagConstraints;
@@ -42,7 +40,6 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
-import java.util.regex.PatternSyntaxException;
 
 public class TableUI {
 
@@ -50,19 +47,19 @@ public class TableUI {
 
     private final JPanel panel;
     private final JTable jTable;
-    private final Table model;
-    private final TableRowSorter<TableModel> sorter;
+    private final AbstractTable model;
+    private final RowSorter<? extends TableModel> sorter;
     private final TableColumnModel tableColumnModel;
     private final Menu menu;
 
-    public TableUI(Menu menu, Table model) {
+    public TableUI(Menu menu, AbstractTable model) {
         this.menu = menu;
         this.menu.updateActions(0);
         jTable = createTable(menu.getPopMenu(), model);
         jTable.getSelectionModel().addListSelectionListener(this::rowSelectionChanged);
         panel = createPanel(jTable);
         tableColumnModel = jTable.getColumnModel();
-        sorter = new TableRowSorter<>(model);
+        sorter = model.createRowSorter();
         jTable.setRowSorter(sorter);
         this.model = model;
     }
@@ -107,11 +104,7 @@ public class TableUI {
         }
         List<String> allColumns = model.getColumnNames();
         int[] visibleIndexes = visibleColumns.stream().map(allColumns::indexOf).mapToInt(i -> i).toArray();
-        try {
-            sorter.setRowFilter(RowFilter.regexFilter("(?i)" + regex, visibleIndexes));
-        } catch (PatternSyntaxException ignored) {
-            // illegal regex will be ignored
-        }
+        model.filterRows(sorter, regex, visibleIndexes);
     }
 
     private void deselectAllRows() {
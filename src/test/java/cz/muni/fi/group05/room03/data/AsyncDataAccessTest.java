@@ -0,0 +1,70 @@
+package cz.muni.fi.group05.room03.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class AsyncDataAccessTest {
+
+    private ExecutorService callbackExecutor;
+    private AsyncDataAccess async;
+
+    @BeforeEach
+    void createAsync() {
+        callbackExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "callback"));
+        async = new AsyncDataAccess(callbackExecutor);
+    }
+
+    @AfterEach
+    void close() {
+        async.close();
+        callbackExecutor.shutdownNow();
+    }
+
+    @Test
+    void runsOperationOffCallerAndCompletesOnCallbackExecutor() throws Exception {
+        var operationThread = async.supply(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+        var callbackThread = callbackExecutor.submit(() -> async.supply(() -> 1)
+                .thenApply(ignored -> Thread.currentThread().getName())).get().get(5, TimeUnit.SECONDS);
+
+        assertThat(operationThread).isEqualTo("hotel-data-access");
+        assertThat(callbackThread).isEqualTo("callback");
+    }
+
+    @Test
+    void operationsRunInSubmissionOrder() throws Exception {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int value = i;
+            async.run(() -> order.add(value));
+        }
+        async.run(() -> { }).get(5, TimeUnit.SECONDS);
+
+        assertThat(order).hasSize(20).isSorted();
+    }
+
+    @Test
+    void failureCompletesOnCallbackExecutor() throws Exception {
+        var failure = new DataAccessException("Failed to load data");
+        var handlerThread = callbackExecutor.submit(() -> async.supply(() -> {
+            throw failure;
+        }).handle((value, ex) -> Thread.currentThread().getName())).get();
+
+        assertThat(handlerThread.get(5, TimeUnit.SECONDS)).isEqualTo("callback");
+        assertThatExceptionOfType(ExecutionException.class)
+                .isThrownBy(() -> async.supply(() -> {
+                    throw failure;
+                }).get(5, TimeUnit.SECONDS))
+                .withRootCauseInstanceOf(DataAccessException.class);
+    }
+}
@@ -0,0 +1,153 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.Room;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CapacityServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2021, 7, 1);
+    private static EmbeddedDataSource dataSource;
+    private CapacityService service;
+    private CapacityService indexedService;
+    private ReservationDao reservationDao;
+
+    @BeforeAll
+    static void initTestDataSource() {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:capacity-test");
+        dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
+    }
+
+    @BeforeEach
+    void createService() throws SQLException {
+        service = new CapacityService(dataSource);
+        reservationDao = new ReservationDao(dataSource);
+        indexedService = new CapacityService(dataSource, reservationDao);
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM APP.RESERVATION");
+            st.executeUpdate("DELETE FROM APP.ROOM");
+        }
+        new RoomDao(dataSource).createAll(List.of(
+                new Room("101", Room.RoomType.DOUBLE, 4, Room.RoomStatus.NOT_OCCUPIED, 70.0),
+                new Room("102", Room.RoomType.FAMILY, 6, Room.RoomStatus.NOT_OCCUPIED, 120.0)));
+    }
+
+    private Reservation reservation(int fromDay, int toDay, int people, Reservation.ReservationState state) {
+        return new Reservation("Kiwi Kiwiove", DAY.plusDays(fromDay), DAY.plusDays(toDay), "783920484",
+                "mail1@mail.com", people, "", state);
+    }
+
+    @Test
+    void emptyHotel() {
+        var check = service.check(DAY, DAY.plusDays(3), 10, null);
+
+        assertThat(check.getCapacity()).isEqualTo(10);
+        assertThat(check.getPeakBooked()).isZero();
+        assertThat(check.fits()).isTrue();
+    }
+
+    @Test
+    void peakIsPerNightNotSum() {
+        reservationDao.createAll(List.of(
+                reservation(0, 2, 6, Reservation.ReservationState.UPCOMING),
+                reservation(2, 4, 6, Reservation.ReservationState.DOING)));
+
+        var check = service.check(DAY, DAY.plusDays(4), 4, null);
+
+        assertThat(check.getPeakBooked()).isEqualTo(6);
+        assertThat(check.fits()).isTrue();
+    }
+
+    @Test
+    void firstOverfullNight() {
+        reservationDao.createAll(List.of(
+                reservation(0, 2, 3, Reservation.ReservationState.UPCOMING),
+                reservation(1, 5, 4, Reservation.ReservationState.UPCOMING),
+                reservation(3, 6, 2, Reservation.ReservationState.UPCOMING)));
+
+        var check = service.check(DAY.plusDays(2), DAY.plusDays(8), 5, null);
+
+        assertThat(check.getPeakBooked()).isEqualTo(6);
+        assertThat(check.getFirstOverfullNight()).isEqualTo(DAY.plusDays(3));
+    }
+
+    @Test
+    void inactiveAndExcludedReservationsAreIgnored() {
+        var edited = reservation(0, 3, 8, Reservation.ReservationState.UPCOMING);
+        reservationDao.createAll(List.of(
+                edited,
+                reservation(0, 3, 8, Reservation.ReservationState.CANCELED),
+                reservation(0, 3, 8, Reservation.ReservationState.ENDED)));
+
+        assertThat(service.check(DAY, DAY.plusDays(3), 9, edited.getId()).fits()).isTrue();
+        assertThat(service.check(DAY, DAY.plusDays(3), 9, null).getFirstOverfullNight()).isEqualTo(DAY);
+    }
+
+    @Test
+    void indexedCheckMatchesQuery() {
+        var edited = reservation(1, 5, 4, Reservation.ReservationState.UPCOMING);
+        reservationDao.createAll(List.of(
+                reservation(0, 2, 3, Reservation.ReservationState.UPCOMING),
+                edited,
+                reservation(3, 6, 2, Reservation.ReservationState.DOING),
+                reservation(0, 9, 8, Reservation.ReservationState.CANCELED)));
+
+        for (Long excludedId : new Long[]{null, edited.getId()}) {
+            var expected = service.check(DAY.plusDays(2), DAY.plusDays(8), 5, excludedId);
+            var check = indexedService.check(DAY.plusDays(2), DAY.plusDays(8), 5, excludedId);
+
+            assertThat(check.getPeakBooked()).isEqualTo(expected.getPeakBooked());
+            assertThat(check.getFirstOverfullNight()).isEqualTo(expected.getFirstOverfullNight());
+        }
+    }
+
+    @Test
+    void indexedCheckFollowsReservationChanges() {
+        var stay = reservation(0, 3, 8, Reservation.ReservationState.UPCOMING);
+        reservationDao.create(stay);
+        assertThat(indexedService.check(DAY, DAY.plusDays(3), 3, null).fits()).isFalse();
+
+        stay.setState(Reservation.ReservationState.CANCELED);
+        reservationDao.update(stay);
+
+        assertThat(indexedService.check(DAY, DAY.plusDays(3), 3, null).fits()).isTrue();
+    }
+
+    @Test
+    void partyLargerThanHotel() {
+        assertThat(service.check(DAY, DAY.plusDays(1), 11, null).getFirstOverfullNight()).isEqualTo(DAY);
+    }
+
+    @Test
+    void invalidRange() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> service.check(DAY, DAY, 1, null));
+    }
+
+    @Test
+    void checkWithException() throws SQLException {
+        var sqlException = new SQLException();
+        var failing = mock(DataSource.class);
+        when(failing.getConnection()).thenThrow(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> new CapacityService(failing).check(DAY, DAY.plusDays(1), 1, null))
+                .withMessage("Failed to check capacity from " + DAY + " to " + DAY.plusDays(1))
+                .withCause(sqlException);
+    }
+}
@@ -0,0 +1,195 @@
+package cz.muni.fi.group05.room03.data;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConnectionPoolTest {
+
+    private static EmbeddedDataSource dataSource;
+    private ConnectionPool pool;
+
+    @BeforeAll
+    static void initTestDataSource() {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:pool-test");
+        dataSource.setCreateDatabase("create");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void reusesPhysicalConnection() throws SQLException {
+        DataSource source = spy(dataSource);
+        pool = new ConnectionPool.Builder(source).minSize(0).maxSize(2).build();
+
+        try (var connection = pool.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+        }
+        try (var connection = pool.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+        }
+
+        verify(source, times(1)).getConnection();
+    }
+
+    @Test
+    void closedHandleCannotBeUsed() throws SQLException {
+        pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(1).build();
+        Connection connection = pool.getConnection();
+        connection.close();
+
+        assertThat(connection.isClosed()).isTrue();
+        assertThatExceptionOfType(SQLException.class)
+                .isThrownBy(connection::createStatement)
+                .withMessage("Connection is closed");
+    }
+
+    @Test
+    void statisticsTrackActiveAndIdle() throws SQLException {
+        pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(3).build();
+
+        try (var first = pool.getConnection(); var second = pool.getConnection()) {
+            assertThat(pool.getStatistics().getActive()).isEqualTo(2);
+            assertThat(pool.getStatistics().getIdle()).isZero();
+        }
+
+        assertThat(pool.getStatistics().getActive()).isZero();
+        assertThat(pool.getStatistics().getIdle()).isEqualTo(2);
+    }
+
+    @Test
+    void waitsForReleasedConnection() throws Exception {
+        pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(1).build();
+        Connection connection = pool.getConnection();
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                connection.close();
+            } catch (InterruptedException | SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        releaser.start();
+
+        try (var waited = pool.getConnection()) {
+            assertThat(waited.isValid(1)).isTrue();
+        }
+        releaser.join();
+
+        assertThat(pool.getStatistics().getWaitCount()).isEqualTo(1);
+        assertThat(pool.getStatistics().getTotalWaitMillis()).isPositive();
+    }
+
+    @Test
+    void timesOutWhenExhausted() throws SQLException {
+        pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(1).maxWait(Duration.ofMillis(50)).build();
+
+        try (var ignored = pool.getConnection()) {
+            assertThatExceptionOfType(SQLTimeoutException.class)
+                    .isThrownBy(pool::getConnection);
+        }
+    }
+
+    @Test
+    void evictsIdleConnections() throws Exception {
+        pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(2).idleTimeout(Duration.ofMillis(50)).build();
+
+        pool.getConnection().close();
+        assertThat(pool.getStatistics().getIdle()).isEqualTo(1);
+
+        Thread.sleep(300);
+        assertThat(pool.getStatistics().getIdle()).isZero();
+    }
+
+    @Test
+    void failedConnectionIsNotCounted() throws SQLException {
+        var sqlException = new SQLException();
+        var failing = mock(DataSource.class);
+        when(failing.getConnection()).thenThrow(sqlException);
+        pool = new ConnectionPool.Builder(failing).minSize(0).maxSize(1).build();
+
+        assertThatExceptionOfType(SQLException.class).isThrownBy(pool::getConnection).isSameAs(sqlException);
+        assertThat(pool.getStatistics().getActive()).isZero();
+    }
+
+    @Test
+    void rollsBackUncommittedWorkOnRelease() throws SQLException {
+        pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(1).build();
+
+        try (var connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+        }
+        try (var connection = pool.getConnection()) {
+            assertThat(connection.getAutoCommit()).isTrue();
+        }
+    }
+
+    @Test
+    void cachesPreparedStatementsPerConnection() throws SQLException {
+        pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(1).build();
+
+        for (int i = 0; i < 3; i++) {
+            try (var connection = pool.getConnection();
+                 var st = connection.prepareStatement("VALUES CAST(? AS INT)")) {
+                st.setInt(1, i);
+                try (var rs = st.executeQuery()) {
+                    assertThat(rs.next()).isTrue();
+                    assertThat(rs.getInt(1)).isEqualTo(i);
+                }
+            }
+        }
+
+        assertThat(pool.getStatistics().getStatementCacheMisses()).isEqualTo(1);
+        assertThat(pool.getStatistics().getStatementCacheHits()).isEqualTo(2);
+    }
+
+    @Test
+    void nestedUseOfSameStatementIsNotShared() throws SQLException {
+        pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(1).build();
+
+        try (var connection = pool.getConnection();
+             var outer = connection.prepareStatement("VALUES 1");
+             var inner = connection.prepareStatement("VALUES 1")) {
+            assertThat(inner).isNotSameAs(outer);
+            outer.close();
+            assertThat(outer.isClosed()).isTrue();
+            assertThat(inner.isClosed()).isFalse();
+        }
+        assertThat(pool.getStatistics().getStatementCacheMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void disabledStatementCacheCountsMisses() throws SQLException {
+        pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(1).statementCacheSize(0).build();
+
+        for (int i = 0; i < 2; i++) {
+            try (var connection = pool.getConnection(); var ignored = connection.prepareStatement("VALUES 1")) {
+                assertThat(ignored.isClosed()).isFalse();
+            }
+        }
+
+        assertThat(pool.getStatistics().getStatementCacheHits()).isZero();
+        assertThat(pool.getStatistics().getStatementCacheMisses()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,106 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Room;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DashboardServiceTest {
+
+    private static EmbeddedDataSource dataSource;
+    private DashboardService service;
+    private RoomDao roomDao;
+    private GuestDao guestDao;
+
+    @BeforeAll
+    static void initTestDataSource() {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:dashboard-test");
+        dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
+    }
+
+    @BeforeEach
+    void createService() throws SQLException {
+        roomDao = new RoomDao(dataSource);
+        guestDao = new GuestDao(dataSource);
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM APP.GUEST");
+            st.executeUpdate("DELETE FROM APP.ROOM");
+        }
+        roomDao.createAll(List.of(
+                new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.OCCUPIED, 70.0),
+                new Room("102", Room.RoomType.FAMILY, 4, Room.RoomStatus.NOT_OCCUPIED, 120.0)));
+        guestDao.createAll(List.of(
+                new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "", 1L),
+                new Guest("Malina Malinova", "", "1235", Guest.GuestGeneration.CHILD, "", 1L)));
+        service = new DashboardService(dataSource, roomDao, guestDao);
+    }
+
+    private void assertStats(int guestsWithRoom, int occupiedRooms, int rooms) {
+        var stats = service.getStats();
+        assertThat(stats.getGuestsWithRoom()).isEqualTo(guestsWithRoom).isEqualTo(guestDao.countAllWithRoom());
+        assertThat(stats.getOccupiedRooms()).isEqualTo(occupiedRooms)
+                .isEqualTo(roomDao.countWithStatus(Room.RoomStatus.OCCUPIED));
+        assertThat(stats.getRooms()).isEqualTo(rooms).isEqualTo(roomDao.countAll());
+    }
+
+    @Test
+    void loadsStats() {
+        assertStats(1, 1, 2);
+    }
+
+    @Test
+    void followsRoomChanges() {
+        service.getStats();
+        roomDao.update(new Room("102", Room.RoomType.FAMILY, 4, Room.RoomStatus.OCCUPIED, 120.0));
+        roomDao.create(new Room("103", Room.RoomType.SINGLE, 1, Room.RoomStatus.NOT_OCCUPIED, 50.0));
+        assertStats(1, 2, 3);
+
+        Room first = roomDao.findByKey("101");
+        Room second = roomDao.findByKey("102");
+        first.setStatus(Room.RoomStatus.NOT_OCCUPIED);
+        second.setStatus(Room.RoomStatus.NOT_OCCUPIED);
+        roomDao.updateAll(List.of(first, second));
+        assertStats(1, 0, 3);
+    }
+
+    @Test
+    void followsGuestChanges() {
+        service.getStats();
+        var guests = guestDao.findAll();
+        guests.forEach(guest -> guest.setRoom("102"));
+        guestDao.createAll(guests);
+        assertStats(2, 1, 2);
+
+        guestDao.delete(guests.get(0));
+        assertStats(1, 1, 2);
+
+        guests.get(1).setRoom("");
+        guestDao.update(guests.get(1));
+        assertStats(0, 1, 2);
+    }
+
+    @Test
+    void getStatsWithException() throws SQLException {
+        var sqlException = new SQLException();
+        var failing = mock(DataSource.class);
+        when(failing.getConnection()).thenThrow(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> new DashboardService(failing, roomDao, guestDao).getStats())
+                .withMessage("Failed to load dashboard stats")
+                .withCause(sqlException);
+    }
+}
@@ -0,0 +1,123 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.Room;
+import org.apache.derby.jdbc.ClientDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class DatabaseServerTest {
+
+    private int port;
+    private DatabaseServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new DatabaseServer("localhost", port);
+        assertThat(server.start(Duration.ofSeconds(30))).isTrue();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    private ClientDataSource createClientDataSource() {
+        return createClientDataSource("memory:server-test");
+    }
+
+    private ClientDataSource createClientDataSource(String databaseName) {
+        var dataSource = new ClientDataSource();
+        dataSource.setServerName("localhost");
+        dataSource.setPortNumber(port);
+        dataSource.setDatabaseName(databaseName);
+        dataSource.setCreateDatabase("create");
+        return dataSource;
+    }
+
+    @Test
+    void desksShareOneDatabase() {
+        var firstDesk = createClientDataSource();
+        var secondDesk = createClientDataSource();
+        new SchemaMigrator(firstDesk).migrate();
+        new RoomDao(firstDesk).create(new Room("101", Room.RoomType.SINGLE, 1, Room.RoomStatus.NOT_OCCUPIED, 50.0));
+
+        assertThat(new RoomDao(secondDesk).findByKey("101").getBeds()).isEqualTo(1);
+    }
+
+    @Test
+    void desksSeeEachOthersBookings() throws SQLException {
+        var firstDesk = new TransactionManager(createClientDataSource("memory:server-booking-test"));
+        var secondDesk = new TransactionManager(createClientDataSource("memory:server-booking-test"));
+        new SchemaMigrator(firstDesk).migrate();
+        try (var connection = firstDesk.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM APP.ROOM");
+        }
+        new RoomDao(firstDesk).createAll(List.of(
+                new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0),
+                new Room("102", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0)));
+        var secondReservations = new ReservationDao(secondDesk);
+        secondReservations.setCaching(false);
+        var secondCapacity = new CapacityService(secondDesk);
+        var secondAvailability = new RoomAvailabilityService(secondDesk);
+        var from = LocalDate.now();
+        assertThat(secondCapacity.check(from, from.plusDays(2), 4, null).fits()).isTrue();
+        assertThat(secondReservations.getActiveIndex().size()).isZero();
+
+        var reservation = new Reservation("Kiwi Kiwiove", from, from.plusDays(2), "783920484", "mail1@mail.com",
+                3, "", Reservation.ReservationState.UPCOMING);
+        var other = new Reservation("Mango Mangove", from, from.plusDays(2), "783920485", "mail2@mail.com",
+                1, "", Reservation.ReservationState.UPCOMING);
+        firstDesk.run(() -> {
+            var firstReservations = new ReservationDao(firstDesk);
+            firstReservations.lockTable();
+            firstReservations.createAll(List.of(reservation, other));
+            new GuestDao(firstDesk).create(new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT,
+                    "", reservation.getId()));
+        });
+
+        assertThat(secondCapacity.check(from, from.plusDays(2), 1, null).getPeakBooked()).isEqualTo(4);
+        assertThat(secondCapacity.check(from, from.plusDays(2), 1, null).fits()).isFalse();
+        assertThat(secondReservations.getActiveIndex().size()).isEqualTo(2);
+        assertThat(secondAvailability.findAssignableRooms(other.getId(), 1)).containsExactly("102");
+    }
+
+    @Test
+    void joinsRunningServer() {
+        var other = new DatabaseServer("localhost", port);
+
+        assertThat(other.start(Duration.ofSeconds(30))).isFalse();
+        other.close();
+        assertThat(server.isRunning()).isTrue();
+    }
+
+    @Test
+    void closeStopsOwnedServer() {
+        server.close();
+
+        assertThat(server.isRunning()).isFalse();
+    }
+
+    @Test
+    void unknownMode() {
+        assertThat(DatabaseMode.of(" Server ")).isEqualTo(DatabaseMode.SERVER);
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> DatabaseMode.of("cluster"))
+                .withMessage("Unknown database mode: cluster");
+    }
+}
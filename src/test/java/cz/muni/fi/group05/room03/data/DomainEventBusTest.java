@@ -0,0 +1,88 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Room;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class DomainEventBusTest {
+
+    private static EmbeddedDataSource dataSource;
+    private static TransactionManager transactionManager;
+    private final List<Runnable> pending = new ArrayList<>();
+    private final List<EntityEvent<Room>> roomEvents = new ArrayList<>();
+    private RoomDao roomDao;
+
+    @BeforeAll
+    static void initTestDataSource() {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:event-bus-test");
+        dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
+        transactionManager = new TransactionManager(dataSource);
+    }
+
+    @BeforeEach
+    void createBus() throws SQLException {
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM APP.GUEST");
+            st.executeUpdate("DELETE FROM APP.ROOM");
+        }
+        Executor deferred = pending::add;
+        var bus = new DomainEventBus(deferred);
+        bus.subscribe(Room.class, roomEvents::add);
+        bus.subscribe(Guest.class, event -> {
+            throw new AssertionError("Unexpected guest event " + event);
+        });
+        roomDao = new RoomDao(transactionManager);
+        roomDao.addListener(bus.publisher(Room.class, Entities::copyOf));
+    }
+
+    private void deliver() {
+        pending.forEach(Runnable::run);
+        pending.clear();
+    }
+
+    @Test
+    void deliversSnapshotsOnExecutor() {
+        var room = new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0);
+        roomDao.create(room);
+        room.setStatus(Room.RoomStatus.OCCUPIED);
+        roomDao.update(room);
+        room.setBeds(3);
+
+        assertThat(roomEvents).isEmpty();
+        deliver();
+        assertThat(roomEvents).extracting(EntityEvent::getKind)
+                .containsExactly(EntityEvent.Kind.CREATED, EntityEvent.Kind.UPDATED);
+        assertThat(roomEvents.get(0).getEntity().getStatus()).isEqualTo(Room.RoomStatus.NOT_OCCUPIED);
+        assertThat(roomEvents.get(1).getEntity().getStatus()).isEqualTo(Room.RoomStatus.OCCUPIED);
+        assertThat(roomEvents.get(1).getEntity().getBeds()).isEqualTo(2);
+        assertThat(roomEvents.get(1).getEntity().getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void publishesOnlyCommittedChanges() {
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> transactionManager.run(() -> {
+            roomDao.create(new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0));
+            throw new IllegalStateException("desk closed");
+        }));
+        transactionManager.run(() -> {
+            roomDao.create(new Room("102", Room.RoomType.SINGLE, 1, Room.RoomStatus.NOT_OCCUPIED, 50.0));
+            assertThat(pending).isEmpty();
+        });
+
+        deliver();
+        assertThat(roomEvents).extracting(event -> event.getEntity().getKey()).containsExactly("102");
+    }
+}
@@ -2,7 +2,6 @@ package cz.muni.fi.group05.room03.data;
 
 import cz.muni.fi.group05.room03.model.Guest;
 import org.apache.derby.jdbc.EmbeddedDataSource;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,10 +11,15 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -29,6 +33,7 @@ public class GuestDaoTest {
         dataSource = new EmbeddedDataSource();
         dataSource.setDatabaseName("memory:guest-test");
         dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
     }
 
     @BeforeEach
@@ -39,11 +44,6 @@ public class GuestDaoTest {
         }
     }
 
-    @AfterEach
-    void cleanUp() {
-        guestDao.dropTable();
-    }
-
     private GuestDao createFailingDao(Throwable exceptionToBeThrown) {
         try {
             var dataSource = mock(DataSource.class);
@@ -123,6 +123,43 @@ public class GuestDaoTest {
                 .containsExactly(guest2);
     }
 
+    @Test
+    void createAllGuests() {
+        var guest = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "nieco", 1L);
+        var guest2 = new Guest("Malina Malinova", "101", "1235", Guest.GuestGeneration.CHILD, "nieco ine", 1L);
+        var guest3 = new Guest("Jablko Jablkove", "101", "1236", Guest.GuestGeneration.ADULT, "este nieco ine", 1L);
+
+        var ids = guestDao.createAll(List.of(guest, guest2, guest3));
+
+        assertThat(ids).containsExactly(guest.getId(), guest2.getId(), guest3.getId()).doesNotContainNull();
+        assertThat(guestDao.findByResId(1L)).usingFieldByFieldElementComparator()
+                .containsExactlyInAnyOrder(guest, guest2, guest3);
+    }
+
+    @Test
+    void createAllGuestsIsAtomic() {
+        var guest = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "nieco", 1L);
+        var missing = new Guest("Malina Malinova", "101", "1235", Guest.GuestGeneration.CHILD, "nieco ine", 1L, 123L);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> guestDao.createAll(List.of(guest, missing)))
+                .withMessage("Failed to update non-existing guest: " + missing);
+        assertThat(guest.getId()).isNull();
+        assertThat(guestDao.findAll()).isEmpty();
+    }
+
+    @Test
+    void createAllGuestsWithException() {
+        var sqlException = new SQLException();
+        var failingDao = createFailingDao(sqlException);
+        var guests = List.of(new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "nieco", 1L));
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> failingDao.createAll(guests))
+                .withMessage("Failed to store guests " + guests)
+                .withCause(sqlException);
+    }
+
     @Test
     void deleteGuest() {
         var guest = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "nieco", 1L);
@@ -177,6 +214,18 @@ public class GuestDaoTest {
                 .containsExactlyInAnyOrder(guest2, guest3);
     }
 
+    @Test
+    void updateGuestWithQuotes() {
+        var guest = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "nieco", 1L);
+        guestDao.create(guest);
+
+        var guest2 = new Guest("Peter O'Hara", "101", guest.getIdCard(), guest.getGeneration(), "it's fine", guest.getReservationId(), guest.getId());
+        guestDao.update(guest2);
+
+        assertThat(guestDao.findByRoomKey("101")).usingFieldByFieldElementComparator()
+                .containsExactly(guest2);
+    }
+
     @Test
     void updateGuestWithNullId() {
         var guest = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "nieco", 1L);
@@ -186,6 +235,24 @@ public class GuestDaoTest {
                 .withMessage("Guest has null ID: " + guest);
     }
 
+    @Test
+    void updateStaleGuest() {
+        var guest = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "nieco", 1L);
+        guestDao.create(guest);
+        var otherDesk = guestDao.findAll().get(0);
+        otherDesk.setRoom("102");
+        guestDao.update(otherDesk);
+        guest.setRoom("103");
+
+        assertThat(otherDesk.getVersion()).isEqualTo(1);
+        assertThatExceptionOfType(OptimisticLockException.class)
+                .isThrownBy(() -> guestDao.update(guest))
+                .withMessage("Guest " + guest.getId() + " was modified concurrently, expected version 0 but found 1");
+        assertThatExceptionOfType(OptimisticLockException.class)
+                .isThrownBy(() -> guestDao.createAll(List.of(guest)));
+        assertThat(guestDao.findAll()).usingFieldByFieldElementComparator().containsExactly(otherDesk);
+    }
+
     @Test
     void updateNonExistingGuest() {
         var guest = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "nieco", 1L);
@@ -230,6 +297,89 @@ public class GuestDaoTest {
                 .containsExactlyInAnyOrder(guest, guest2, guest3);
     }
 
+    @Test
+    void findPage() {
+        var guest1 = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "", 1L);
+        var guest2 = new Guest("Jablko Jablkove", "101", "5678", Guest.GuestGeneration.ADULT, "", 2L);
+        var guest3 = new Guest("Slivka Slivkova", "102", "", Guest.GuestGeneration.CHILD, "", 1L);
+        guestDao.createAll(List.of(guest1, guest2, guest3));
+
+        assertThat(guestDao.findPage(null, 2))
+                .usingFieldByFieldElementComparator()
+                .containsExactly(guest1, guest2);
+        assertThat(guestDao.findPage(guest2.getId(), 2))
+                .usingFieldByFieldElementComparator()
+                .containsExactly(guest3);
+        assertThat(guestDao.findPage(null, 1, 1L))
+                .usingFieldByFieldElementComparator()
+                .containsExactly(guest1);
+        assertThat(guestDao.findPage(guest1.getId(), 5, 1L))
+                .usingFieldByFieldElementComparator()
+                .containsExactly(guest3);
+    }
+
+    @Test
+    void findPageWithInvalidLimit() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> guestDao.findPage(null, -1));
+    }
+
+    @Test
+    void findPageWithException() {
+        var sqlException = new SQLException();
+        GuestDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> failingDao.findPage(null, 10))
+                .withMessage("Failed to load guests after null")
+                .withCause(sqlException);
+    }
+
+    @Test
+    void streamGuests() {
+        var guest1 = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "", 1L);
+        var guest2 = new Guest("Jablko Jablkove", "102", "5678", Guest.GuestGeneration.CHILD, "", 1L);
+        guestDao.createAll(List.of(guest1, guest2));
+
+        try (var guests = guestDao.stream()) {
+            assertThat(guests)
+                    .usingFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrder(guest1, guest2);
+        }
+    }
+
+    @Test
+    void streamReleasesConnectionOnClose() {
+        guestDao.create(new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "", 1L));
+        try (var pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(1).build()) {
+            var pooledDao = new GuestDao(pool);
+            pooledDao.setFetchSize(1);
+            var guests = pooledDao.stream();
+            assertThat(guests.findFirst()).isPresent();
+            assertThat(pool.getStatistics().getActive()).isEqualTo(1);
+
+            guests.close();
+            assertThat(pool.getStatistics().getActive()).isZero();
+        }
+    }
+
+    @Test
+    void streamWithException() {
+        var sqlException = new SQLException();
+        GuestDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(failingDao::stream)
+                .withMessage("Failed to stream all guests")
+                .withCause(sqlException);
+    }
+
+    @Test
+    void setNegativeFetchSize() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> guestDao.setFetchSize(-1));
+    }
+
     @Test
     void findAllGuestsWithException() {
         var sqlException = new SQLException();
@@ -309,6 +459,64 @@ public class GuestDaoTest {
                 .withCause(sqlException);
     }
 
+    @Test
+    void countByRoom() {
+        guestDao.createAll(List.of(
+                new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "", 1L),
+                new Guest("Jablko Jablkove", "101", "5678", Guest.GuestGeneration.ADULT, "", 1L),
+                new Guest("Slivka Slivkova", "102", "", Guest.GuestGeneration.CHILD, "", 2L),
+                new Guest("Marhula Marhulova", "", "", Guest.GuestGeneration.CHILD, "", 3L)));
+
+        assertThat(guestDao.countByRoom()).containsOnly(entry("101", 2), entry("102", 1));
+        assertThat(guestDao.countInRoom("101")).isEqualTo(2);
+        assertThat(guestDao.countInRoom("103")).isZero();
+    }
+
+    @Test
+    void countByRoomWithException() {
+        var sqlException = new SQLException();
+        GuestDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(failingDao::countByRoom)
+                .withMessage("Failed to count guests by room")
+                .withCause(sqlException);
+    }
+
+    @Test
+    void countInRoomWithException() {
+        var sqlException = new SQLException();
+        GuestDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> failingDao.countInRoom("101"))
+                .withMessage("Failed to count guests in room 101")
+                .withCause(sqlException);
+    }
+
+    @Test
+    void findRoomKeysByResId() {
+        guestDao.createAll(List.of(
+                new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "", 1L),
+                new Guest("Jablko Jablkove", "101", "5678", Guest.GuestGeneration.ADULT, "", 1L),
+                new Guest("Slivka Slivkova", "102", "", Guest.GuestGeneration.CHILD, "", 1L),
+                new Guest("Marhula Marhulova", "103", "", Guest.GuestGeneration.CHILD, "", 2L)));
+
+        assertThat(guestDao.findRoomKeysByResId(1L)).containsExactlyInAnyOrder("101", "102");
+        assertThat(guestDao.findRoomKeysByResId(3L)).isEmpty();
+    }
+
+    @Test
+    void findRoomKeysByResIdWithException() {
+        var sqlException = new SQLException();
+        GuestDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> failingDao.findRoomKeysByResId(1L))
+                .withMessage("Failed to load rooms of reservation 1")
+                .withCause(sqlException);
+    }
+
     @Test
     void countAll() {
         var guest = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "nieco", 1L);
@@ -358,24 +566,45 @@ public class GuestDaoTest {
     }
 
     @Test
-    void tableExistsWithException() {
-        var sqlException = new SQLException();
-        var failingDao = createFailingDao(sqlException);
+    void listenersAreNotified() {
+        List<String> events = new ArrayList<>();
+        guestDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Guest guest) {
+                events.add("created " + guest.getName());
+            }
+
+            @Override
+            public void updated(Guest guest) {
+                events.add("updated " + guest.getName());
+            }
+
+            @Override
+            public void deleted(Guest guest) {
+                events.add("deleted " + guest.getName());
+            }
+        });
+        var guest = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "nieco", 1L);
+        var guest2 = new Guest("Malina Malinova", "102", "1235", Guest.GuestGeneration.CHILD, "nieco ine", 1L);
 
-        String any = "any";
-        assertThatExceptionOfType(DataAccessException.class)
-                .isThrownBy(() -> failingDao.tableExits(any, any))
-                .withMessage("Failed to detect if the table " + any + "." + any + " exist");
+        guestDao.create(guest);
+        guestDao.createAll(List.of(guest2, guest));
+        guestDao.delete(guest);
+
+        assertThat(events).containsExactly("created Hruska Hruskova", "created Malina Malinova",
+                "updated Hruska Hruskova", "deleted Hruska Hruskova");
     }
 
     @Test
-    void createTableWithException() {
-        var sqlException = new SQLException();
-        var failingDao = createFailingDao(sqlException);
-
-        assertThatExceptionOfType(DataAccessException.class)
-                .isThrownBy(failingDao::createTable)
-                .withMessage("Failed to create GUEST table");
+    void indexesAreCreated() throws SQLException {
+        Set<String> indexes = new HashSet<>();
+        try (var connection = dataSource.getConnection();
+             var rs = connection.getMetaData().getIndexInfo(null, "APP", "GUEST", false, true)) {
+            while (rs.next()) {
+                indexes.add(rs.getString("INDEX_NAME"));
+            }
+        }
+        assertThat(indexes).contains("GUEST_ROOM_IDX", "GUEST_RES_ID_IDX");
     }
 
     @Test
@@ -0,0 +1,144 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.Room;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class HotelRepositoryTest {
+
+    private static EmbeddedDataSource dataSource;
+    private static TransactionManager transactionManager;
+    private HotelRepository repository;
+    private RoomDao roomDao;
+    private GuestDao guestDao;
+    private ReservationDao reservationDao;
+    private Reservation reservation;
+    private Guest guest;
+
+    @BeforeAll
+    static void initTestDataSource() {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:repository-test");
+        dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
+        transactionManager = new TransactionManager(dataSource);
+    }
+
+    @BeforeEach
+    void createRepository() throws SQLException {
+        roomDao = new RoomDao(transactionManager);
+        guestDao = new GuestDao(transactionManager);
+        reservationDao = new ReservationDao(transactionManager);
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM APP.GUEST");
+            st.executeUpdate("DELETE FROM APP.RESERVATION");
+            st.executeUpdate("DELETE FROM APP.ROOM");
+        }
+        roomDao.createAll(List.of(
+                new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.OCCUPIED, 70.0),
+                new Room("102", Room.RoomType.FAMILY, 4, Room.RoomStatus.NOT_OCCUPIED, 120.0)));
+        reservation = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now().plusDays(3), "783920484",
+                "mail1@mail.com", 2, "", Reservation.ReservationState.DOING);
+        reservationDao.create(reservation);
+        guest = new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "", reservation.getId());
+        guestDao.create(guest);
+        repository = new HotelRepository(roomDao, guestDao, reservationDao);
+    }
+
+    @Test
+    void loadsFromDatabase() {
+        assertThat(repository.findRoom("101")).isEqualToComparingFieldByField(roomDao.findByKey("101"));
+        assertThat(repository.findAllRooms()).extracting(Room::getKey).containsExactlyInAnyOrder("101", "102");
+        assertThat(repository.findReservation(reservation.getId())).isEqualToComparingFieldByField(reservation);
+        assertThat(repository.findGuestsInRoom("101")).usingFieldByFieldElementComparator().containsExactly(guest);
+        assertThat(repository.findGuestsByReservation(reservation.getId())).hasSize(1);
+        assertThat(repository.countGuestsInRoom("102")).isZero();
+        assertThat(repository.findRoom("999")).isNull();
+    }
+
+    @Test
+    void returnsCopies() {
+        repository.findRoom("101").setBeds(7);
+        repository.findGuestsInRoom("101").get(0).setRoom("102");
+
+        assertThat(repository.findRoom("101").getBeds()).isEqualTo(2);
+        assertThat(repository.countGuestsInRoom("101")).isEqualTo(1);
+    }
+
+    @Test
+    void followsCommittedWrites() {
+        repository.findAllGuests();
+        Room room = repository.findRoom("102");
+        room.setStatus(Room.RoomStatus.OCCUPIED);
+        roomDao.update(room);
+        guest.setRoom("102");
+        guestDao.update(guest);
+        var second = new Guest("Jablko Jablkove", "102", "5678", Guest.GuestGeneration.CHILD, "", reservation.getId());
+        guestDao.create(second);
+
+        assertThat(repository.findRoom("102")).isEqualToComparingFieldByField(room);
+        assertThat(repository.countGuestsInRoom("101")).isZero();
+        assertThat(repository.findGuestsInRooms(List.of("101", "102"))).extracting(Guest::getId)
+                .containsExactlyInAnyOrder(guest.getId(), second.getId());
+
+        guestDao.delete(second);
+        reservation.setState(Reservation.ReservationState.ENDED);
+        reservationDao.update(reservation);
+
+        assertThat(repository.findGuestsByReservation(reservation.getId())).extracting(Guest::getId)
+                .containsExactly(guest.getId());
+        assertThat(repository.findReservation(reservation.getId()).getState())
+                .isEqualTo(Reservation.ReservationState.ENDED);
+    }
+
+    @Test
+    void ignoresRolledBackWrites() {
+        repository.findAllGuests();
+        Room room = repository.findRoom("102");
+        room.setStatus(Room.RoomStatus.OCCUPIED);
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> transactionManager.run(() -> {
+            roomDao.update(room);
+            guestDao.delete(guest);
+            throw new IllegalStateException("desk closed");
+        }));
+        assertThat(repository.findRoom("102").getStatus()).isEqualTo(Room.RoomStatus.NOT_OCCUPIED);
+        assertThat(repository.countGuestsInRoom("101")).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateReloads() throws SQLException {
+        repository.findAllRooms();
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("UPDATE APP.ROOM SET NUMBER_OF_BEDS = 3 WHERE NUMBER = '102'");
+        }
+        assertThat(repository.findRoom("102").getBeds()).isEqualTo(4);
+
+        repository.invalidate();
+        assertThat(repository.findRoom("102").getBeds()).isEqualTo(3);
+    }
+
+    @Test
+    void readsThroughWithoutCaching() throws SQLException {
+        repository.setCaching(false);
+        repository.findAllRooms();
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("UPDATE APP.ROOM SET NUMBER_OF_BEDS = 3 WHERE NUMBER = '102'");
+            st.executeUpdate("UPDATE APP.GUEST SET ROOM = '102'");
+        }
+
+        assertThat(repository.findRoom("102").getBeds()).isEqualTo(3);
+        assertThat(repository.countGuestsInRoom("102")).isEqualTo(1);
+    }
+}
@@ -1,12 +1,12 @@
 package cz.muni.fi.group05.room03.data;
 
 import org.apache.derby.jdbc.EmbeddedDataSource;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import javax.sql.DataSource;
+import java.math.BigDecimal;
 import java.sql.SQLException;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -24,6 +24,7 @@ public class ImportantDataDaoTest {
         dataSource = new EmbeddedDataSource();
         dataSource.setDatabaseName("memory:importantdao-test");
         dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
     }
 
     @BeforeEach
@@ -34,11 +35,6 @@ public class ImportantDataDaoTest {
         }
     }
 
-    @AfterEach
-    void cleanUp() {
-        importantDataDao.dropTable();
-    }
-
     private ImportantDataDao createFailingDao(Throwable exceptionToBeThrown) {
         try {
             var dataSource = mock(DataSource.class);
@@ -120,29 +116,62 @@ public class ImportantDataDaoTest {
 
         assertThatExceptionOfType(DataAccessException.class)
                 .isThrownBy(() -> failingDao.findByKey("TAX"))
-                .withMessage("Failed to load data with key TAX")
+                .withMessage("Failed to load all data")
                 .withCause(sqlException);
     }
 
     @Test
-    void tableExistsWithException() {
-        var sqlException = new SQLException();
-        var failingDao = createFailingDao(sqlException);
+    void readsAreServedFromSnapshot() throws SQLException {
+        importantDataDao.create("TAX", "20");
+        importantDataDao.reload();
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("UPDATE APP.DATA SET VALUE = '99' WHERE NAME = 'TAX'");
+        }
 
-        String any = "any";
-        assertThatExceptionOfType(DataAccessException.class)
-                .isThrownBy(() -> failingDao.tableExits(any, any))
-                .withMessage("Failed to detect if the table " + any + "." + any + " exist");
+        assertThat(importantDataDao.getInt("TAX")).isEqualTo(20);
+        importantDataDao.reload();
+        assertThat(importantDataDao.getInt("TAX")).isEqualTo(99);
     }
 
     @Test
-    void createTableWithException() {
-        var sqlException = new SQLException();
-        var failingDao = createFailingDao(sqlException);
+    void writesSwapSnapshot() {
+        importantDataDao.create("TAX", "20");
+        assertThat(importantDataDao.getInt("TAX")).isEqualTo(20);
 
+        importantDataDao.update("TAX", "21");
+        importantDataDao.create("SALE", "true");
+
+        assertThat(importantDataDao.getInt("TAX")).isEqualTo(21);
+        assertThat(importantDataDao.getBoolean("SALE")).isTrue();
+    }
+
+    @Test
+    void typedGetters() {
+        importantDataDao.create("TAX", " 20 ");
+        importantDataDao.create("RATE", "12.50");
+        importantDataDao.create("OPEN", "FALSE");
+
+        assertThat(importantDataDao.getInt("TAX")).isEqualTo(20);
+        assertThat(importantDataDao.getDecimal("RATE")).isEqualByComparingTo(new BigDecimal("12.5"));
+        assertThat(importantDataDao.getBoolean("OPEN")).isFalse();
+    }
+
+    @Test
+    void typedGettersWithInvalidValue() {
+        importantDataDao.create("TAX", "many");
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> importantDataDao.getInt("TAX"))
+                .withMessage("Data TAX is not an integer: many");
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> importantDataDao.getDecimal("TAX"))
+                .withMessage("Data TAX is not a decimal: many");
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> importantDataDao.getBoolean("TAX"))
+                .withMessage("Data TAX is not a boolean: many");
         assertThatExceptionOfType(DataAccessException.class)
-                .isThrownBy(failingDao::createTable)
-                .withMessage("Failed to create DATA table");
+                .isThrownBy(() -> importantDataDao.getInt("SALE"))
+                .withMessage("Missing data with key SALE");
     }
 
     @Test
@@ -2,7 +2,6 @@ package cz.muni.fi.group05.room03.data;
 
 import cz.muni.fi.group05.room03.model.Reservation;
 import org.apache.derby.jdbc.EmbeddedDataSource;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +12,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -30,6 +34,7 @@ public class ReservationDaoTest {
         dataSource = new EmbeddedDataSource();
         dataSource.setDatabaseName("memory:reservation-test");
         dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
     }
 
     @BeforeEach
@@ -40,31 +45,16 @@ public class ReservationDaoTest {
         }
     }
 
-    @AfterEach
-    void cleanUp() {
-        reservationDao.dropTable();
-    }
-
-    @Test
-    void tableExistsWithException() {
-        var sqlException = new SQLException();
-        var failingDao = createFailingDao(sqlException);
-
-        String any = "any";
-
-        assertThatExceptionOfType(DataAccessException.class)
-                .isThrownBy(() -> failingDao.tableExits(any, any))
-                .withMessage("Failed to detect if the table " + any + "." + any + " exist");
-    }
-
     @Test
-    void createTableWithException() {
-        var sqlException = new SQLException();
-        var failingDao = createFailingDao(sqlException);
-
-        assertThatExceptionOfType(DataAccessException.class)
-                .isThrownBy(failingDao::createTable)
-                .withMessage("Failed to create RESERVATION table");
+    void indexesAreCreated() throws SQLException {
+        Set<String> indexes = new HashSet<>();
+        try (var connection = dataSource.getConnection();
+             var rs = connection.getMetaData().getIndexInfo(null, "APP", "RESERVATION", false, true)) {
+            while (rs.next()) {
+                indexes.add(rs.getString("INDEX_NAME"));
+            }
+        }
+        assertThat(indexes).contains("RESERVATION_STATE_IDX", "RESERVATION_DATES_IDX", "RESERVATION_ORDER_IDX");
     }
 
     @Test
@@ -118,6 +108,73 @@ public class ReservationDaoTest {
                 .withMessage("Failed to fetch generated key: no key returned for reservation: " + res);
     }
 
+    @Test
+    void createAllReservations() {
+        var res1 = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.UPCOMING);
+        var res2 = new Reservation("Mango Mangove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 4, "", Reservation.ReservationState.UPCOMING);
+
+        var ids = reservationDao.createAll(List.of(res1, res2));
+
+        assertThat(ids).containsExactly(res1.getId(), res2.getId()).doesNotContainNull();
+        assertThat(reservationDao.findAll())
+                .usingFieldByFieldElementComparator()
+                .containsExactlyInAnyOrder(res1, res2);
+    }
+
+    @Test
+    void createAllUpdatesStoredReservations() {
+        var stored = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.UPCOMING);
+        reservationDao.create(stored);
+        var res2 = new Reservation("Mango Mangove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 4, "", Reservation.ReservationState.UPCOMING);
+
+        stored.setState(Reservation.ReservationState.DOING);
+        var ids = reservationDao.createAll(List.of(stored, res2));
+
+        assertThat(ids).containsExactly(stored.getId(), res2.getId()).doesNotContainNull();
+        assertThat(reservationDao.findAll())
+                .usingFieldByFieldElementComparator()
+                .containsExactlyInAnyOrder(stored, res2);
+    }
+
+    @Test
+    void createAllReservationsIsAtomic() {
+        var res1 = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.UPCOMING);
+        var missing = new Reservation("Mango Mangove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 4, "", Reservation.ReservationState.UPCOMING, 123L);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> reservationDao.createAll(List.of(res1, missing)))
+                .withMessage("Failed to update non-existing reservation: " + missing);
+        assertThat(res1.getId()).isNull();
+        assertThat(reservationDao.findAll()).isEmpty();
+    }
+
+    @Test
+    void updateAllReservations() {
+        var res1 = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.UPCOMING);
+        var res2 = new Reservation("Mango Mangove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 4, "", Reservation.ReservationState.UPCOMING);
+        reservationDao.createAll(List.of(res1, res2));
+
+        res1.setState(Reservation.ReservationState.CANCELED);
+        res2.setState(Reservation.ReservationState.DOING);
+        reservationDao.updateAll(List.of(res1, res2));
+
+        assertThat(reservationDao.findById(res1.getId())).isEqualToComparingFieldByField(res1);
+        assertThat(reservationDao.findById(res2.getId())).isEqualToComparingFieldByField(res2);
+    }
+
+    @Test
+    void updateAllNonExisting() {
+        var res1 = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.UPCOMING);
+        reservationDao.create(res1);
+        var res2 = new Reservation("Mango Mangove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 4, "", Reservation.ReservationState.UPCOMING, 123L);
+
+        res1.setState(Reservation.ReservationState.CANCELED);
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> reservationDao.updateAll(List.of(res1, res2)))
+                .withMessage("Failed to update non-existing reservation: " + res2);
+        assertThat(reservationDao.findById(res1.getId()).getState()).isEqualTo(Reservation.ReservationState.UPCOMING);
+    }
+
     @Test
     void findAllEmpty() {
         assertThat(reservationDao.findAll()).isEmpty();
@@ -138,6 +195,245 @@ public class ReservationDaoTest {
                 .containsExactlyInAnyOrder(res1, res2, res3);
     }
 
+    @Test
+    void findPage() {
+        var res1 = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.DOING);
+        var res2 = new Reservation("Mango Mangove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 4, "", Reservation.ReservationState.DOING);
+        var res3 = new Reservation("Mandarinka Mandarinkova", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 2, "", Reservation.ReservationState.DOING);
+        reservationDao.createAll(List.of(res1, res2, res3));
+
+        var first = reservationDao.findPage(null, 2);
+        assertThat(first)
+                .usingFieldByFieldElementComparator()
+                .containsExactly(res1, res2);
+        assertThat(reservationDao.findPage(first.get(1).getId(), 2))
+                .usingFieldByFieldElementComparator()
+                .containsExactly(res3);
+        assertThat(reservationDao.findPage(res3.getId(), 2)).isEmpty();
+    }
+
+    @Test
+    void findPageWithFilters() {
+        var date = LocalDate.of(2021, 5, 10);
+        var before = new Reservation("Kiwi Kiwiove", date.minusDays(5), date, "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.ENDED);
+        var during = new Reservation("Mango Mangove", date.minusDays(1), date.plusDays(2), "783920484", "mail1@mail.com", 4, "", Reservation.ReservationState.DOING);
+        var after = new Reservation("Mandarinka Mandarinkova", date.plusDays(3), date.plusDays(6), "783920484", "mail1@mail.com", 2, "", Reservation.ReservationState.UPCOMING);
+        reservationDao.createAll(List.of(before, during, after));
+
+        assertThat(reservationDao.findPage(null, 10, Reservation.ReservationState.UPCOMING, null, null))
+                .usingFieldByFieldElementComparator()
+                .containsExactly(after);
+        assertThat(reservationDao.findPage(null, 10, null, date, date.plusDays(4)))
+                .usingFieldByFieldElementComparator()
+                .containsExactly(during, after);
+        assertThat(reservationDao.findPage(during.getId(), 10, null, date, null))
+                .usingFieldByFieldElementComparator()
+                .containsExactly(after);
+    }
+
+    @Test
+    void findPageWithInvalidLimit() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> reservationDao.findPage(null, 0));
+    }
+
+    @Test
+    void findPageWithException() {
+        var sqlException = new SQLException();
+        ReservationDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> failingDao.findPage(5L, 10))
+                .withMessage("Failed to load reservations after 5")
+                .withCause(sqlException);
+    }
+
+    @Test
+    void findSortedPages() {
+        var today = LocalDate.now();
+        var ended = new Reservation("Kiwi Kiwiove", today.minusDays(9), today.minusDays(2), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.ENDED);
+        var later = new Reservation("Mango Mangove", today.plusDays(5), today.plusDays(8), "783920484", "mail2@mail.com", 4, "", Reservation.ReservationState.UPCOMING);
+        var leaving = new Reservation("Mandarinka Mandarinkova", today.minusDays(1), today.plusDays(1), "783920484", "mail3@mail.com", 2, "", Reservation.ReservationState.DOING);
+        var sooner = new Reservation("Banan Bananove", today.plusDays(3), today.plusDays(4), "783920484", "mail4@mail.com", 2, "", Reservation.ReservationState.UPCOMING);
+        reservationDao.createAll(List.of(ended, later, leaving, sooner));
+        var query = new ReservationQuery()
+                .orderBy(ReservationQuery.Field.DAYS_TO_PERFORM, true)
+                .orderBy(ReservationQuery.Field.STATE, true);
+
+        assertThat(reservationDao.count(query)).isEqualTo(4);
+        assertThat(reservationDao.findPage(query, 0, 3))
+                .extracting(Reservation::getId)
+                .containsExactly(leaving.getId(), sooner.getId(), later.getId());
+        assertThat(reservationDao.findPage(query, 3, 3))
+                .usingFieldByFieldElementComparator()
+                .containsExactly(ended);
+        assertThat(reservationDao.findPage(new ReservationQuery().orderBy(ReservationQuery.Field.PEOPLE, false), 0, 4))
+                .extracting(Reservation::getId)
+                .containsExactly(later.getId(), leaving.getId(), sooner.getId(), ended.getId());
+    }
+
+    @Test
+    void findPagesAfterPreviousReservation() {
+        var today = LocalDate.now();
+        List<Reservation> reservations = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            var state = Reservation.ReservationState.values()[i % 4];
+            reservations.add(new Reservation("Kiwi " + i, today.plusDays(i % 3), today.plusDays(3), "783920484",
+                    "mail" + i + "@mail.com", 1 + i % 2, "", state));
+        }
+        reservationDao.createAll(reservations);
+        var fields = List.of(ReservationQuery.Field.NAME);
+        var queries = List.of(new ReservationQuery(),
+                new ReservationQuery().orderBy(ReservationQuery.Field.ID, false),
+                new ReservationQuery().orderBy(ReservationQuery.Field.DAYS_TO_PERFORM, true)
+                        .orderBy(ReservationQuery.Field.STATE, true),
+                new ReservationQuery().search("kiwi 1", fields).orderBy(ReservationQuery.Field.DAYS_TO_PERFORM, true)
+                        .orderBy(ReservationQuery.Field.STATE, true),
+                new ReservationQuery().orderBy(ReservationQuery.Field.PEOPLE, true));
+
+        for (ReservationQuery query : queries) {
+            List<Reservation> all = reservationDao.findPage(query, 0, 20);
+            for (int offset = 1; offset < all.size(); offset++) {
+                assertThat(reservationDao.findPage(query, all.get(offset - 1).getId(), offset, 4))
+                        .extracting(Reservation::getId)
+                        .containsExactlyElementsOf(reservationDao.findPage(query, offset, 4).stream()
+                                .map(Reservation::getId).collect(Collectors.toList()));
+            }
+        }
+        assertThat(reservationDao.findPage(new ReservationQuery(), reservations.get(5).getId(), 0, 2))
+                .extracting(Reservation::getId)
+                .containsExactly(reservations.get(6).getId(), reservations.get(7).getId());
+        assertThat(reservationDao.findPage(new ReservationQuery(), 999_999L, 2, 3))
+                .extracting(Reservation::getId)
+                .containsExactly(reservations.get(2).getId(), reservations.get(3).getId(), reservations.get(4).getId());
+    }
+
+    @Test
+    void findSearchedPages() {
+        var res1 = new Reservation("Kiwi Kiwiove", LocalDate.of(2021, 5, 10), LocalDate.of(2021, 5, 12), "783920484", "kiwi@mail.com", 1, "", Reservation.ReservationState.UPCOMING);
+        var res2 = new Reservation("Mango Mangove", LocalDate.of(2021, 6, 10), LocalDate.of(2021, 6, 12), "783920484", "mango_100%@mail.com", 4, "", Reservation.ReservationState.CANCELED);
+        reservationDao.createAll(List.of(res1, res2));
+        var fields = List.of(ReservationQuery.Field.NAME, ReservationQuery.Field.DATE_FROM, ReservationQuery.Field.EMAIL,
+                ReservationQuery.Field.STATE, ReservationQuery.Field.DAYS_TO_PERFORM);
+
+        assertThat(reservationDao.findPage(new ReservationQuery().search("KIWI", fields), 0, 10))
+                .usingFieldByFieldElementComparator()
+                .containsExactly(res1);
+        assertThat(reservationDao.findPage(new ReservationQuery().search("2021-06", fields), 0, 10))
+                .extracting(Reservation::getId)
+                .containsExactly(res2.getId());
+        assertThat(reservationDao.count(new ReservationQuery().search("_100%", fields))).isEqualTo(1);
+        assertThat(reservationDao.count(new ReservationQuery().search("o%1", fields))).isZero();
+        assertThat(reservationDao.count(new ReservationQuery().search("zrusena", List.of(ReservationQuery.Field.STATE))
+                .searchStates(List.of(Reservation.ReservationState.CANCELED)))).isEqualTo(1);
+        assertThat(reservationDao.count(new ReservationQuery().search("canceled", List.of(ReservationQuery.Field.STATE))))
+                .isZero();
+        assertThat(reservationDao.count(new ReservationQuery().search("kiwi", List.of()))).isZero();
+        assertThat(reservationDao.count(new ReservationQuery().search("", List.of()))).isEqualTo(2);
+    }
+
+    @Test
+    void findSortedPageWithInvalidBounds() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> reservationDao.findPage(new ReservationQuery(), 0, 0));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> reservationDao.findPage(new ReservationQuery(), -1, 10));
+    }
+
+    @Test
+    void forEachReservation() {
+        var res1 = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.DOING);
+        var res2 = new Reservation("Mango Mangove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 4, "", Reservation.ReservationState.UPCOMING);
+        reservationDao.createAll(List.of(res1, res2));
+
+        List<Reservation> visited = new ArrayList<>();
+        reservationDao.forEach(visited::add);
+
+        assertThat(visited)
+                .usingFieldByFieldElementComparator()
+                .containsExactlyInAnyOrder(res1, res2);
+    }
+
+    @Test
+    void forEachReleasesConnection() {
+        var res = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.DOING);
+        reservationDao.create(res);
+        try (var pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(1).build()) {
+            var pooledDao = new ReservationDao(pool);
+
+            assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> pooledDao.forEach(r -> {
+                throw new IllegalStateException();
+            }));
+            assertThat(pool.getStatistics().getActive()).isZero();
+        }
+    }
+
+    @Test
+    void forEachWithException() {
+        var sqlException = new SQLException();
+        ReservationDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> failingDao.forEach(r -> { }))
+                .withMessage("Failed to stream all reservations")
+                .withCause(sqlException);
+    }
+
+    @Test
+    void findIdsByState() {
+        var res1 = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.DOING);
+        var res2 = new Reservation("Mango Mangove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 4, "", Reservation.ReservationState.UPCOMING);
+        var res3 = new Reservation("Mandarinka Mandarinkova", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 2, "", Reservation.ReservationState.DOING);
+        reservationDao.createAll(List.of(res1, res2, res3));
+
+        assertThat(reservationDao.findIdsByState(Reservation.ReservationState.DOING)).containsExactly(res1.getId(), res3.getId());
+        assertThat(reservationDao.findIdsByState(Reservation.ReservationState.ENDED)).isEmpty();
+    }
+
+    @Test
+    void findIdsByStateWithException() {
+        var sqlException = new SQLException();
+        ReservationDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> failingDao.findIdsByState(Reservation.ReservationState.DOING))
+                .withMessage("Failed to load ids of reservations with state " + Reservation.ReservationState.DOING)
+                .withCause(sqlException);
+    }
+
+    @Test
+    void activeIndexFollowsChanges() {
+        var date = LocalDate.of(2021, 5, 10);
+        var active = new Reservation("Kiwi Kiwiove", date, date.plusDays(3), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.UPCOMING);
+        var ended = new Reservation("Mango Mangove", date, date.plusDays(3), "783920484", "mail1@mail.com", 4, "", Reservation.ReservationState.ENDED);
+        reservationDao.createAll(List.of(active, ended));
+
+        var index = reservationDao.getActiveIndex();
+        assertThat(index.findInHouse(date)).extracting(Reservation::getId).containsExactly(active.getId());
+
+        var added = new Reservation("Mandarinka Mandarinkova", date.plusDays(1), date.plusDays(2), "783920484", "mail1@mail.com", 2, "", Reservation.ReservationState.DOING);
+        reservationDao.create(added);
+        assertThat(index.countInHouse(date.plusDays(1))).isEqualTo(2);
+
+        active.setState(Reservation.ReservationState.CANCELED);
+        reservationDao.update(active);
+        assertThat(index.findInHouse(date.plusDays(1))).extracting(Reservation::getId).containsExactly(added.getId());
+
+        reservationDao.delete(added);
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void activeIndexWithException() {
+        var sqlException = new SQLException();
+        ReservationDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(failingDao::getActiveIndex)
+                .withMessage("Failed to load active reservations")
+                .withCause(sqlException);
+    }
+
     @Test
     void findAllWithException() {
         var sqlException = new SQLException();
@@ -188,6 +484,24 @@ public class ReservationDaoTest {
                 .withMessage("Reservation has null ID: " + res);
     }
 
+    @Test
+    void updateStaleVersion() {
+        var res = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.UPCOMING);
+        reservationDao.create(res);
+        var otherDesk = reservationDao.findById(res.getId());
+        otherDesk.setState(Reservation.ReservationState.CANCELED);
+        reservationDao.update(otherDesk);
+        res.setState(Reservation.ReservationState.DOING);
+
+        assertThat(otherDesk.getVersion()).isEqualTo(1);
+        assertThatExceptionOfType(OptimisticLockException.class)
+                .isThrownBy(() -> reservationDao.update(res))
+                .withMessage("Reservation " + res.getId() + " was modified concurrently, expected version 0 but found 1");
+        assertThatExceptionOfType(OptimisticLockException.class)
+                .isThrownBy(() -> reservationDao.updateAll(List.of(res)));
+        assertThat(reservationDao.findById(res.getId())).isEqualToComparingFieldByField(otherDesk);
+    }
+
     @Test
     void updateNonExisting() {
         var res = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now(), "783920484", "mail1@mail.com", 1, "", Reservation.ReservationState.DOING);
@@ -0,0 +1,89 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Reservation;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+
+import java.nio.file.Files;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares loading the whole reservation history with counting it and fetching single pages, as the reservation
+ * table does. Not part of the test suite, run with
+ * {@code java -cp target/classes:target/test-classes:<derby.jar> cz.muni.fi.group05.room03.data.ReservationPageBenchmark [rows]}.
+ */
+public class ReservationPageBenchmark {
+
+    private static final int PAGE_SIZE = 200;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        var dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName(Files.createTempDirectory("reservation-benchmark").resolve("db").toString());
+        dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
+        insert(dataSource, rows);
+        var reservationDao = new ReservationDao(dataSource);
+        var query = new ReservationQuery()
+                .search("", List.of(ReservationQuery.Field.NAME, ReservationQuery.Field.EMAIL))
+                .orderBy(ReservationQuery.Field.DAYS_TO_PERFORM, true)
+                .orderBy(ReservationQuery.Field.STATE, true);
+        var search = new ReservationQuery()
+                .search("guest 4242", List.of(ReservationQuery.Field.NAME, ReservationQuery.Field.EMAIL))
+                .orderBy(ReservationQuery.Field.NAME, true);
+        int last = rows - PAGE_SIZE;
+        Long previousId = reservationDao.findPage(query, last - 1, 1).get(0).getId();
+        for (int round = 0; round < ROUNDS; round++) {
+            long count = measure(() -> reservationDao.count(query));
+            long first = measure(() -> reservationDao.findPage(query, 0, PAGE_SIZE));
+            long middle = measure(() -> reservationDao.findPage(query, rows / 2, PAGE_SIZE));
+            long skipped = measure(() -> reservationDao.findPage(query, last, PAGE_SIZE));
+            long continued = measure(() -> reservationDao.findPage(query, previousId, last, PAGE_SIZE));
+            long searched = measure(() -> reservationDao.findPage(search, 0, PAGE_SIZE));
+            System.out.printf("round %d, %d rows: count %d ms, first page %d ms, middle page %d ms, "
+                            + "last page by offset %d ms, last page after previous %d ms, search %d ms%n",
+                    round + 1, rows, count, first, middle, skipped, continued, searched);
+        }
+        System.out.printf("findAll %d ms%n", measure(reservationDao::findAll));
+    }
+
+    private static void insert(EmbeddedDataSource dataSource, int rows) throws SQLException {
+        var today = LocalDate.now();
+        try (var connection = dataSource.getConnection();
+             var st = connection.prepareStatement("INSERT INTO RESERVATION " +
+                     "(NAME, DATE_FROM, DATE_TO, TELEPHONE, EMAIL, PERSONS, INFO, STATE) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                // the history is mostly ended stays with a few current ones at its end
+                var state = i < rows - 1000 ? Reservation.ReservationState.ENDED
+                        : Reservation.ReservationState.values()[i % 4];
+                var from = today.minusDays((rows - i) / 100);
+                st.setString(1, "Guest " + i);
+                st.setDate(2, Date.valueOf(from));
+                st.setDate(3, Date.valueOf(from.plusDays(1 + i % 7)));
+                st.setString(4, "783920484");
+                st.setString(5, "guest" + i + "@mail.com");
+                st.setInt(6, 1 + i % 4);
+                st.setString(7, "");
+                st.setString(8, state.name());
+                st.addBatch();
+                if (i % 10_000 == 9_999) {
+                    st.executeBatch();
+                    connection.commit();
+                }
+            }
+            st.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private static long measure(Supplier<?> operation) {
+        long start = System.nanoTime();
+        operation.get();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
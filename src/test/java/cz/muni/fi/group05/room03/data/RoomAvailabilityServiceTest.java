@@ -0,0 +1,130 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.Room;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RoomAvailabilityServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2021, 7, 1);
+    private static final Clock CLOCK = Clock.fixed(DAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    private static EmbeddedDataSource dataSource;
+    private RoomAvailabilityService service;
+    private RoomDao roomDao;
+    private GuestDao guestDao;
+    private ReservationDao reservationDao;
+    private Reservation first;
+    private Reservation second;
+    private Reservation later;
+
+    @BeforeAll
+    static void initTestDataSource() {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:availability-test");
+        dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
+    }
+
+    @BeforeEach
+    void createService() throws SQLException {
+        service = new RoomAvailabilityService(dataSource, null, CLOCK);
+        roomDao = new RoomDao(dataSource);
+        guestDao = new GuestDao(dataSource);
+        reservationDao = new ReservationDao(dataSource);
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM APP.GUEST");
+            st.executeUpdate("DELETE FROM APP.RESERVATION");
+            st.executeUpdate("DELETE FROM APP.ROOM");
+        }
+        roomDao.createAll(List.of(
+                new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0),
+                new Room("102", Room.RoomType.FAMILY, 4, Room.RoomStatus.OCCUPIED, 120.0),
+                new Room("103", Room.RoomType.FAMILY, 4, Room.RoomStatus.OCCUPIED, 120.0),
+                new Room("104", Room.RoomType.SINGLE, 1, Room.RoomStatus.NOT_OCCUPIED, 50.0)));
+        first = reservation(0, 3, Reservation.ReservationState.DOING);
+        second = reservation(1, 4, Reservation.ReservationState.DOING);
+        later = reservation(10, 12, Reservation.ReservationState.UPCOMING);
+        reservationDao.createAll(List.of(first, second, later));
+        guestDao.createAll(List.of(
+                new Guest("Hruska Hruskova", "102", "1234", Guest.GuestGeneration.ADULT, "", first.getId()),
+                new Guest("Jablko Jablkove", "102", "5678", Guest.GuestGeneration.ADULT, "", first.getId()),
+                new Guest("Slivka Slivkova", "103", "", Guest.GuestGeneration.CHILD, "", second.getId())));
+    }
+
+    private static Reservation reservation(int fromDay, int toDay, Reservation.ReservationState state) {
+        return new Reservation("Kiwi Kiwiove", DAY.plusDays(fromDay), DAY.plusDays(toDay), "783920484",
+                "mail1@mail.com", 2, "", state);
+    }
+
+    @Test
+    void emptyRoomsAndRoomsOfSameReservation() {
+        assertThat(service.findAssignableRooms(first.getId(), 1)).containsExactly("101", "102", "104");
+    }
+
+    @Test
+    void roomsWithoutEnoughBedsAreSkipped() {
+        assertThat(service.findAssignableRooms(first.getId(), 2)).containsExactly("101", "102");
+        assertThat(service.findAssignableRooms(second.getId(), 3)).containsExactly("103");
+        assertThat(service.findAssignableRooms(later.getId(), 5)).isEmpty();
+    }
+
+    @Test
+    void roomsTakenOnlyOnOtherNightsAreAssignable() {
+        assertThat(service.findAssignableRooms(later.getId(), 2)).containsExactly("101", "102", "103");
+    }
+
+    @Test
+    void inactiveReservationHasNoRooms() {
+        later.setState(Reservation.ReservationState.CANCELED);
+        reservationDao.update(later);
+
+        assertThat(service.findAssignableRooms(later.getId(), 1)).isEmpty();
+    }
+
+    @Test
+    void calendarGivesSameRooms() {
+        var calendarService = new RoomAvailabilityService(dataSource,
+                new RoomOccupancyService(roomDao, guestDao, reservationDao, CLOCK));
+
+        for (Reservation reservation : List.of(first, second, later)) {
+            for (int partySize = 1; partySize <= 4; partySize++) {
+                assertThat(calendarService.findAssignableRooms(reservation.getId(), partySize))
+                        .isEqualTo(service.findAssignableRooms(reservation.getId(), partySize));
+            }
+        }
+    }
+
+    @Test
+    void nullReservationId() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> service.findAssignableRooms(null, 1));
+    }
+
+    @Test
+    void findAssignableRoomsWithException() throws SQLException {
+        var sqlException = new SQLException();
+        var failing = mock(DataSource.class);
+        when(failing.getConnection()).thenThrow(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> new RoomAvailabilityService(failing).findAssignableRooms(1L, 1))
+                .withMessage("Failed to load assignable rooms for reservation 1")
+                .withCause(sqlException);
+    }
+}
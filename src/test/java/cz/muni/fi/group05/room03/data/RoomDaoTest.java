@@ -1,15 +1,16 @@
 package cz.muni.fi.group05.room03.data;
 
+import cz.muni.fi.group05.room03.model.Guest;
 import cz.muni.fi.group05.room03.model.Room;
 import org.apache.derby.jdbc.EmbeddedDataSource;
 import org.hamcrest.MatcherAssert;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -27,42 +28,18 @@ public class RoomDaoTest {
         dataSource = new EmbeddedDataSource();
         dataSource.setDatabaseName("memory:room-test");
         dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
     }
 
     @BeforeEach
     void createRoomDao() throws SQLException {
         roomDao = new RoomDao(dataSource);
         try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM APP.GUEST");
             st.executeUpdate("DELETE FROM APP.ROOM");
         }
     }
 
-    @AfterEach
-    void cleanUp() {
-        roomDao.dropTable();
-    }
-
-    @Test
-    void tableExistsWithException() {
-        var sqlException = new SQLException();
-        var failingDao = createFailingDao(sqlException);
-
-        String any = "any";
-        assertThatExceptionOfType(DataAccessException.class)
-                .isThrownBy(() -> failingDao.tableExits(any, any))
-                .withMessage("Failed to detect if the table " + any + "." + any + " exist");
-    }
-
-    @Test
-    void createTableWithException() {
-        var sqlException = new SQLException();
-        var failingDao = createFailingDao(sqlException);
-
-        assertThatExceptionOfType(DataAccessException.class)
-                .isThrownBy(failingDao::createTable)
-                .withMessage("Failed to create ROOM table");
-    }
-
     @Test
     void dropTableWithException() {
         var sqlException = new SQLException();
@@ -92,6 +69,56 @@ public class RoomDaoTest {
                 .withCause(sqlException);
     }
 
+    @Test
+    void createAllRooms() {
+        var room1 = new Room("007", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 73.6);
+        var room2 = new Room("073", Room.RoomType.DOUBLE, 3, Room.RoomStatus.NOT_OCCUPIED, 122.3);
+
+        roomDao.createAll(List.of(room1, room2));
+
+        assertThat(roomDao.findAll())
+                .usingFieldByFieldElementComparator()
+                .containsExactlyInAnyOrder(room1, room2);
+    }
+
+    @Test
+    void createAllRoomsWithException() {
+        var sqlException = new SQLException();
+        var failingDao = createFailingDao(sqlException);
+        var rooms = List.of(new Room("007", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 73.6));
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> failingDao.createAll(rooms))
+                .withMessage("Failed to store rooms " + rooms)
+                .withCause(sqlException);
+    }
+
+    @Test
+    void updateAllRooms() {
+        var room1 = new Room("007", Room.RoomType.SINGLE, 2, Room.RoomStatus.NOT_OCCUPIED, 73.6);
+        var room2 = new Room("777", Room.RoomType.DOUBLE, 5, Room.RoomStatus.NOT_OCCUPIED, 373.6);
+        roomDao.createAll(List.of(room1, room2));
+
+        room1.setStatus(Room.RoomStatus.OCCUPIED);
+        room2.setStatus(Room.RoomStatus.OCCUPIED);
+        roomDao.updateAll(List.of(room1, room2));
+
+        assertThat(roomDao.countWithStatus(Room.RoomStatus.OCCUPIED)).isEqualTo(2);
+    }
+
+    @Test
+    void updateAllNonExisting() {
+        var room1 = new Room("007", Room.RoomType.SINGLE, 2, Room.RoomStatus.NOT_OCCUPIED, 73.6);
+        var room2 = new Room("777", Room.RoomType.DOUBLE, 5, Room.RoomStatus.NOT_OCCUPIED, 373.6);
+        roomDao.create(room1);
+
+        room1.setStatus(Room.RoomStatus.OCCUPIED);
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> roomDao.updateAll(List.of(room1, room2)))
+                .withMessage("Failed to update non-existing room: " + room2);
+        assertThat(roomDao.countWithStatus(Room.RoomStatus.OCCUPIED)).isZero();
+    }
+
     @Test
     void findAllEmpty() {
         assertThat(roomDao.findAll()).isEmpty();
@@ -165,6 +192,35 @@ public class RoomDaoTest {
                 .isEqualToComparingFieldByField(room2);
     }
 
+    @Test
+    void updateIncrementsVersion() {
+        var room = new Room("007", Room.RoomType.SINGLE, 2, Room.RoomStatus.NOT_OCCUPIED, 73.6);
+        roomDao.create(room);
+        room.setBeds(3);
+        roomDao.update(room);
+        roomDao.updateAll(List.of(room));
+
+        assertThat(room.getVersion()).isEqualTo(2);
+        assertThat(roomDao.findByKey(room.getKey()).getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void updateStaleVersion() {
+        var room = new Room("007", Room.RoomType.SINGLE, 2, Room.RoomStatus.NOT_OCCUPIED, 73.6);
+        roomDao.create(room);
+        var otherDesk = roomDao.findByKey(room.getKey());
+        otherDesk.setStatus(Room.RoomStatus.OCCUPIED);
+        roomDao.update(otherDesk);
+        room.setBeds(3);
+
+        assertThatExceptionOfType(OptimisticLockException.class)
+                .isThrownBy(() -> roomDao.update(room))
+                .withMessage("Room 007 was modified concurrently, expected version 0 but found 1");
+        assertThatExceptionOfType(OptimisticLockException.class)
+                .isThrownBy(() -> roomDao.updateAll(List.of(room)));
+        assertThat(roomDao.findByKey(room.getKey())).isEqualToComparingFieldByField(otherDesk);
+    }
+
     @Test
     void updateNonExisting() {
         var room = new Room("007", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 73.6);
@@ -216,6 +272,60 @@ public class RoomDaoTest {
                 .withCause(sqlException);
     }
 
+    @Test
+    void sumPriceWithStatus() {
+        roomDao.createAll(List.of(
+                new Room("007", Room.RoomType.DOUBLE, 2, Room.RoomStatus.OCCUPIED, 73.6),
+                new Room("009", Room.RoomType.DOUBLE, 2, Room.RoomStatus.OCCUPIED, 75.15),
+                new Room("019", Room.RoomType.FAMILY, 5, Room.RoomStatus.NOT_OCCUPIED, 175.6)));
+
+        assertThat(roomDao.sumPriceWithStatus(Room.RoomStatus.OCCUPIED)).isEqualTo(148.75);
+        assertThat(roomDao.sumPriceWithStatus(Room.RoomStatus.NOT_OCCUPIED)).isEqualTo(175.6);
+    }
+
+    @Test
+    void sumPriceWithStatusEmpty() {
+        assertThat(roomDao.sumPriceWithStatus(Room.RoomStatus.OCCUPIED)).isZero();
+    }
+
+    @Test
+    void sumPriceWithStatusWithException() {
+        var sqlException = new SQLException();
+        RoomDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> failingDao.sumPriceWithStatus(Room.RoomStatus.OCCUPIED))
+                .withMessage("Failed to sum price of rooms with status " + Room.RoomStatus.OCCUPIED)
+                .withCause(sqlException);
+    }
+
+    @Test
+    void sumGuestNightlyPrice() {
+        roomDao.createAll(List.of(
+                new Room("007", Room.RoomType.DOUBLE, 2, Room.RoomStatus.OCCUPIED, 73.6),
+                new Room("009", Room.RoomType.DOUBLE, 2, Room.RoomStatus.OCCUPIED, 75.6),
+                new Room("019", Room.RoomType.FAMILY, 5, Room.RoomStatus.OCCUPIED, 175.6)));
+        new GuestDao(dataSource).createAll(List.of(
+                new Guest("Jan Novak", "007", "1", Guest.GuestGeneration.ADULT, "", 1L),
+                new Guest("Eva Novakova", "007", "2", Guest.GuestGeneration.ADULT, "", 1L),
+                new Guest("Adam Novak", "009", "", Guest.GuestGeneration.CHILD, "", 1L),
+                new Guest("Petr Maly", "019", "3", Guest.GuestGeneration.ADULT, "", 2L)));
+
+        assertThat(roomDao.sumGuestNightlyPrice(List.of("007", "009"))).isEqualTo(222.8);
+        assertThat(roomDao.sumGuestNightlyPrice(List.of())).isZero();
+    }
+
+    @Test
+    void sumGuestNightlyPriceWithException() {
+        var sqlException = new SQLException();
+        RoomDao failingDao = createFailingDao(sqlException);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> failingDao.sumGuestNightlyPrice(List.of("007")))
+                .withMessage("Failed to sum guest price of rooms [007]")
+                .withCause(sqlException);
+    }
+
     @Test
     void countAll() {
         var room1 = new Room("007", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 73.6);
@@ -0,0 +1,115 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.Room;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class RoomOccupancyServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2021, 7, 1);
+    private static EmbeddedDataSource dataSource;
+    private RoomOccupancyService service;
+    private RoomDao roomDao;
+    private GuestDao guestDao;
+    private ReservationDao reservationDao;
+    private Reservation reservation;
+
+    @BeforeAll
+    static void initTestDataSource() {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:occupancy-test");
+        dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
+    }
+
+    @BeforeEach
+    void createService() throws SQLException {
+        roomDao = new RoomDao(dataSource);
+        guestDao = new GuestDao(dataSource);
+        reservationDao = new ReservationDao(dataSource);
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM APP.GUEST");
+            st.executeUpdate("DELETE FROM APP.RESERVATION");
+            st.executeUpdate("DELETE FROM APP.ROOM");
+        }
+        roomDao.createAll(List.of(
+                new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0),
+                new Room("102", Room.RoomType.FAMILY, 4, Room.RoomStatus.NOT_OCCUPIED, 120.0)));
+        reservation = new Reservation("Kiwi Kiwiove", DAY.plusDays(2), DAY.plusDays(5), "783920484",
+                "mail1@mail.com", 2, "", Reservation.ReservationState.UPCOMING);
+        reservationDao.create(reservation);
+        guestDao.create(new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "",
+                reservation.getId()));
+        var clock = Clock.fixed(DAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        service = new RoomOccupancyService(roomDao, guestDao, reservationDao, clock);
+    }
+
+    @Test
+    void loadsOccupancyFromDatabase() {
+        assertThat(service.findFreeRooms(DAY.plusDays(1), DAY.plusDays(3))).containsExactly("102");
+        assertThat(service.isFree("101", DAY, DAY.plusDays(2))).isTrue();
+        assertThat(service.getCalendar().getStart()).isEqualTo(DAY);
+    }
+
+    @Test
+    void followsGuestChanges() {
+        service.getCalendar();
+        var guest = new Guest("Jablko Jablkove", "102", "5678", Guest.GuestGeneration.ADULT, "",
+                reservation.getId());
+        guestDao.create(guest);
+        assertThat(service.findFreeRooms(DAY.plusDays(2), DAY.plusDays(3))).isEmpty();
+
+        guestDao.delete(guest);
+        assertThat(service.findFreeRooms(DAY.plusDays(2), DAY.plusDays(3))).containsExactly("102");
+    }
+
+    @Test
+    void followsReservationChanges() {
+        service.getCalendar();
+        reservation.setState(Reservation.ReservationState.CANCELED);
+        reservationDao.update(reservation);
+        assertThat(service.isFree("101", DAY, DAY.plusDays(10))).isTrue();
+
+        reservation.setState(Reservation.ReservationState.DOING);
+        reservationDao.update(reservation);
+        assertThat(service.isFree("101", DAY, DAY.plusDays(10))).isFalse();
+
+        reservationDao.delete(reservation);
+        assertThat(service.isFree("101", DAY, DAY.plusDays(10))).isTrue();
+    }
+
+    @Test
+    void findsAssignableRooms() {
+        var other = new Reservation("Mango Mangove", DAY, DAY.plusDays(3), "783920484",
+                "mail2@mail.com", 3, "", Reservation.ReservationState.DOING);
+        reservationDao.create(other);
+
+        assertThat(service.findAssignableRooms(reservation.getId(), 1)).containsExactly("101", "102");
+        assertThat(service.findAssignableRooms(other.getId(), 2)).containsExactly("102");
+        assertThat(service.findAssignableRooms(other.getId(), 5)).isEmpty();
+
+        var room = roomDao.findByKey("102");
+        room.setBeds(1);
+        roomDao.update(room);
+        assertThat(service.findAssignableRooms(other.getId(), 2)).isEmpty();
+    }
+
+    @Test
+    void nullReservationId() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> service.findAssignableRooms(null, 1));
+    }
+}
@@ -0,0 +1,149 @@
+package cz.muni.fi.group05.room03.data;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class SchemaMigratorTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private EmbeddedDataSource dataSource;
+
+    @BeforeEach
+    void createDataSource() {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:migration-test-" + DATABASES.incrementAndGet());
+        dataSource.setCreateDatabase("create");
+    }
+
+    private int queryInt(String sql) throws SQLException {
+        try (var connection = dataSource.getConnection();
+             var st = connection.createStatement();
+             var rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private boolean tableExists(String table) throws SQLException {
+        try (var connection = dataSource.getConnection();
+             var rs = connection.getMetaData().getTables(null, "APP", table, null)) {
+            return rs.next();
+        }
+    }
+
+    private Set<String> indexes(String table) throws SQLException {
+        Set<String> indexes = new HashSet<>();
+        try (var connection = dataSource.getConnection();
+             var rs = connection.getMetaData().getIndexInfo(null, "APP", table, false, true)) {
+            while (rs.next()) {
+                indexes.add(rs.getString("INDEX_NAME"));
+            }
+        }
+        return indexes;
+    }
+
+    @Test
+    void migrateEmptyDatabase() throws SQLException {
+        assertThat(new SchemaMigrator(dataSource).migrate()).isEqualTo(SchemaMigrator.MIGRATIONS.size());
+
+        assertThat(queryInt("SELECT COUNT(*) FROM APP.ROOM")).isEqualTo(13);
+        assertThat(queryInt("SELECT COUNT(*) FROM APP.DATA WHERE NAME = 'TAX'")).isEqualTo(1);
+        assertThat(queryInt("SELECT COUNT(*) FROM APP.SCHEMA_VERSION")).isEqualTo(SchemaMigrator.MIGRATIONS.size());
+        assertThat(indexes("GUEST")).contains("GUEST_ROOM_IDX", "GUEST_RES_ID_IDX");
+    }
+
+    @Test
+    void migrateIsRepeatable() throws SQLException {
+        new SchemaMigrator(dataSource).migrate();
+        assertThat(new SchemaMigrator(dataSource).migrate()).isEqualTo(SchemaMigrator.MIGRATIONS.size());
+
+        assertThat(queryInt("SELECT COUNT(*) FROM APP.ROOM")).isEqualTo(13);
+        assertThat(queryInt("SELECT COUNT(*) FROM APP.DATA")).isEqualTo(1);
+    }
+
+    @Test
+    void adoptsDatabaseWithoutVersionTable() throws SQLException {
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            for (String sql : SchemaMigrator.MIGRATIONS.get(0).getStatements()) {
+                st.executeUpdate(sql);
+            }
+            st.executeUpdate("CREATE INDEX GUEST_ROOM_IDX ON APP.GUEST (ROOM)");
+        }
+
+        new SchemaMigrator(dataSource).migrate();
+
+        assertThat(queryInt("SELECT COUNT(*) FROM APP.ROOM")).isEqualTo(13);
+        assertThat(queryInt("SELECT COUNT(*) FROM APP.DATA")).isEqualTo(1);
+        assertThat(indexes("GUEST")).contains("GUEST_ROOM_IDX", "GUEST_RES_ID_IDX");
+        assertThat(indexes("RESERVATION")).contains("RESERVATION_STATE_IDX", "RESERVATION_DATES_IDX");
+        assertThat(new RoomDao(dataSource).findByKey("102B").getPrice()).isEqualTo(100.5);
+    }
+
+    @Test
+    void roomPriceIsDecimal() throws SQLException {
+        new SchemaMigrator(dataSource).migrate();
+
+        try (var connection = dataSource.getConnection();
+             var rs = connection.getMetaData().getColumns(null, "APP", "ROOM", "PRICE")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getInt("DATA_TYPE")).isEqualTo(Types.DECIMAL);
+        }
+        assertThat(queryInt("SELECT COUNT(*) FROM APP.ROOM WHERE PRICE BETWEEN 100 AND 110")).isEqualTo(5);
+    }
+
+    @Test
+    void appliesOnlyPendingMigrations() throws SQLException {
+        var first = new Migration(1, "Create table", "CREATE TABLE APP.T (ID INT)");
+        var second = new Migration(2, "Seed table", "INSERT INTO APP.T VALUES (1)");
+        new SchemaMigrator(dataSource, List.of(first)).migrate();
+
+        assertThat(new SchemaMigrator(dataSource, List.of(second, first)).migrate()).isEqualTo(2);
+        assertThat(queryInt("SELECT COUNT(*) FROM APP.T")).isEqualTo(1);
+    }
+
+    @Test
+    void failedMigrationIsRolledBack() throws SQLException {
+        var first = new Migration(1, "Create table", "CREATE TABLE APP.T (ID INT)");
+        var broken = new Migration(2, "Broken", "INSERT INTO APP.T VALUES (1)", "INSERT INTO APP.MISSING VALUES (1)");
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> new SchemaMigrator(dataSource, List.of(first, broken)).migrate())
+                .withMessage("Failed to migrate database schema");
+        assertThat(tableExists("SCHEMA_VERSION")).isFalse();
+        assertThat(tableExists("T")).isFalse();
+        assertThat(new SchemaMigrator(dataSource, List.of(first)).migrate()).isEqualTo(1);
+    }
+
+    @Test
+    void changedMigrationIsRejected() {
+        new SchemaMigrator(dataSource, List.of(new Migration(1, "Create table", "CREATE TABLE APP.T (ID INT)")))
+                .migrate();
+        var changed = new Migration(1, "Create table", "CREATE TABLE APP.T (ID BIGINT)");
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> new SchemaMigrator(dataSource, List.of(changed)).migrate())
+                .withMessage("Checksum mismatch for applied migration " + changed);
+    }
+
+    @Test
+    void newerDatabaseIsRejected() {
+        var first = new Migration(1, "Create table", "CREATE TABLE APP.T (ID INT)");
+        new SchemaMigrator(dataSource, List.of(first, new Migration(2, "Seed", "INSERT INTO APP.T VALUES (1)")))
+                .migrate();
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> new SchemaMigrator(dataSource, List.of(first)).migrate())
+                .withMessage("Database schema version 2 is unknown to this application");
+    }
+}
@@ -0,0 +1,212 @@
+package cz.muni.fi.group05.room03.data;
+
+import cz.muni.fi.group05.room03.model.Guest;
+import cz.muni.fi.group05.room03.model.Reservation;
+import cz.muni.fi.group05.room03.model.Room;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TransactionManagerTest {
+
+    private static EmbeddedDataSource dataSource;
+    private TransactionManager transactionManager;
+    private GuestDao guestDao;
+    private RoomDao roomDao;
+    private ReservationDao reservationDao;
+    private Reservation reservation;
+
+    @BeforeAll
+    static void initTestDataSource() {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:transaction-test");
+        dataSource.setCreateDatabase("create");
+        new SchemaMigrator(dataSource).migrate();
+    }
+
+    @BeforeEach
+    void createDaos() throws SQLException {
+        transactionManager = new TransactionManager(dataSource);
+        guestDao = new GuestDao(transactionManager);
+        roomDao = new RoomDao(transactionManager);
+        reservationDao = new ReservationDao(transactionManager);
+        try (var connection = dataSource.getConnection(); var st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM APP.GUEST");
+            st.executeUpdate("DELETE FROM APP.RESERVATION");
+            st.executeUpdate("DELETE FROM APP.ROOM");
+        }
+        roomDao.create(new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0));
+        reservation = new Reservation("Kiwi Kiwiove", LocalDate.now(), LocalDate.now().plusDays(2), "783920484",
+                "mail1@mail.com", 1, "", Reservation.ReservationState.UPCOMING);
+        reservationDao.create(reservation);
+    }
+
+    private Guest guest() {
+        return new Guest("Hruska Hruskova", "101", "1234", Guest.GuestGeneration.ADULT, "", reservation.getId());
+    }
+
+    private void checkIn(Guest guest) {
+        guestDao.createAll(List.of(guest));
+        roomDao.update(new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.OCCUPIED, 70.0));
+        reservation.setState(Reservation.ReservationState.DOING);
+        reservationDao.update(reservation);
+    }
+
+    @Test
+    void commitsAllDaosTogether() {
+        List<String> events = new ArrayList<>();
+        guestDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Guest guest) {
+                events.add("created");
+            }
+        });
+
+        transactionManager.run(() -> {
+            checkIn(guest());
+            assertThat(events).isEmpty();
+        });
+
+        assertThat(events).containsExactly("created");
+        assertThat(guestDao.countAll()).isEqualTo(1);
+        assertThat(roomDao.countWithStatus(Room.RoomStatus.OCCUPIED)).isEqualTo(1);
+        assertThat(reservationDao.findById(reservation.getId()).getState())
+                .isEqualTo(Reservation.ReservationState.DOING);
+    }
+
+    @Test
+    void rollsBackAllDaosOnFailure() {
+        List<String> events = new ArrayList<>();
+        guestDao.addListener(new EntityChangeListener<>() {
+            @Override
+            public void created(Guest guest) {
+                events.add("created");
+            }
+        });
+        var failure = new IllegalStateException("front desk closed");
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> transactionManager.run(() -> {
+                    checkIn(guest());
+                    throw failure;
+                }))
+                .isSameAs(failure);
+
+        assertThat(events).isEmpty();
+        assertThat(guestDao.countAll()).isZero();
+        assertThat(roomDao.countWithStatus(Room.RoomStatus.OCCUPIED)).isZero();
+        assertThat(reservationDao.findById(reservation.getId()).getState())
+                .isEqualTo(Reservation.ReservationState.UPCOMING);
+        assertThat(reservationDao.getActiveIndex().findInHouse(LocalDate.now()))
+                .extracting(Reservation::getState).containsExactly(Reservation.ReservationState.UPCOMING);
+    }
+
+    @Test
+    void updatesOneEntityTwiceInOneTransaction() {
+        var guest = guest();
+        int version = reservation.getVersion();
+
+        transactionManager.run(() -> {
+            guestDao.create(guest);
+            guest.setRoom("");
+            guestDao.update(guest);
+            reservation.setState(Reservation.ReservationState.DOING);
+            reservationDao.update(reservation);
+            reservation.setState(Reservation.ReservationState.ENDED);
+            reservationDao.update(reservation);
+        });
+
+        assertThat(reservation.getVersion()).isEqualTo(version + 2);
+        assertThat(reservationDao.findById(reservation.getId())).isEqualToComparingFieldByField(reservation);
+        assertThat(guestDao.findAll()).usingFieldByFieldElementComparator().containsExactly(guest);
+    }
+
+    @Test
+    void rollbackRestoresIdsAndVersions() {
+        var guest = guest();
+        var batchGuest = guest();
+        var room = new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.OCCUPIED, 70.0);
+        int version = reservation.getVersion();
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> transactionManager.run(() -> {
+                    guestDao.create(guest);
+                    guestDao.createAll(List.of(batchGuest));
+                    roomDao.update(room);
+                    reservationDao.update(reservation);
+                    reservationDao.updateAll(List.of(reservation));
+                    throw new IllegalStateException();
+                }));
+
+        assertThat(guest.getId()).isNull();
+        assertThat(batchGuest.getId()).isNull();
+        assertThat(room.getVersion()).isZero();
+        assertThat(reservation.getVersion()).isEqualTo(version);
+        reservationDao.update(reservation);
+        assertThat(reservation.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void failedBatchMarksTransactionForRollback() {
+        var unknown = guest();
+        unknown.setId(Long.MAX_VALUE);
+
+        assertThatExceptionOfType(DataAccessException.class)
+                .isThrownBy(() -> transactionManager.run(() -> {
+                    guestDao.create(guest());
+                    try {
+                        guestDao.createAll(List.of(unknown));
+                    } catch (DataAccessException ignored) {
+                        // the caller carries on, the transaction must not commit
+                    }
+                }))
+                .withMessage("Transaction was marked for rollback");
+
+        assertThat(guestDao.countAll()).isZero();
+    }
+
+    @Test
+    void nestedCallsJoinOuterTransaction() {
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> transactionManager.run(() -> {
+                    transactionManager.run(() -> guestDao.create(guest()));
+                    throw new IllegalStateException();
+                }));
+
+        assertThat(guestDao.countAll()).isZero();
+    }
+
+    @Test
+    void afterCommitRunsImmediatelyOutsideTransaction() {
+        List<String> actions = new ArrayList<>();
+        TransactionManager.afterCommit(() -> actions.add("run"));
+
+        assertThat(actions).containsExactly("run");
+    }
+
+    @Test
+    void connectionsAreReleasedAfterTransaction() throws SQLException {
+        var pool = new ConnectionPool.Builder(dataSource).minSize(0).maxSize(1).build();
+        try (pool) {
+            var pooledManager = new TransactionManager(pool);
+            var pooledGuestDao = new GuestDao(pooledManager);
+
+            pooledManager.run(() -> {
+                pooledGuestDao.create(guest());
+                assertThat(pooledGuestDao.countAll()).isEqualTo(1);
+            });
+
+            assertThat(pool.getStatistics().getActive()).isZero();
+            assertThat(pooledGuestDao.countAll()).isEqualTo(1);
+        }
+    }
+}
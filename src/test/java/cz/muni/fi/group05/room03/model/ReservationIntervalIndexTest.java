@@ -0,0 +1,95 @@
+package cz.muni.fi.group05.room03.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class ReservationIntervalIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2021, 7, 1);
+    private ReservationIntervalIndex index;
+
+    @BeforeEach
+    void createIndex() {
+        index = new ReservationIntervalIndex();
+    }
+
+    private static Reservation reservation(long id, int fromDay, int toDay) {
+        return new Reservation("Kiwi Kiwiove", DAY.plusDays(fromDay), DAY.plusDays(toDay), "783920484",
+                "mail1@mail.com", 2, "", Reservation.ReservationState.UPCOMING, id);
+    }
+
+    @Test
+    void findOverlapping() {
+        var first = reservation(1, 0, 3);
+        var second = reservation(2, 3, 5);
+        var third = reservation(3, 1, 10);
+        index.put(first);
+        index.put(second);
+        index.put(third);
+
+        assertThat(index.findOverlapping(DAY.plusDays(3), DAY.plusDays(4))).containsExactly(third, second);
+        assertThat(index.findInHouse(DAY)).containsExactly(first);
+        assertThat(index.findOverlapping(DAY.plusDays(10), DAY.plusDays(12))).isEmpty();
+        assertThat(index.countOverlapping(DAY, DAY.plusDays(4))).isEqualTo(3);
+        assertThat(index.countInHouse(DAY.plusDays(5))).isEqualTo(1);
+    }
+
+    @Test
+    void putReplacesAndRemoveDeletes() {
+        index.put(reservation(1, 0, 3));
+        index.put(reservation(1, 5, 6));
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.countInHouse(DAY)).isZero();
+        assertThat(index.countInHouse(DAY.plusDays(5))).isEqualTo(1);
+        assertThat(index.get(1L).getDateFrom()).isEqualTo(DAY.plusDays(5));
+
+        index.remove(1L);
+        assertThat(index.size()).isZero();
+        assertThat(index.get(1L)).isNull();
+        assertThat(index.findInHouse(DAY.plusDays(5))).isEmpty();
+    }
+
+    @Test
+    void nullId() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> index.put(new Reservation("Kiwi Kiwiove", DAY, DAY.plusDays(1), "783920484",
+                        "mail1@mail.com", 2, "", Reservation.ReservationState.UPCOMING)));
+    }
+
+    @Test
+    void matchesBruteForce() {
+        var random = new Random(42);
+        List<Reservation> live = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            int from = random.nextInt(200);
+            var reservation = reservation(id, from, from + 1 + random.nextInt(14));
+            index.put(reservation);
+            live.add(reservation);
+            if (random.nextInt(4) == 0) {
+                var removed = live.remove(random.nextInt(live.size()));
+                index.remove(removed.getId());
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            var from = DAY.plusDays(random.nextInt(220));
+            var to = from.plusDays(1 + random.nextInt(10));
+            List<Reservation> expected = live.stream()
+                    .filter(r -> r.getDateFrom().isBefore(to) && r.getDateTo().isAfter(from))
+                    .collect(Collectors.toList());
+
+            assertThat(index.findOverlapping(from, to)).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(index.countOverlapping(from, to)).isEqualTo(expected.size());
+        }
+        assertThat(index.size()).isEqualTo(live.size());
+    }
+}
@@ -0,0 +1,190 @@
+package cz.muni.fi.group05.room03.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class RoomOccupancyCalendarTest {
+
+    private static final LocalDate DAY = LocalDate.of(2021, 7, 1);
+    private ReservationIntervalIndex index;
+    private RoomOccupancyCalendar calendar;
+
+    @BeforeEach
+    void createCalendar() {
+        index = new ReservationIntervalIndex();
+        calendar = new RoomOccupancyCalendar(DAY, 200, index);
+        calendar.putRoom(new Room("101", Room.RoomType.DOUBLE, 2, Room.RoomStatus.NOT_OCCUPIED, 70.0));
+        calendar.putRoom(new Room("102", Room.RoomType.FAMILY, 4, Room.RoomStatus.NOT_OCCUPIED, 120.0));
+    }
+
+    private static Reservation reservation(long id, int fromDay, int toDay, Reservation.ReservationState state) {
+        return new Reservation("Kiwi Kiwiove", DAY.plusDays(fromDay), DAY.plusDays(toDay), "783920484",
+                "mail1@mail.com", 2, "", state, id);
+    }
+
+    private void putReservation(Reservation reservation) {
+        if (reservation.getState().isActive()) {
+            index.put(reservation);
+        } else {
+            index.remove(reservation.getId());
+        }
+        calendar.reservationChanged(reservation.getId());
+    }
+
+    private static Guest guest(long id, String room, long reservationId) {
+        return new Guest("Hruska Hruskova", room, "1234", Guest.GuestGeneration.ADULT, "", reservationId, id);
+    }
+
+    @Test
+    void occupiedByAssignedGuests() {
+        putReservation(reservation(1, 2, 5, Reservation.ReservationState.UPCOMING));
+        calendar.putGuest(guest(1, "101", 1));
+
+        assertThat(calendar.isFree("101", DAY, DAY.plusDays(2))).isTrue();
+        assertThat(calendar.isFree("101", DAY.plusDays(4), DAY.plusDays(6))).isFalse();
+        assertThat(calendar.isFree("101", DAY.plusDays(5), DAY.plusDays(6))).isTrue();
+        assertThat(calendar.findFreeRooms(DAY.plusDays(1), DAY.plusDays(3))).containsExactly("102");
+    }
+
+    @Test
+    void guestWithoutActiveReservationDoesNotOccupy() {
+        calendar.putGuest(guest(1, "101", 1));
+        putReservation(reservation(1, 0, 5, Reservation.ReservationState.ENDED));
+
+        assertThat(calendar.findFreeRooms(DAY, DAY.plusDays(5))).containsExactly("101", "102");
+    }
+
+    @Test
+    void freedWhenLastGuestLeaves() {
+        putReservation(reservation(1, 0, 5, Reservation.ReservationState.DOING));
+        calendar.putGuest(guest(1, "101", 1));
+        calendar.putGuest(guest(2, "101", 1));
+
+        calendar.removeGuest(1L);
+        assertThat(calendar.isFree("101", DAY, DAY.plusDays(5))).isFalse();
+        calendar.removeGuest(2L);
+        assertThat(calendar.isFree("101", DAY, DAY.plusDays(5))).isTrue();
+    }
+
+    @Test
+    void guestMovedToAnotherRoom() {
+        putReservation(reservation(1, 0, 5, Reservation.ReservationState.DOING));
+        calendar.putGuest(guest(1, "101", 1));
+        calendar.putGuest(guest(1, "102", 1));
+
+        assertThat(calendar.findFreeRooms(DAY, DAY.plusDays(5))).containsExactly("101");
+    }
+
+    @Test
+    void reservationStateChangeReleasesRoom() {
+        var reservation = reservation(1, 0, 5, Reservation.ReservationState.DOING);
+        putReservation(reservation);
+        calendar.putGuest(guest(1, "101", 1));
+
+        reservation.setState(Reservation.ReservationState.ENDED);
+        putReservation(reservation);
+        assertThat(calendar.isFree("101", DAY, DAY.plusDays(5))).isTrue();
+
+        putReservation(reservation(1, 0, 5, Reservation.ReservationState.DOING));
+        index.remove(1L);
+        calendar.reservationChanged(1L);
+        assertThat(calendar.isFree("101", DAY, DAY.plusDays(5))).isTrue();
+    }
+
+    @Test
+    void assignableRoomsOfReservation() {
+        putReservation(reservation(1, 2, 5, Reservation.ReservationState.UPCOMING));
+        putReservation(reservation(2, 4, 8, Reservation.ReservationState.UPCOMING));
+        putReservation(reservation(3, 0, 3, Reservation.ReservationState.DOING));
+        calendar.putGuest(guest(1, "101", 1));
+        calendar.putGuest(guest(2, "102", 2));
+
+        assertThat(calendar.findAssignableRooms(1L, 1)).containsExactly("101");
+        assertThat(calendar.findAssignableRooms(1L, 2)).isEmpty();
+        assertThat(calendar.findAssignableRooms(2L, 3)).containsExactly("102");
+        assertThat(calendar.findAssignableRooms(3L, 2)).containsExactly("102");
+        assertThat(calendar.findAssignableRooms(4L, 1)).isEmpty();
+    }
+
+    @Test
+    void unassignedReservationTakesNoRoom() {
+        putReservation(reservation(1, 0, 5, Reservation.ReservationState.UPCOMING));
+
+        assertThat(calendar.findFreeRooms(DAY, DAY.plusDays(5))).containsExactly("101", "102");
+        assertThat(calendar.findAssignableRooms(1L, 2)).containsExactly("101", "102");
+    }
+
+    @Test
+    void spansWordBoundary() {
+        putReservation(reservation(1, 63, 65, Reservation.ReservationState.UPCOMING));
+        calendar.putGuest(guest(1, "101", 1));
+
+        assertThat(calendar.isFree("101", DAY, DAY.plusDays(63))).isTrue();
+        assertThat(calendar.isFree("101", DAY.plusDays(62), DAY.plusDays(64))).isFalse();
+        assertThat(calendar.isFree("101", DAY.plusDays(64), DAY.plusDays(130))).isFalse();
+        assertThat(calendar.isFree("101", DAY.plusDays(65), DAY.plusDays(200))).isTrue();
+    }
+
+    @Test
+    void moveToShiftsHorizon() {
+        putReservation(reservation(1, 100, 250, Reservation.ReservationState.UPCOMING));
+        calendar.putGuest(guest(1, "101", 1));
+
+        calendar.moveTo(DAY.plusDays(100));
+
+        assertThat(calendar.getStart()).isEqualTo(DAY.plusDays(100));
+        assertThat(calendar.isFree("101", DAY.plusDays(240), DAY.plusDays(300))).isFalse();
+        assertThat(calendar.isFree("101", DAY.plusDays(250), DAY.plusDays(300))).isTrue();
+    }
+
+    @Test
+    void outsideOfHorizon() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> calendar.isFree("101", DAY.minusDays(1), DAY));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> calendar.findFreeRooms(DAY, DAY.plusDays(201)));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> calendar.isFree("999", DAY, DAY.plusDays(1)));
+    }
+
+    @Test
+    void matchesBruteForce() {
+        var random = new Random(7);
+        var reservations = new ArrayList<Reservation>();
+        for (long id = 1; id <= 40; id++) {
+            int from = random.nextInt(190);
+            var state = random.nextInt(4) == 0 ? Reservation.ReservationState.ENDED
+                    : Reservation.ReservationState.UPCOMING;
+            var reservation = reservation(id, from, from + 1 + random.nextInt(20), state);
+            reservations.add(reservation);
+            putReservation(reservation);
+        }
+        var guests = new ArrayList<Guest>();
+        for (long id = 1; id <= 30; id++) {
+            var guest = guest(id, random.nextBoolean() ? "101" : "102", 1 + random.nextInt(40));
+            guests.add(guest);
+            calendar.putGuest(guest);
+        }
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(200);
+            int to = from + 1 + random.nextInt(200 - from);
+            for (String room : List.of("101", "102")) {
+                boolean expected = guests.stream()
+                        .filter(guest -> guest.getRoom().equals(room))
+                        .map(guest -> reservations.get((int) (guest.getReservationId() - 1)))
+                        .noneMatch(reservation -> reservation.getState().isActive()
+                                && reservation.getDateFrom().isBefore(DAY.plusDays(to))
+                                && reservation.getDateTo().isAfter(DAY.plusDays(from)));
+                assertThat(calendar.isFree(room, DAY.plusDays(from), DAY.plusDays(to))).isEqualTo(expected);
+            }
+        }
+    }
+}
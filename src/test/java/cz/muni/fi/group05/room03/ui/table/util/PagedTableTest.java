@@ -0,0 +1,212 @@
+package cz.muni.fi.group05.room03.ui.table.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class PagedTableTest {
+
+    private final Column<String> name = Column.of(String.class, "name");
+    private final Column<Long> id = Column.of(Long.class, "id");
+    private final List<Integer> fetchedOffsets = new ArrayList<>();
+    private final List<Object> previousKeys = new ArrayList<>();
+    private final List<CompletableFuture<List<Object[]>>> pendingPages = new ArrayList<>();
+    private final List<CompletableFuture<Integer>> pendingCounts = new ArrayList<>();
+    private final List<PageQuery> queries = new ArrayList<>();
+    private boolean deferred;
+    private PagedTable table;
+
+    @BeforeEach
+    void createTable() {
+        table = new PagedTable(new GuestPages(), 10, 2, name, id);
+        table.setKeyColumn(id);
+    }
+
+    @Test
+    void fetchesPagesOnDemand() {
+        table.refresh();
+
+        assertThat(table.getRowCount()).isEqualTo(25);
+        assertThat(table.getRowValue(24, name)).isEqualTo("guest24");
+        assertThat(table.getValueAt(13, 1)).isEqualTo(13L);
+        assertThat(table.getValueAt(17, 0)).isEqualTo("guest17");
+        assertThat(fetchedOffsets).containsExactly(0, 20, 10);
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> table.getValueAt(25, 0));
+    }
+
+    @Test
+    void passesKeyOfRowBeforeFetchedPage() {
+        table.refresh();
+        table.getValueAt(24, 0);
+        table.getValueAt(13, 0);
+
+        assertThat(fetchedOffsets).containsExactly(0, 20, 10);
+        assertThat(previousKeys).containsExactly(null, null, 9L);
+    }
+
+    @Test
+    void keepsRecentlyUsedPages() {
+        table.refresh();
+        table.getValueAt(12, 0);
+        table.getValueAt(0, 0);
+        table.getValueAt(22, 0);
+        table.getValueAt(3, 0);
+        table.getValueAt(15, 0);
+
+        assertThat(fetchedOffsets).containsExactly(0, 10, 20, 10);
+    }
+
+    @Test
+    void showsFirstPageBeforeCount() {
+        deferred = true;
+        List<Integer> rowCounts = new ArrayList<>();
+        table.addTableModelListener(event -> rowCounts.add(table.getRowCount()));
+        table.refresh();
+        pendingPages.get(0).complete(rows(0, 10));
+
+        assertThat(table.getRowValue(9, name)).isEqualTo("guest9");
+        pendingCounts.get(0).complete(25);
+
+        assertThat(rowCounts).containsExactly(10, 25);
+        assertThat(table.getValueAt(15, 0)).isNull();
+        assertThat(fetchedOffsets).containsExactly(0, 10);
+    }
+
+    @Test
+    void notifiesWhenPageArrives() {
+        table.refresh();
+        deferred = true;
+        List<TableModelEvent> events = new ArrayList<>();
+        table.addTableModelListener(events::add);
+
+        assertThat(table.getRowValue(21, name)).isNull();
+        assertThat(table.getRowValue(22, name)).isNull();
+        pendingPages.get(0).complete(rows(20, 25));
+
+        assertThat(table.getRowValue(22, name)).isEqualTo("guest22");
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getFirstRow()).isEqualTo(20);
+        assertThat(events.get(0).getLastRow()).isEqualTo(24);
+        assertThat(fetchedOffsets).containsExactly(0, 20);
+    }
+
+    @Test
+    void ignoresPagesOfReplacedQuery() {
+        table.refresh();
+        deferred = true;
+        table.getValueAt(12, 0);
+        table.setFilter("guest1", List.of(name));
+        pendingPages.get(0).complete(rows(10, 20));
+        pendingCounts.get(0).complete(11);
+
+        assertThat(table.getRowCount()).isEqualTo(11);
+        assertThat(table.getValueAt(10, 0)).isNull();
+        assertThat(fetchedOffsets).containsExactly(0, 10, 0, 10);
+    }
+
+    @Test
+    void updatesFetchedRowInPlace() {
+        table.refresh();
+        table.getValueAt(0, 0);
+        List<TableModelEvent> events = new ArrayList<>();
+        table.addTableModelListener(events::add);
+
+        assertThat(table.updateRow("renamed", 3L)).isTrue();
+        assertThat(table.updateRow("missing", 15L)).isFalse();
+        assertThat(table.getRowValue(3, name)).isEqualTo("renamed");
+        assertThat(events).extracting(TableModelEvent::getFirstRow).containsExactly(3);
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> table.updateRow("wrong", 3));
+    }
+
+    @Test
+    void sorterPassesOrderToSource() {
+        table.refresh();
+        RowSorter<?> sorter = table.createRowSorter();
+        sorter.toggleSortOrder(0);
+        sorter.toggleSortOrder(1);
+        sorter.toggleSortOrder(1);
+
+        assertThat(table.getQuery().getSortOrders()).containsExactly(
+                Map.entry(id, SortOrder.DESCENDING), Map.entry(name, SortOrder.ASCENDING));
+        assertThat(table.getValueAt(0, 0)).isEqualTo("guest24");
+        assertThat(sorter.convertRowIndexToModel(7)).isEqualTo(7);
+        assertThat(sorter.getViewRowCount()).isEqualTo(25);
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> sorter.setSortKeys(List.of(new RowSorter.SortKey(2, SortOrder.ASCENDING))));
+    }
+
+    @Test
+    void unchangedQueryIsNotFetchedAgain() {
+        table.refresh();
+        table.setFilter("", List.of(name, id));
+        table.setSortOrders(Map.of());
+        table.filterRows(null, "guest2", new int[]{0});
+        table.filterRows(null, "guest2", new int[]{0});
+
+        assertThat(queries).hasSize(2);
+        assertThat(table.getQuery().getFilterColumns()).containsExactly(name);
+        assertThat(table.getRowCount()).isEqualTo(6);
+    }
+
+    private List<Object[]> rows(int from, int to) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = from; i < to; i++) {
+            rows.add(new Object[]{"guest" + i, i});
+        }
+        return rows;
+    }
+
+    private class GuestPages implements PagedTable.PageSource {
+
+        private List<Object[]> matching(PageQuery query) {
+            Comparator<Object[]> order = Comparator.comparing(row -> (Long) row[1]);
+            if (query.getSortOrders().get(id) == SortOrder.DESCENDING) {
+                order = order.reversed();
+            }
+            return rows(0, 25).stream()
+                    .filter(row -> ((String) row[0]).contains(query.getFilter()))
+                    .sorted(order)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public CompletableFuture<Integer> count(PageQuery query) {
+            queries.add(query);
+            if (deferred) {
+                pendingCounts.add(new CompletableFuture<>());
+                return pendingCounts.get(pendingCounts.size() - 1);
+            }
+            return CompletableFuture.completedFuture(matching(query).size());
+        }
+
+        @Override
+        public CompletableFuture<List<Object[]>> fetch(PageQuery query, int offset, int limit, Object previousKey) {
+            previousKeys.add(previousKey);
+            return fetch(query, offset, limit);
+        }
+
+        @Override
+        public CompletableFuture<List<Object[]>> fetch(PageQuery query, int offset, int limit) {
+            fetchedOffsets.add(offset);
+            if (deferred) {
+                pendingPages.add(new CompletableFuture<>());
+                return pendingPages.get(pendingPages.size() - 1);
+            }
+            List<Object[]> rows = matching(query);
+            return CompletableFuture.completedFuture(rows.subList(Math.min(offset, rows.size()),
+                    Math.min(offset + limit, rows.size())));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package cz.muni.fi.group05.room03.ui.table.util;
+
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.TableRowSorter;
+import java.awt.EventQueue;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Compares filling a sorted table row by row with the bulk API and the heap the table retains against boxed rows.
+ * Not part of the test suite, run with
+ * {@code java -cp target/classes:target/test-classes cz.muni.fi.group05.room03.ui.table.util.TableLoadBenchmark [rows]}.
+ */
+public class TableLoadBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static volatile Object retained;
+
+    private final Column<String> name = Column.of(String.class, "name");
+    private final Column<LocalDate> dateFrom = Column.of(LocalDate.class, "dateFrom");
+    private final Column<Integer> people = Column.of(Integer.class, "people");
+    private final Column<Long> id = Column.of(Long.class, "id");
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        var benchmark = new TableLoadBenchmark();
+        long boxed = retainedBytes(() -> {
+            List<List<Object>> copy = new ArrayList<>(rows);
+            benchmark.createRows(rows).forEach(row -> copy.add(new ArrayList<>(List.of(row))));
+            return copy;
+        });
+        long columnar = retainedBytes(() -> {
+            var table = new Table(benchmark.name, benchmark.dateFrom, benchmark.people, benchmark.id);
+            table.replaceAll(benchmark.createRows(rows));
+            return table;
+        });
+        System.out.printf("retained heap per row: boxed rows %d B, column stores %d B%n", boxed / rows, columnar / rows);
+        List<Object[]> data = benchmark.createRows(rows);
+        EventQueue.invokeAndWait(() -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                long perRow = benchmark.measure(table -> data.forEach(table::addRow));
+                long bulk = benchmark.measure(table -> table.replaceAll(data));
+                System.out.printf("round %d, %d rows: addRow %d ms, replaceAll %d ms%n", round + 1, rows, perRow, bulk);
+            }
+        });
+    }
+
+    private static long retainedBytes(Supplier<Object> build) {
+        long before = usedHeap();
+        retained = build.get();
+        long after = usedHeap();
+        retained = null;
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private List<Object[]> createRows(int rows) {
+        List<Object[]> data = new ArrayList<>(rows);
+        LocalDate start = LocalDate.of(2021, 1, 1);
+        for (int i = 0; i < rows; i++) {
+            data.add(new Object[]{"Guest " + i, start.plusDays(i % 730), 1 + i % 6, (long) i});
+        }
+        return data;
+    }
+
+    private long measure(Consumer<Table> load) {
+        var table = new Table(name, dateFrom, people, id);
+        table.setKeyColumn(id);
+        var jTable = new JTable(table);
+        var sorter = new TableRowSorter<>(table);
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(table.findColumn(dateFrom), SortOrder.ASCENDING)));
+        jTable.setRowSorter(sorter);
+        long start = System.nanoTime();
+        load.accept(table);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        if (jTable.getRowCount() != table.getRowCount()) {
+            throw new IllegalStateException("Sorter lost rows");
+        }
+        return elapsed;
+    }
+}
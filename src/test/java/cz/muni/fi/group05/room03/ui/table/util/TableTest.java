@@ -0,0 +1,122 @@
+package cz.muni.fi.group05.room03.ui.table.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TableTest {
+
+    private final Column<Long> id = Column.of(Long.class, "id");
+    private final Column<String> name = Column.of(String.class, "name");
+    private Table table;
+
+    @BeforeEach
+    void createTable() {
+        table = new Table(name, id);
+        table.setKeyColumn(id);
+        for (long i = 0; i < 5; i++) {
+            table.addRow("guest" + i, i);
+        }
+    }
+
+    @Test
+    void findsRowsByKey() {
+        assertThat(table.findRow(id, 3L)).isEqualTo(3);
+        assertThat(table.findRow(id, 7L)).isEqualTo(-1);
+        assertThat(table.findRow(name, "guest2")).isEqualTo(2);
+        assertThat(table.findColumn(id)).isEqualTo(1);
+    }
+
+    @Test
+    void removeRowShiftsIndex() {
+        table.removeRow(1);
+
+        assertThat(table.findRow(id, 1L)).isEqualTo(-1);
+        assertThat(table.findRow(id, 0L)).isEqualTo(0);
+        assertThat(table.findRow(id, 4L)).isEqualTo(3);
+        assertThat(table.getRowValue(table.findRow(id, 2L), name)).isEqualTo("guest2");
+    }
+
+    @Test
+    void changedKeysAreReindexed() {
+        table.setRow(0, "renamed", 10L);
+        table.setValueAt(11L, 4, id);
+
+        assertThat(table.findRow(id, 0L)).isEqualTo(-1);
+        assertThat(table.findRow(id, 10L)).isEqualTo(0);
+        assertThat(table.findRow(id, 11L)).isEqualTo(4);
+    }
+
+    @Test
+    void duplicateKey() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> table.addRow("copy", 2L))
+                .withMessage("Table Error: Key 2 is already in row 2");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> table.setRow(0, "copy", 2L));
+        assertThat(table.getRowCount()).isEqualTo(5);
+        assertThat(table.findRow(id, 0L)).isEqualTo(0);
+    }
+
+    @Test
+    void addRowsInOneEvent() {
+        List<Integer> events = new ArrayList<>();
+        table.addTableModelListener(event -> events.add(event.getType()));
+        table.addRows(List.of(new Object[]{"guest5", 5L}, new Object[]{"guest6", 6L}));
+
+        assertThat(events).hasSize(1);
+        assertThat(table.getRowCount()).isEqualTo(7);
+        assertThat(table.findRow(id, 6L)).isEqualTo(6);
+    }
+
+    @Test
+    void addRowsIsAllOrNothing() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> table.addRows(List.of(new Object[]{"guest5", 5L}, new Object[]{"guest6", 6})));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> table.addRows(List.of(new Object[]{"guest5", 5L}, new Object[]{"again", 5L})))
+                .withMessage("Table Error: Key 5 is already in row 5");
+        assertThat(table.getRowCount()).isEqualTo(5);
+        assertThat(table.findRow(id, 5L)).isEqualTo(-1);
+    }
+
+    @Test
+    void replaceAll() {
+        table.replaceAll(List.<Object[]>of(new Object[]{"new", 9L}));
+
+        assertThat(table.getRowCount()).isEqualTo(1);
+        assertThat(table.findRow(id, 0L)).isEqualTo(-1);
+        assertThat(table.findRow(id, 9L)).isEqualTo(0);
+    }
+
+    @Test
+    void columnStoresKeepValues() {
+        var room = Column.ofDictionary(String.class, "room");
+        var from = Column.of(LocalDate.class, "from");
+        var people = Column.of(Integer.class, "people");
+        var price = Column.of(Double.class, "price");
+        var day = Column.of(DayOfWeek.class, "day");
+        var typed = new Table(room, from, people, price, day);
+        for (int i = 0; i < 100; i++) {
+            typed.addRow("10" + i % 3, LocalDate.of(2021, 1, 1).plusDays(i), i, i / 2.0, DayOfWeek.of(1 + i % 7));
+        }
+        typed.removeRow(0);
+        typed.setValueAt("999", 0, room);
+
+        assertThat(typed.getRowCount()).isEqualTo(99);
+        assertThat(typed.getRowValue(0, room)).isEqualTo("999");
+        assertThat(typed.getRowValue(1, room)).isEqualTo("102");
+        assertThat(typed.getRowValue(98, from)).isEqualTo(LocalDate.of(2021, 4, 10));
+        assertThat(typed.getRowValue(98, people)).isEqualTo(99);
+        assertThat(typed.getRowValue(98, price)).isEqualTo(49.5);
+        assertThat(typed.getValueAt(98, 4)).isEqualTo(DayOfWeek.TUESDAY);
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> typed.getValueAt(99, 0));
+    }
+}